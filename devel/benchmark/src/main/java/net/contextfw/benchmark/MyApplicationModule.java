@@ -18,6 +18,7 @@ public class MyApplicationModule extends AbstractModule {
           .set(Configuration.XML_PARAM_NAME, "xml")
           .set(Configuration.MAX_INACTIVITY.inHoursAndMins(1, 0))
           .set(Configuration.LIFECYCLE_LISTENER.as(MyLifecycleListener.class))
+          .set(Configuration.PRECOMPILED_XSL, "net.contextfw.benchmark.BenchmarkStylesheet")
           .set(Configuration.LOG_XML, false);
        
         install(new WebApplicationModule(props));
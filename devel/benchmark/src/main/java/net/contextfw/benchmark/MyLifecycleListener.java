@@ -30,17 +30,6 @@ public class MyLifecycleListener implements LifecycleListener {
 		
 	}
 
-	@Override
-	public boolean beforeUpdate() {
-		return true;
-	}
-
-	@Override
-	public void afterUpdate() {
-		// TODO Auto-generated method stub
-		
-	}
-
 	@Override
 	public void onException(Exception e) {
 		// TODO Auto-generated method stub
@@ -58,14 +47,19 @@ public class MyLifecycleListener implements LifecycleListener {
 	}
 
     @Override
-    public boolean beforeRemotedMethod(Component component, Method method, Object[] args) {
-        // TODO Auto-generated method stub
-        return false;
+    public boolean beforeUpdate(Component component, Method method, Object[] args) {
+        return true;
+    }
+
+    @Override
+    public void afterUpdate(Component component, Method method, RuntimeException thrown) {
+    }
+
+    @Override
+    public void afterPageScopeActivation() {
     }
 
     @Override
-    public void afterRemoteMethod(Component component, Method method, RuntimeException thrown) {
-        // TODO Auto-generated method stub
-        
+    public void beforePageScopeDeactivation() {
     }
 }
\ No newline at end of file
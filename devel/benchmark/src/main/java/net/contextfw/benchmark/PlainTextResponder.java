@@ -6,6 +6,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.contextfw.web.application.remote.ResourceResponse;
+import net.contextfw.web.application.scope.Execution;
 
 public class PlainTextResponder implements ResourceResponse {
 
@@ -16,11 +17,12 @@ public class PlainTextResponder implements ResourceResponse {
     }
 
     @Override
-    public void serve(HttpServletRequest request, HttpServletResponse response)
+    public Execution serve(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
 
         response.setContentType("text/plain; charset=utf-8");
         response.getWriter().write(text);
+        return null;
     }
 
 }
@@ -11,6 +11,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.contextfw.web.application.remote.ResourceResponse;
+import net.contextfw.web.application.scope.Execution;
 
 public class ProductImageResponder implements ResourceResponse {
 
@@ -21,7 +22,7 @@ public class ProductImageResponder implements ResourceResponse {
     }
 
     @Override
-    public void serve(HttpServletRequest request, HttpServletResponse response)
+    public Execution serve(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         BufferedImage bufferedImage = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
       //Draw an oval
@@ -35,6 +36,7 @@ public class ProductImageResponder implements ResourceResponse {
         g.drawString(name, 10, 24);
         g.dispose();
         response.setContentType("image/jpeg");
-        ImageIO.write(bufferedImage, "jpg", response.getOutputStream());  
+        ImageIO.write(bufferedImage, "jpg", response.getOutputStream());
+        return null;
     }
 }
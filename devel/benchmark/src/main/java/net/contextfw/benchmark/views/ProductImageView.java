@@ -1,7 +1,7 @@
 package net.contextfw.benchmark.views;
 
 import net.contextfw.benchmark.ProductImageResponder;
-import net.contextfw.web.application.HttpContext;
+import net.contextfw.web.application.PageContext;
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.lifecycle.PageScoped;
 import net.contextfw.web.application.lifecycle.ResourceView;
@@ -13,16 +13,16 @@ import com.google.inject.Inject;
 @View(url = "regex:/productImage/.+.jpg")
 public class ProductImageView extends Component implements ResourceView {
 
-    private final HttpContext httpContext;
+    private final PageContext pageContext;
 
     @Inject
-    public ProductImageView(HttpContext httpContext) {
-        this.httpContext = httpContext;
+    public ProductImageView(PageContext pageContext) {
+        this.pageContext = pageContext;
     }
     
     @Override
     public Object getResponse() {
-        String name = httpContext.getRequest().getRequestURI();
+        String name = pageContext.getRequest().getRequestURI();
         int first = name.lastIndexOf("/") + 1;
         int last = name.lastIndexOf(".");
         return new ProductImageResponder(name.substring(first, last));
@@ -5,7 +5,6 @@ import java.util.List;
 import net.contextfw.benchmark.ProductService;
 import net.contextfw.benchmark.components.PageTitle;
 import net.contextfw.benchmark.dto.Product;
-import net.contextfw.web.application.HttpContext;
 import net.contextfw.web.application.component.Attribute;
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.Element;
@@ -17,7 +17,7 @@
 
 		<script type="text/javascript"><![CDATA[
 $(document).ready(function() {
-	contextfw.init("]]><xsl:value-of select="$contextPath" /><![CDATA[", "]]><xsl:value-of select="$webApplicationHandle" /><![CDATA[");
+	contextfw.init("]]><xsl:value-of select="$contextPath" /><![CDATA[", "]]><xsl:value-of select="$pageHandle" /><![CDATA[");
 	]]><xsl:apply-templates select="//Script" mode="script" /><![CDATA[
 });
 $.ajaxSetup({ scriptCharset: "utf-8" ,contentType: "application/x-www-form-urlencoded; charset=UTF-8" });
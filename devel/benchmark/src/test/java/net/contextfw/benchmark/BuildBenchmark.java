@@ -0,0 +1,135 @@
+package net.contextfw.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.Element;
+import net.contextfw.web.application.internal.ToStringSerializer;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.lifecycle.BeforeBuild;
+
+import com.google.gson.Gson;
+
+/**
+ * Compares the build phase of a large listing with generated accessors and with 
+ * reflection.
+ *
+ * <p>
+ *  Usage: BuildBenchmark [rowCount] [iterations]
+ * </p>
+ */
+public class BuildBenchmark {
+
+    @Buildable(name = "Listing")
+    public static class Listing {
+
+        private final List<Row> rows;
+
+        public Listing(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Element
+        public List<Row> rows() {
+            return rows;
+        }
+    }
+
+    @Buildable
+    public static class Row {
+
+        @Attribute
+        public final int id;
+
+        @Attribute
+        public final String name;
+
+        private boolean selected;
+
+        public Row(int id) {
+            this.id = id;
+            this.name = "Row " + id;
+        }
+
+        @Attribute
+        public int price() {
+            return id * 10;
+        }
+
+        @Attribute
+        public boolean selected() {
+            return selected;
+        }
+
+        @Element
+        public String description() {
+            return name;
+        }
+
+        @BeforeBuild
+        public void beforeBuild() {
+            selected = id % 2 == 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Row(i));
+        }
+        Listing listing = new Listing(rows);
+
+        ComponentBuilderImpl generated = new ComponentBuilderImpl(null, new Gson(), 
+                new FragmentCache(0), true);
+        ComponentBuilderImpl reflective = new ComponentBuilderImpl(null, new Gson(), 
+                new FragmentCache(0), false);
+
+        System.out.println("Rows: " + rowCount);
+
+        // Warm up
+        run("generated", generated, listing, iterations, false);
+        run("reflective", reflective, listing, iterations, false);
+
+        run("generated", generated, listing, iterations, true);
+        run("reflective", reflective, listing, iterations, true);
+    }
+
+    private static void run(String name, ComponentBuilderImpl builder, Listing listing, 
+            int iterations, boolean print) {
+
+        // Meta models are shared, so they are recreated for each builder
+        builder.clean();
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            DOMBuilder domBuilder = new DOMBuilder("WebApplication", new ToStringSerializer(),
+                    builder, new HashSet<KeyValue<String, String>>());
+            domBuilder.child(listing);
+            domBuilder.toDocument();
+        }
+        long time = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        if (print) {
+            System.out.println(String.format("%-10s %8.2f ms/build %10d kB/build",
+                    name,
+                    time / 1000000.0 / iterations,
+                    allocated / 1024 / iterations));
+        }
+    }
+}
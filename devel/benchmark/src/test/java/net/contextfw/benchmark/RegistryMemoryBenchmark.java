@@ -0,0 +1,94 @@
+package net.contextfw.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.contextfw.web.application.component.Component;
+import net.contextfw.web.application.internal.component.InternalComponentRegister;
+
+/**
+ * Compares the retained heap of pages registering their components into the 
+ * array-backed register and into a string-keyed map, as the register used to be.
+ *
+ * <p>
+ *  Usage: RegistryMemoryBenchmark [pageCount] [componentsPerPage]
+ * </p>
+ */
+public class RegistryMemoryBenchmark {
+
+    private static class Label extends Component {
+    }
+
+    private static class MapRegister {
+
+        private int idCounter = 0;
+
+        private final Map<String, Component> components = new HashMap<String, Component>();
+
+        void register(Component component) {
+            component.setId("c" + idCounter++);
+            components.put(component.getId(), component);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        int pageCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int componentCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.out.println("Pages: " + pageCount + ", components per page: " + componentCount);
+
+        long components = measure(pageCount, componentCount, 0);
+        long map = measure(pageCount, componentCount, 1);
+        long array = measure(pageCount, componentCount, 2);
+
+        print("components", components, pageCount);
+        print("map", map - components, pageCount);
+        print("array", array - components, pageCount);
+    }
+
+    private static void print(String name, long bytes, int pageCount) {
+        System.out.println(String.format("%-10s %8.2f kB/page", name, bytes / 1024.0 / pageCount));
+    }
+
+    private static long measure(int pageCount, int componentCount, int mode) {
+        long before = usedMemory();
+        List<Object> pages = new ArrayList<Object>(pageCount);
+        for (int p = 0; p < pageCount; p++) {
+            if (mode == 0) {
+                Component[] page = new Component[componentCount];
+                for (int i = 0; i < componentCount; i++) {
+                    page[i] = new Label();
+                }
+                pages.add(page);
+            } else if (mode == 1) {
+                MapRegister register = new MapRegister();
+                for (int i = 0; i < componentCount; i++) {
+                    register.register(new Label());
+                }
+                pages.add(register);
+            } else {
+                InternalComponentRegister register = new InternalComponentRegister();
+                for (int i = 0; i < componentCount; i++) {
+                    register.register(new Label());
+                }
+                pages.add(register);
+            }
+        }
+        long used = usedMemory() - before;
+        if (pages.size() != pageCount) {
+            throw new IllegalStateException();
+        }
+        return used;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,257 @@
+package net.contextfw.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import net.contextfw.benchmark.dto.Product;
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.Element;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.HTMLContentWriter;
+import net.contextfw.web.application.internal.ToStringSerializer;
+import net.contextfw.web.application.internal.Transformers;
+import net.contextfw.web.application.internal.UTF8Writer;
+import net.contextfw.web.application.internal.WebResponder;
+import net.contextfw.web.application.internal.WebResponder.Mode;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+
+import org.dom4j.Document;
+import org.dom4j.io.HTMLWriter;
+import org.dom4j.io.OutputFormat;
+
+import com.google.gson.Gson;
+
+/**
+ * Compares the latency and allocations of the tree-based and the streamed
+ * rendering of a large product listing, and of the HTMLWriter and UTF-8
+ * serializers on an already transformed page.
+ *
+ * <p>
+ *  Usage: RenderingBenchmark [productCount] [iterations]
+ * </p>
+ */
+public class RenderingBenchmark {
+
+    @Buildable(name = "Test1View")
+    public static class ProductListing {
+
+        private final List<Product> products;
+
+        public ProductListing(List<Product> products) {
+            this.products = products;
+        }
+
+        @Attribute
+        public String pageName() {
+            return "Producs listing: " + products.size();
+        }
+
+        @Element
+        public List<Product> products() {
+            return products;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Document document = createDocument(productCount);
+
+        WebResponder tree = createResponder(false);
+        WebResponder streamed = createResponder(true);
+
+        ByteArrayOutputStream treeOutput = new ByteArrayOutputStream();
+        ByteArrayOutputStream streamedOutput = new ByteArrayOutputStream();
+        tree.sendResponse(document, createResponse(treeOutput), Mode.INIT);
+        streamed.sendResponse(document, createResponse(streamedOutput), Mode.INIT);
+
+        if (!Arrays.equals(treeOutput.toByteArray(), streamedOutput.toByteArray())) {
+            throw new IllegalStateException("Streamed output differs from tree output");
+        }
+
+        Document transformed = transform(document);
+        StringWriter htmlWriterOutput = new StringWriter();
+        new HTMLWriter(htmlWriterOutput, createHTMLFormat()).write(transformed);
+        ByteArrayOutputStream contentWriterOutput = new ByteArrayOutputStream();
+        UTF8Writer utf8 = new UTF8Writer(contentWriterOutput);
+        new HTMLContentWriter(utf8).write(transformed);
+        utf8.flush();
+
+        if (!htmlWriterOutput.toString().equals(contentWriterOutput.toString("UTF-8"))) {
+            throw new IllegalStateException("HTMLContentWriter output differs from HTMLWriter output");
+        }
+
+        System.out.println("Products: " + productCount + ", output: "
+                + treeOutput.size() + " bytes");
+
+        // Warm up
+        run("tree", tree, document, iterations, false);
+        run("streamed", streamed, document, iterations, false);
+        serialize(transformed, iterations, false);
+
+        run("tree", tree, document, iterations, true);
+        run("streamed", streamed, document, iterations, true);
+        serialize(transformed, iterations, true);
+    }
+
+    /**
+     * Compares serializers only, using already transformed document
+     */
+    private static void serialize(Document transformed, int iterations, boolean print) 
+            throws Exception {
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        OutputFormat format = createHTMLFormat();
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Writer writer = new OutputStreamWriter(new NullOutputStream(), "UTF-8");
+            new HTMLWriter(writer, format).write(transformed);
+            writer.flush();
+        }
+        print(print, "HTMLWriter", System.nanoTime() - start, 
+                threads.getThreadAllocatedBytes(threadId) - allocated, iterations);
+
+        allocated = threads.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            UTF8Writer writer = new UTF8Writer(new NullOutputStream());
+            new HTMLContentWriter(writer).write(transformed);
+            writer.flush();
+        }
+        print(print, "UTF8", System.nanoTime() - start, 
+                threads.getThreadAllocatedBytes(threadId) - allocated, iterations);
+    }
+
+    private static void print(boolean print, String name, long time, long allocated, int iterations) {
+        if (print) {
+            System.out.println(String.format("%-10s %8.2f ms/render %10d kB/render",
+                    name,
+                    time / 1000000.0 / iterations,
+                    allocated / 1024 / iterations));
+        }
+    }
+
+    private static void run(String name, WebResponder responder, Document document,
+            int iterations, boolean print) throws Exception {
+
+        HttpServletResponse response = createResponse(new NullOutputStream());
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            responder.sendResponse(document, response, Mode.INIT);
+        }
+        print(print, name, System.nanoTime() - start, 
+                threads.getThreadAllocatedBytes(threadId) - allocated, iterations);
+    }
+
+    private static Document transform(Document document) {
+        Configuration configuration = Configuration.getDefaults()
+            .add(Configuration.RESOURCE_PATH, "net.contextfw.benchmark");
+        Transformers transformers = new Transformers();
+        transformers.initialize(new XSLSource(configuration).getXSLDocument());
+        return transformers.transform(document);
+    }
+
+    private static OutputFormat createHTMLFormat() {
+        OutputFormat format = OutputFormat.createCompactFormat();
+        format.setXHTML(true);
+        format.setTrimText(false);
+        format.setPadText(true);
+        format.setNewlines(false);
+        format.setExpandEmptyElements(true);
+        return format;
+    }
+
+    private static Document createDocument(int productCount) {
+        DOMBuilder builder = new DOMBuilder("WebApplication", new ToStringSerializer(),
+                new ComponentBuilderImpl(null, new Gson(), new FragmentCache(0), true),
+                new HashSet<KeyValue<String, String>>());
+        builder.child(new ProductListing(new ProductService().getProducts(productCount)));
+        return builder.toDocument();
+    }
+
+    private static WebResponder createResponder(boolean streamedRendering) {
+        Configuration configuration = Configuration.getDefaults()
+            .set(Configuration.LOG_XML, false)
+            .set(Configuration.STREAMED_RENDERING, streamedRendering)
+            .add(Configuration.RESOURCE_PATH, "net.contextfw.benchmark");
+        return new WebResponder(configuration, null);
+    }
+
+    private static HttpServletResponse createResponse(final OutputStream out) {
+        final ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                RenderingBenchmark.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getOutputStream".equals(method.getName())) {
+                            return stream;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static class XSLSource extends WebResponder {
+
+        public XSLSource(Configuration configuration) {
+            super(configuration, null);
+        }
+
+        @Override
+        public Document getXSLDocument() {
+            return super.getXSLDocument();
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+        }
+    }
+}
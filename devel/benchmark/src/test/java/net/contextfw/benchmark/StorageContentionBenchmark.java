@@ -0,0 +1,283 @@
+package net.contextfw.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import net.contextfw.web.application.PageHandle;
+import net.contextfw.web.application.WebApplication;
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.scope.DefaultWebApplicationStorage;
+import net.contextfw.web.application.scope.ScopedWebApplicationExecution;
+import net.contextfw.web.application.scope.WebApplicationStorage;
+
+/**
+ * Compares the throughput of the concurrent storage and of a storage guarding all 
+ * pages with a single monitor, as the storage used to do, while an expiry sweep 
+ * runs continuously.
+ *
+ * <p>
+ *  Each operation is an update, a refresh or a large-object access on a random page.
+ * </p>
+ *
+ * <p>
+ *  Usage: StorageContentionBenchmark [threads] [pages] [seconds]
+ * </p>
+ */
+public class StorageContentionBenchmark {
+
+    private static final long VALID = 60L * 60 * 1000;
+
+    private static class Page implements WebApplication {
+
+        private PageHandle handle;
+
+        @Override
+        public void setHandle(PageHandle handle) {
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * Locks like the storage did before it was made concurrent
+     */
+    private static class LockedStorage implements WebApplicationStorage {
+
+        private static final class Holder {
+            private long validThrough;
+            private final WebApplication application;
+            private final Map<String, Object> largeObjects = new HashMap<String, Object>();
+
+            private Holder(WebApplication application, long validThrough) {
+                this.application = application;
+                this.validThrough = validThrough;
+            }
+        }
+
+        private final Map<PageHandle, Holder> pages = new HashMap<PageHandle, Holder>();
+
+        @Override
+        public void initialize(WebApplication application, HttpServletRequest request,
+                long validThrough, ScopedWebApplicationExecution execution) {
+            PageHandle handle = new PageHandle(UUID.randomUUID().toString());
+            application.setHandle(handle);
+            Holder holder = new Holder(application, validThrough);
+            synchronized (this) {
+                pages.put(handle, holder);
+            }
+            synchronized (holder) {
+                execution.execute(application);
+            }
+        }
+
+        @Override
+        public void update(PageHandle handle, HttpServletRequest request, long validThrough,
+                ScopedWebApplicationExecution execution) {
+            Holder holder = getHolder(handle);
+            if (holder != null) {
+                synchronized (holder) {
+                    holder.validThrough = validThrough;
+                    execution.execute(holder.application);
+                }
+            } else {
+                execution.execute(null);
+            }
+        }
+
+        @Override
+        public void execute(PageHandle handle, ScopedWebApplicationExecution execution) {
+            update(handle, null, System.currentTimeMillis() + VALID, execution);
+        }
+
+        @Override
+        public void refresh(PageHandle handle, HttpServletRequest request, long validThrough) {
+            Holder holder = getHolder(handle);
+            if (holder != null) {
+                holder.validThrough = validThrough;
+            }
+        }
+
+        @Override
+        public synchronized void remove(PageHandle handle, HttpServletRequest request) {
+            pages.remove(handle);
+        }
+
+        @Override
+        public void storeLarge(PageHandle handle, String key, Object obj) {
+            synchronized (this) {
+                getHolder(handle).largeObjects.put(key, obj);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T loadLarge(PageHandle handle, String key, Class<T> type) {
+            synchronized (this) {
+                return (T) getHolder(handle).largeObjects.get(key);
+            }
+        }
+
+        private synchronized Holder getHolder(PageHandle handle) {
+            Holder holder = pages.get(handle);
+            if (holder == null) {
+                throw new WebApplicationException("Page scope does not exist!");
+            }
+            return holder;
+        }
+
+        private synchronized void removeExpiredPages() {
+            long now = System.currentTimeMillis();
+            Iterator<Holder> iterator = pages.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().validThrough < now) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class SweepingStorage extends DefaultWebApplicationStorage {
+
+        public SweepingStorage(Configuration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        public void removeExpiredPages() {
+            super.removeExpiredPages();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int pageCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        System.out.println("Threads: " + threads + ", pages: " + pageCount
+                + ", seconds: " + seconds);
+
+        final LockedStorage locked = new LockedStorage();
+        final SweepingStorage concurrent = new SweepingStorage(Configuration.getDefaults()
+                .set(Configuration.REMOVAL_SCHEDULE_PERIOD.inHoursAndMins(24, 0)));
+
+        // Warm up
+        run("locked", locked, new Runnable() {
+            public void run() {
+                locked.removeExpiredPages();
+            }
+        }, threads, pageCount, 1, false);
+        run("concurrent", concurrent, new Runnable() {
+            public void run() {
+                concurrent.removeExpiredPages();
+            }
+        }, threads, pageCount, 1, false);
+
+        run("locked", locked, new Runnable() {
+            public void run() {
+                locked.removeExpiredPages();
+            }
+        }, threads, pageCount, seconds, true);
+        run("concurrent", concurrent, new Runnable() {
+            public void run() {
+                concurrent.removeExpiredPages();
+            }
+        }, threads, pageCount, seconds, true);
+    }
+
+    private static void run(String name, final WebApplicationStorage storage, 
+            final Runnable sweep, int threads, int pageCount, int seconds, boolean print) 
+            throws InterruptedException {
+
+        final HttpServletRequest request = createRequest();
+        final ScopedWebApplicationExecution execution = new ScopedWebApplicationExecution() {
+            @Override
+            public void execute(WebApplication application) {
+            }
+        };
+
+        final PageHandle[] handles = new PageHandle[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            Page page = new Page();
+            storage.initialize(page, request, System.currentTimeMillis() + VALID, execution);
+            storage.storeLarge(page.handle, "large", page);
+            handles[i] = page.handle;
+        }
+
+        final AtomicLong operations = new AtomicLong();
+        final AtomicLong sweeps = new AtomicLong();
+        final long end = System.currentTimeMillis() + seconds * 1000L;
+        final CountDownLatch done = new CountDownLatch(threads + 1);
+
+        new Thread() {
+            public void run() {
+                while (System.currentTimeMillis() < end) {
+                    sweep.run();
+                    sweeps.incrementAndGet();
+                }
+                done.countDown();
+            }
+        }.start();
+
+        for (int t = 0; t < threads; t++) {
+            final Random random = new Random(t);
+            new Thread() {
+                public void run() {
+                    long count = 0;
+                    while (System.currentTimeMillis() < end) {
+                        PageHandle handle = handles[random.nextInt(handles.length)];
+                        int op = random.nextInt(4);
+                        if (op == 0) {
+                            storage.update(handle, request, 
+                                    System.currentTimeMillis() + VALID, execution);
+                        } else if (op == 1) {
+                            storage.refresh(handle, request, System.currentTimeMillis() + VALID);
+                        } else if (op == 2) {
+                            storage.loadLarge(handle, "large", Object.class);
+                        } else {
+                            storage.storeLarge(handle, "large", handle);
+                        }
+                        count++;
+                    }
+                    operations.addAndGet(count);
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+
+        for (PageHandle handle : handles) {
+            storage.remove(handle, request);
+        }
+
+        if (print) {
+            System.out.println(String.format("%-10s %12.0f ops/s %8.1f sweeps/s",
+                    name, operations.get() / (double) seconds, sweeps.get() / (double) seconds));
+        }
+    }
+
+    private static HttpServletRequest createRequest() {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                StorageContentionBenchmark.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getRemoteAddr".equals(method.getName())) {
+                            return "127.0.0.1";
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application;
+
+import java.util.Set;
+
+import org.dom4j.Document;
+
+/**
+ * This interface defines a document processor that can localize the XSL-file
+ * separately for each language.
+ * 
+ * <p>
+ *  When XSL-post-processor implements this interface, a separate stylesheet is compiled
+ *  for each language returned by {@link #getLanguages()}. The stylesheet is chosen by
+ *  the language of <code>xml:lang</code>-attribute of the rendered document. The 
+ *  stylesheet processed with {@link #process(Document)} is used for other languages.
+ * </p>
+ * 
+ * @see net.contextfw.web.application.configuration.Configuration#XSL_POST_PROCESSOR
+ */
+public interface LocalizedDocumentProcessor extends DocumentProcessor {
+
+    /**
+     * Returns the languages that have their own stylesheet. 
+     * 
+     * <p>
+     *  Languages are in the same format as {@link java.util.Locale#getLanguage()}.
+     * </p>
+     */
+    Set<String> getLanguages();
+
+    /**
+     * Processes the XSL-file for given language.
+     * 
+     * <p>
+     *  When stylesheets are compiled, this method is called for each language after 
+     *  {@link #process(Document)} has processed the shared stylesheet. 
+     * </p>
+     */
+    void process(Document document, String language);
+}
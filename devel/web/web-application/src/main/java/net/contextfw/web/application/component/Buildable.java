@@ -49,4 +49,77 @@ public @interface Buildable {
      * Defines if this class is wrapped to element by its name
      */
     boolean wrap() default true;
+    
+    /**
+     * Defines if the built DOM-tree of this class can be cached and reused.
+     * 
+     * <p>
+     *  Cacheable class must be wrapped and it must have a method annotated with 
+     *  <code>CacheKey</code>. Cached tree is shared with all pages, so the key must
+     *  identify all the state that affects the build. 
+     * </p>
+     * 
+     * <p>
+     *  Components and classes having <code>BeforeBuild</code> or <code>AfterBuild</code> 
+     *  methods cannot be cached. If such an object is built inside a cacheable tree, 
+     *  the tree is built normally but it is not cached.
+     * </p>
+     * 
+     * @see CacheKey
+     */
+    boolean cacheable() default false;
+
+    /**
+     * Defines the name of the partial update that is built automatically when properties
+     * of this component change.
+     * 
+     * <p>
+     *  If set, values of attributes and elements that are built both on create and on
+     *  update are recorded when they are built. After a remote call the values are compared
+     *  to the recorded ones, and changed properties are built as a partial update with this
+     *  name. Comparison uses identity, equality and hash code, so also values that are 
+     *  modified in place are detected. If the component has been refreshed explicitly, 
+     *  changes are not tracked for that call.
+     * </p>
+     * 
+     * <p>
+     *  Change tracking is available for wrapped components only. By default changes are 
+     *  not tracked.
+     * </p>
+     * 
+     * @see Component#partialRefresh(String, String...)
+     */
+    String trackChanges() default "";
+
+    /**
+     * Defines if the DOM-tree of this class can be built concurrently with its siblings.
+     * 
+     * <p>
+     *  Independent class must be wrapped, and building it must not depend on or change state 
+     *  shared with other parts of the page. Building happens in another thread, where 
+     *  page scoped objects are available. Independent classes are built concurrently only 
+     *  when a page is created and parallel building is enabled, otherwise this has no effect.
+     * </p>
+     * 
+     * @see net.contextfw.web.application.configuration.Configuration#PARALLEL_BUILD_THREADS
+     */
+    boolean independent() default false;
+
+    /**
+     * Defines if building this component is deferred when a page is created.
+     * 
+     * <p>
+     *  Deferred component is replaced with a placeholder in the initial page, so that the page 
+     *  can be sent without waiting for the component. When the page has been loaded, the web client 
+     *  requests the deferred components immediately, and they are built and rendered as a part of 
+     *  that update. The normal template of the component is used, and its root element must have 
+     *  the id of the component.
+     * </p>
+     * 
+     * <p>
+     *  Deferred class must be a wrapped <code>Component</code>. Later builds of the component
+     *  are not deferred.
+     * </p>
+     */
+    boolean deferred() default false;
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.component;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Defines a method that returns the cache key of a cacheable buildable.
+ *
+ * <p>
+ *  The annotated method must not take any arguments. The returned key must implement
+ *  <code>equals()</code> and <code>hashCode()</code> properly. If the returned key
+ *  is <code>null</code>, the buildable is built normally without caching.
+ * </p>
+ *
+ * <p>
+ *  When cached DOM-tree is reused, the buildable is not built at all. This means that
+ *  methods annotated with <code>BeforeBuild</code> or <code>AfterBuild</code> are not called.
+ * </p>
+ *
+ * @see Buildable#cacheable()
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface CacheKey {
+}
@@ -17,11 +17,17 @@
 
 package net.contextfw.web.application.component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.component.ChangeSnapshot;
 import net.contextfw.web.application.internal.component.ComponentBuilder;
+import net.contextfw.web.application.internal.component.KeyedSnapshot;
 
 /**
  * The base class of a component
@@ -30,17 +36,21 @@ import net.contextfw.web.application.internal.component.ComponentBuilder;
 @Buildable
 public abstract class Component {
 
-    private final Set<String> partialUpdates = new HashSet<String>();
+    private Set<String> partialUpdates = null;
     private String partialUpdateName;
     private RefreshMode refreshMode = RefreshMode.NONE;
     private Component parent = null;
-    private Set<Component> children = null;
-    private Set<Component> waitingToRegister = null;
+    private List<Component> children = null;
+    private List<Component> waitingToRegister = null;
 
     private boolean enabled = true;
 
+    private transient ChangeSnapshot changeSnapshot = null;
+
+    private transient Map<String, KeyedSnapshot> keyedSnapshots = null;
+
     private enum RefreshMode {
-        NONE, PASS, UPDATE, PARTIAL_UPDATE
+        NONE, UPDATE, PARTIAL_UPDATE
     };
 
     @Attribute
@@ -102,28 +112,49 @@ public abstract class Component {
      * @return The added component
      */
     public <T extends Component> T registerChild(T el) {
-        if (children == null) {
-            children = new HashSet<Component>();
-            waitingToRegister = new HashSet<Component>();
+        Component child = el;
+        if (child.parent != this) {
+            if (children == null) {
+                children = new ArrayList<Component>(2);
+            }
+            children.add(child);
+            child.parent = this;
         }
 
-        children.add(el);
-        el.parent = this;
-
-        if (bubbleRegisterUp(el)) {
-            el.registerChildren();
+        if (bubbleRegisterUp(child)) {
+            child.registerChildren();
+            child.trackChanges();
         } else {
-            waitingToRegister.add(el);
+            if (waitingToRegister == null) {
+                waitingToRegister = new ArrayList<Component>(2);
+            }
+            waitingToRegister.add(child);
         }
         return el;
     }
 
     private void registerChildren() {
         if (waitingToRegister != null) {
-            for (Component comp : waitingToRegister) {
+            List<Component> waiting = waitingToRegister;
+            waitingToRegister = null;
+            for (Component comp : waiting) {
                 registerChild(comp);
             }
-            waitingToRegister.clear();
+        }
+    }
+
+    /**
+     * Tracks this component and its descendants that have been built with change 
+     * tracking, so that also a re-attached subtree is tracked again.
+     */
+    private void trackChanges() {
+        if (changeSnapshot != null) {
+            bubbleTrackChangesUp(this);
+        }
+        if (children != null) {
+            for (Component child : children) {
+                child.trackChanges();
+            }
         }
     }
 
@@ -147,6 +178,24 @@ public abstract class Component {
             parent.bubbleUnregisterUp(el);
         }
     }
+
+    /**
+     * For internal use only
+     */
+    protected void bubbleTrackChangesUp(Component el) {
+        if (parent != null) {
+            parent.bubbleTrackChangesUp(el);
+        }
+    }
+
+    /**
+     * For internal use only
+     */
+    protected void bubbleRefreshUp(Component el) {
+        if (parent != null) {
+            parent.bubbleRefreshUp(el);
+        }
+    }
     
     /** 
      * Removes component (this) from its parent, if parent exists.
@@ -165,6 +214,7 @@ public abstract class Component {
             children.remove(el);
             bubbleUnregisterUp(el);
             el.parent = null;
+            el.clearCascadedUpdate();
         }
     }
 
@@ -190,35 +240,61 @@ public abstract class Component {
     private void refresh(RefreshMode mode) {
         if (id != null) {
             refreshMode = mode;
-            Component p = parent;
-
-            while (p != null) {
-                if (p.refreshMode == RefreshMode.NONE) {
-                    p.refreshMode = RefreshMode.PASS;
-                    p = p.parent;
-                } else {
-                    p = null;
-                }
-            }
+            // Bubbled every time, because earlier request may have been lost while detached
+            bubbleRefreshUp(this);
         }
     }
 
     /**
      * For internal use only
+     * 
+     * <p>
+     * Builds the update of this component only. Updates of child components
+     * are built separately.
+     * </p>
      */
     public final void buildComponentUpdate(DOMBuilder domBuilder, ComponentBuilder builder) {
-
         if (refreshMode == RefreshMode.UPDATE) {
             builder.buildUpdate(domBuilder, this, "update");
         } else if (refreshMode == RefreshMode.PARTIAL_UPDATE) {
             builder.buildPartialUpdate(domBuilder, this, partialUpdateName, partialUpdates);
         }
-        if ((refreshMode == RefreshMode.PASS || refreshMode == RefreshMode.PARTIAL_UPDATE) && children != null) {
-            for (Component child : children) {
-                child.buildComponentUpdate(domBuilder, builder);
+    }
+
+    /**
+     * For internal use only
+     * 
+     * <p>
+     * Returns <code>true</code> if this component is attached under the given root
+     * and none of its ancestors is fully updated, in which case the update of this
+     * component would be redundant.
+     * </p>
+     */
+    public final boolean isUpdateRendered(Component root) {
+        for (Component p = parent; p != null; p = p.parent) {
+            if (p == root) {
+                return true;
+            } else if (p.refreshMode == RefreshMode.UPDATE) {
+                return false;
             }
         }
-        clearCascadedUpdate();
+        return false;
+    }
+
+    /**
+     * For internal use only
+     * 
+     * <p>
+     * Returns <code>true</code> if this component is attached under the given root.
+     * </p>
+     */
+    public final boolean isAttachedTo(Component root) {
+        for (Component p = parent; p != null; p = p.parent) {
+            if (p == root) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -234,7 +310,10 @@ public abstract class Component {
      * @param updates
      */
     public void partialRefresh(String buildName, String... updates) {
-        if (partialUpdates != null && refreshMode != RefreshMode.UPDATE) {
+        if (refreshMode != RefreshMode.UPDATE) {
+            if (partialUpdates == null) {
+                partialUpdates = new HashSet<String>();
+            }
             this.partialUpdateName = buildName;
             for (String partialUpdate : updates) {
                 partialUpdates.add(partialUpdate);
@@ -253,16 +332,53 @@ public abstract class Component {
         }
         refreshMode = RefreshMode.NONE;
 
-        if (children != null) {
-            for (Component child : children) {
-                child.clearCascadedUpdate();
-            }
+        if (partialUpdates != null) {
+            partialUpdates.clear();
         }
-
-        partialUpdates.clear();
         partialUpdateName = null;
     }
 
+    /**
+     * For internal use only
+     */
+    public boolean isRefreshRequested() {
+        return refreshMode == RefreshMode.UPDATE || refreshMode == RefreshMode.PARTIAL_UPDATE;
+    }
+
+    /**
+     * For internal use only
+     */
+    public ChangeSnapshot getChangeSnapshot() {
+        return changeSnapshot;
+    }
+
+    /**
+     * For internal use only
+     */
+    public void setChangeSnapshot(ChangeSnapshot changeSnapshot) {
+        this.changeSnapshot = changeSnapshot;
+        if (changeSnapshot != null) {
+            bubbleTrackChangesUp(this);
+        }
+    }
+
+    /**
+     * For internal use only
+     */
+    public KeyedSnapshot getKeyedSnapshot(String property) {
+        return keyedSnapshots == null ? null : keyedSnapshots.get(property);
+    }
+
+    /**
+     * For internal use only
+     */
+    public void setKeyedSnapshot(String property, KeyedSnapshot snapshot) {
+        if (keyedSnapshots == null) {
+            keyedSnapshots = new HashMap<String, KeyedSnapshot>(2);
+        }
+        keyedSnapshots.put(property, snapshot);
+    }
+
     /**
      * Defines if this component is enabled or disabled.
      * 
@@ -29,6 +29,7 @@ import net.contextfw.web.application.serialize.AttributeSerializer;
 import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
+import org.dom4j.Namespace;
 import org.dom4j.Node;
 
 /**
@@ -211,6 +212,28 @@ public final class DOMBuilder {
         return rv;
     }
     
+    /**
+     * Creates a new DOMBuilder whose root is not attached to this DOM-tree.
+     * 
+     * <p>
+     *  The new tree has the namespaces of this document, so it can be built separately, 
+     *  for instance in another thread, and added to this tree afterwards.
+     * </p>
+     * 
+     * @param elementName
+     *   Name of the root element
+     * @return
+     *   New DOMBuilder having the detached element as a root.
+     */
+    public DOMBuilder detached(String elementName) {
+        Element element = DocumentHelper.createElement(elementName);
+        for (Object namespace : document.getRootElement().declaredNamespaces()) {
+            element.add((Namespace) namespace);
+        }
+        return new DOMBuilder(DocumentHelper.createDocument(element), element, 
+                serializer, componentBuilder);
+    }
+
     /**
      * Returns the entire document of the DOM-tree
      */
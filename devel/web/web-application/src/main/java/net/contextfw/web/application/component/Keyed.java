@@ -0,0 +1,62 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.component;
+
+/**
+ * Denotes an item of a collection that can be updated item by item.
+ * 
+ * <p>
+ *  When an <code>@Element</code> property of a component returns an <code>Iterable</code> 
+ *  or an array whose items all implement this interface, the framework remembers the keys
+ *  and versions of the items. During an update of the component only removed, inserted, moved and
+ *  changed items are sent to the web client, instead of the whole collection.
+ * </p>
+ * 
+ * <p>
+ *  Each built item gets an attribute <code>itemId</code> of form 
+ *  <code>[componentId]_[key]</code>, which must be used as the id of the root element 
+ *  of the item in the template. Similarly, the element containing the items must have an id of form 
+ *  <code>[componentId]_[elementName]</code>. In the update template the wrapping element should be 
+ *  applied as is, so that the changes can be applied in place.
+ * </p>
+ * 
+ * <p>
+ *  <b>Note!</b> The element must be wrapped and keys must be unique within the collection.
+ * </p>
+ */
+public interface Keyed {
+
+    /**
+     * The stable key of the item
+     * 
+     * <p>
+     *  The key is used as a part of the DOM id, so it should contain only characters 
+     *  valid in ids.
+     * </p>
+     */
+    String getKey();
+
+    /**
+     * The version of the item
+     * 
+     * <p>
+     *  The version must change every time the rendered content of the item changes.
+     *  If the version stays the same, item is not re-rendered during updates.
+     * </p>
+     */
+    long getVersion();
+}
@@ -32,6 +32,7 @@ import net.contextfw.web.application.internal.configuration.BasicSettablePropert
 import net.contextfw.web.application.internal.configuration.BindablePropertyImpl;
 import net.contextfw.web.application.internal.configuration.KeyValue;
 import net.contextfw.web.application.internal.configuration.Property;
+import net.contextfw.web.application.internal.configuration.RangedIntegerPropertyImpl;
 import net.contextfw.web.application.internal.configuration.ReloadableClassPropertyImpl;
 import net.contextfw.web.application.internal.configuration.SelfKeyValueSetPropertyImpl;
 import net.contextfw.web.application.internal.configuration.SelfSettableProperty;
@@ -42,6 +43,7 @@ import net.contextfw.web.application.lifecycle.DefaultLifecycleListener;
 import net.contextfw.web.application.lifecycle.DefaultRequestInvocationFilter;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
 import net.contextfw.web.application.lifecycle.RequestInvocationFilter;
+import net.contextfw.web.application.remote.ParamConverter;
 import net.contextfw.web.application.scope.DefaultWebApplicationStorage;
 import net.contextfw.web.application.scope.WebApplicationStorage;
 import net.contextfw.web.application.serialize.AttributeJsonSerializer;
@@ -73,6 +75,8 @@ public class Configuration {
 
     private static final String KEY_ATTRIBUTE_JSON_SERIALIZER = "contextfw.attributeJsonSerializer";
 
+    private static final String KEY_PARAM_CONVERTER = "contextfw.paramConverter";
+
     private static final String KEY_REMOVAL_SCHEDULE_PERIOD = "contextfw.removalSchedulePeriod";
 
     private static final String KEY_MAX_INACTIVITY = "contextfw.maxInactivity";
@@ -99,6 +103,36 @@ public class Configuration {
     
     private static final String KEY_XML_RESPONSE_LOGGER = "contextfw.xmlResponseLogger";
     
+    private static final String KEY_LOG_XML_INTERVAL = "contextfw.logXMLInterval";
+    
+    private static final String KEY_LOG_XML_QUEUE_SIZE = "contextfw.logXMLQueueSize";
+    
+    private static final String KEY_STREAMED_RENDERING = "contextfw.streamedRendering";
+    
+    private static final String KEY_PRECOMPILED_XSL = "contextfw.precompiledXSL";
+    
+    private static final String KEY_FRAGMENT_CACHE_SIZE = "contextfw.fragmentCacheSize";
+    
+    private static final String KEY_PARALLEL_BUILD_THREADS = "contextfw.parallelBuildThreads";
+    
+    private static final String KEY_CLIENT_SIDE_RENDERING = "contextfw.clientSideRendering";
+    
+    private static final String KEY_TRANSFORMER_POOL_SIZE = "contextfw.transformerPoolSize";
+    
+    private static final String KEY_TRANSFORMER_POOL_MAX_WAIT = "contextfw.transformerPoolMaxWait";
+    
+    private static final String KEY_COMPRESSION = "contextfw.compression";
+    
+    private static final String KEY_RENDER_TIMING = "contextfw.renderTiming";
+    
+    private static final String KEY_SERVER_TIMING = "contextfw.serverTiming";
+    
+    private static final String KEY_TEMPLATE_PROFILING = "contextfw.templateProfiling";
+    
+    private static final String KEY_APPLICATION_NAME = "contextfw.applicationName";
+    
+    private static final String KEY_COMPRESSION_MIN_SIZE = "contextfw.compressionMinSize";
+    
     private static final String KEY_RELOADABLE_ROOT_PACKAGE = "contextfw.reloadableRootPackage";
 
     private static final String KEY_DEVELOPMENT_MODE = "contextfw.developmentMode";
@@ -123,6 +157,20 @@ public class Configuration {
           .set(DEVELOPMENT_MODE, true)
           .set(CLASS_RELOADING_ENABLED, true)
           .set(LOG_XML, true)
+          .set(LOG_XML_INTERVAL, 1)
+          .set(LOG_XML_QUEUE_SIZE, 100)
+          .set(STREAMED_RENDERING, false)
+          .set(PRECOMPILED_XSL, null)
+          .set(FRAGMENT_CACHE_SIZE, 1000000)
+          .set(PARALLEL_BUILD_THREADS, 0)
+          .set(CLIENT_SIDE_RENDERING, false)
+          .set(TRANSFORMER_POOL_SIZE, 16)
+          .set(TRANSFORMER_POOL_MAX_WAIT.inMillis(100))
+          .set(COMPRESSION, false)
+          .set(COMPRESSION_MIN_SIZE, 1024)
+          .set(RENDER_TIMING, false)
+          .set(SERVER_TIMING, false)
+          .set(TEMPLATE_PROFILING, 0)
           .set(RESOURCES_PREFIX, "/resources")
           .set(XML_PARAM_NAME, null)
           .set(XML_RESPONSE_LOGGER.asInstance(new DefaultXMLResponseLogger()))
@@ -143,7 +191,9 @@ public class Configuration {
           .set(JSON_DESERIALIZER, new HashSet<KeyValue<Class<?>, 
                      Class<? extends JsonDeserializer<?>>>>())
           .set(ATTRIBUTE_SERIALIZER, new HashSet<KeyValue<Class<?>, 
-                     Class<? extends AttributeSerializer<?>>>>());
+                     Class<? extends AttributeSerializer<?>>>>())
+          .set(PARAM_CONVERTER, new HashSet<KeyValue<Class<?>, 
+                     Class<? extends ParamConverter<?>>>>());
     }
     
     /**
@@ -182,8 +232,12 @@ public class Configuration {
         createProperty(Boolean.class, KEY_CLASS_RELOADING_ENABLED);
     
     /**
-     * Defines whether the XML-representation of page load or update are logged. Only suitable
-     * during development mode.
+     * Defines whether the XML-representation of page load or update are logged. 
+     * 
+     * <p>
+     *  Responses are formatted and logged in a background thread. In production the 
+     *  load can be limited with <code>LOG_XML_INTERVAL</code>.
+     * </p>
      * 
      * <p>
      *  Default: <code>true</code>
@@ -192,6 +246,267 @@ public class Configuration {
     public static final SettableProperty<Boolean> LOG_XML = 
         createProperty(Boolean.class, KEY_LOG_XML);
     
+    /**
+     * Defines how often XML-responses are logged when <code>LOG_XML</code> is enabled.
+     * 
+     * <p>
+     *  When set to <code>n</code>, every n:th response is logged.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>1</code>
+     * </p>
+     */
+    public static final SettableProperty<Integer> LOG_XML_INTERVAL = 
+        new RangedIntegerPropertyImpl(KEY_LOG_XML_INTERVAL, 1, Integer.MAX_VALUE);
+    
+    /**
+     * Defines how many XML-responses may wait for logging. 
+     * 
+     * <p>
+     *  When the queue is full, responses are dropped from the log instead of 
+     *  slowing down requests.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>100</code>
+     * </p>
+     */
+    public static final SettableProperty<Integer> LOG_XML_QUEUE_SIZE = 
+        new RangedIntegerPropertyImpl(KEY_LOG_XML_QUEUE_SIZE, 1, Integer.MAX_VALUE);
+    
+    /**
+     * Defines whether the result of XSL-transformation is written directly to the response.
+     * 
+     * <p>
+     *  When enabled the transformer output is serialized as it is produced, and the
+     *  intermediate result document is never created. This reduces memory usage
+     *  and latency on large pages. The produced HTML is identical in both modes.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>false</code>
+     * </p>
+     */
+    public static final SettableProperty<Boolean> STREAMED_RENDERING = 
+        createProperty(Boolean.class, KEY_STREAMED_RENDERING);
+    
+    /**
+     * Defines the fully qualified class name of the precompiled stylesheet.
+     * 
+     * <p>
+     *  The merged stylesheet can be compiled into translet classes during build
+     *  with <code>XSLPrecompiler</code>, which removes the stylesheet compilation 
+     *  from the first request. The translet is used only if it was compiled from
+     *  the same stylesheet that would be used at runtime. Otherwise the stylesheet
+     *  is compiled on first request as usual.
+     * </p>
+     * 
+     * <p>
+     *  When set, stylesheets are compiled with XSLTC also at runtime, so that the
+     *  output does not depend on whether precompiled translet was used or not.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>null</code>
+     * </p>
+     * 
+     * @see net.contextfw.web.application.util.XSLPrecompiler
+     */
+    public static final SettableProperty<String> PRECOMPILED_XSL = 
+        createProperty(String.class, KEY_PRECOMPILED_XSL);
+    
+    /**
+     * Defines the maximum size of the cache for DOM-trees of cacheable buildables.
+     * 
+     * <p>
+     *  The size is the approximate number of characters in cached trees. When the limit
+     *  is reached least recently used trees are evicted. Value <code>0</code> disables
+     *  caching.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>1000000</code>
+     * </p>
+     * 
+     * @see net.contextfw.web.application.component.Buildable#cacheable()
+     */
+    public static final SettableProperty<Integer> FRAGMENT_CACHE_SIZE = 
+        new RangedIntegerPropertyImpl(KEY_FRAGMENT_CACHE_SIZE, 0, Integer.MAX_VALUE);
+    
+    /**
+     * Defines the number of threads used to build independent components when a page is created.
+     * 
+     * <p>
+     *  When greater than <code>0</code>, wrapped components marked as independent are built 
+     *  concurrently in a shared thread pool and added to the DOM-tree in document order. 
+     *  The page scope is visible to the building threads. Value <code>0</code> disables 
+     *  parallel building.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>0</code>
+     * </p>
+     * 
+     * @see net.contextfw.web.application.component.Buildable#independent()
+     */
+    public static final SettableProperty<Integer> PARALLEL_BUILD_THREADS = 
+        new RangedIntegerPropertyImpl(KEY_PARALLEL_BUILD_THREADS, 0, Integer.MAX_VALUE);
+    
+    /**
+     * Defines whether XSL-transformations are done by the browser instead of the server.
+     * 
+     * <p>
+     *  When enabled, page loads and updates are sent as XML and the merged stylesheet is
+     *  served from <code>RESOURCES_PREFIX + ".xsl"</code>. Page loads refer to the stylesheet
+     *  with <code>xml-stylesheet</code> processing instruction and updates are transformed
+     *  by <code>contextfw.js</code>. The stylesheet url is versioned so browsers can cache it.
+     * </p>
+     * 
+     * <p>
+     *  Browser transformations support only XSLT 1.0 without extensions.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>false</code>
+     * </p>
+     */
+    public static final SettableProperty<Boolean> CLIENT_SIDE_RENDERING = 
+        createProperty(Boolean.class, KEY_CLIENT_SIDE_RENDERING);
+    
+    /**
+     * Defines the maximum number of pooled XSL-transformers.
+     * 
+     * <p>
+     *  Transformers are shared by all threads. If pages are localized with separate
+     *  stylesheets, each stylesheet has its own pool.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>16</code>
+     * </p>
+     */
+    public static final SettableProperty<Integer> TRANSFORMER_POOL_SIZE = 
+        new RangedIntegerPropertyImpl(KEY_TRANSFORMER_POOL_SIZE, 1, Integer.MAX_VALUE);
+    
+    /**
+     * Defines how long rendering waits for a pooled transformer when all are in use.
+     * 
+     * <p>
+     *  If no transformer is returned to the pool in time, a temporary transformer is 
+     *  created. Value <code>0</code> creates it immediately.
+     * </p>
+     * 
+     * <p>
+     *  Default: 100 milliseconds
+     * </p>
+     */
+    public static final TemporalProperty TRANSFORMER_POOL_MAX_WAIT = 
+        createTemporalProperty(KEY_TRANSFORMER_POOL_MAX_WAIT);
+    
+    /**
+     * Defines whether responses are compressed.
+     * 
+     * <p>
+     *  When enabled, pages, updates, resource responses and javascript- and css-files are
+     *  compressed with gzip or deflate if browser accepts it. Javascript- and css-files 
+     *  are compressed only once and served from memory.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>false</code>
+     * </p>
+     */
+    public static final SettableProperty<Boolean> COMPRESSION = 
+        createProperty(Boolean.class, KEY_COMPRESSION);
+    
+    /**
+     * Defines the minimum size of response in bytes that is compressed.
+     * 
+     * <p>
+     *  Compressing small responses does not save much bandwidth, so they are sent 
+     *  uncompressed.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>1024</code>
+     * </p>
+     */
+    public static final SettableProperty<Integer> COMPRESSION_MIN_SIZE = 
+        new RangedIntegerPropertyImpl(KEY_COMPRESSION_MIN_SIZE, 0, Integer.MAX_VALUE);
+    
+    /**
+     * Defines whether the phases of page loads and updates are timed.
+     * 
+     * <p>
+     *  When enabled, time spent waiting for the page, initializing the view or invoking 
+     *  the remoted method, building the DOM-tree, transforming and writing is measured. 
+     *  Timings are aggregated by view and remoted method and they are available through 
+     *  JMX as <code>net.contextfw:type=RenderStatistics</code>, see 
+     *  <code>APPLICATION_NAME</code>. The state of transformer pools is available as 
+     *  <code>net.contextfw:type=Transformers</code> and the statistics of the fragment cache 
+     *  as <code>net.contextfw:type=FragmentCache</code>.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>false</code>
+     * </p>
+     */
+    public static final SettableProperty<Boolean> RENDER_TIMING = 
+        createProperty(Boolean.class, KEY_RENDER_TIMING);
+    
+    /**
+     * Defines whether render timings are sent to browser in <code>Server-Timing</code>-header.
+     * 
+     * <p>
+     *  Requires <code>RENDER_TIMING</code>. Header is written before the content, so it
+     *  contains only phases that precede the XSL-transformation.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>false</code>
+     * </p>
+     */
+    public static final SettableProperty<Boolean> SERVER_TIMING = 
+        createProperty(Boolean.class, KEY_SERVER_TIMING);
+    
+    /**
+     * Defines how often XSL-transformations are profiled by template.
+     * 
+     * <p>
+     *  When set to <code>n</code>, every n:th transformation is run with the interpretive 
+     *  processor and the time spent in each template is recorded. Report is available
+     *  through JMX as <code>net.contextfw:type=TemplateProfiler</code>, see 
+     *  <code>APPLICATION_NAME</code>. Profiled 
+     *  transformations are several times slower, so in production the interval should 
+     *  be large.
+     * </p>
+     * 
+     * <p>
+     *  Default: <code>0</code> (disabled)
+     * </p>
+     */
+    public static final SettableProperty<Integer> TEMPLATE_PROFILING = 
+        new RangedIntegerPropertyImpl(KEY_TEMPLATE_PROFILING, 0, Integer.MAX_VALUE);
+    
+    /**
+     * Defines the name of the application in JMX.
+     * 
+     * <p>
+     *  Render statistics, transformer pools, fragment cache and template profiler are 
+     *  registered with key <code>application=&lt;name&gt;</code>, so that applications in 
+     *  the same server have their own beans. A redeployed application replaces the beans 
+     *  of its previous deployment. If name is not set, the first free number is used 
+     *  instead and beans of previous deployments are left registered.
+     * </p>
+     * 
+     * <p>
+     *  Default: not set
+     * </p>
+     */
+    public static final SettableProperty<String> APPLICATION_NAME = 
+        createProperty(String.class, KEY_APPLICATION_NAME);
+    
     /**
      * Defines the prefix for javascript- and css-files that are loaded with each page.
      * 
@@ -436,6 +751,20 @@ public class Configuration {
         = new SelfKeyValueSetPropertyImpl<Class<?>, 
             Class<? extends AttributeSerializer<?>>>(KEY_ATTRIBUTE_SERIALIZER);
 
+    /**
+     * Binds a new converter for path parameters, request parameters and remoted method 
+     * arguments
+     * 
+     * <p>
+     *  Primitives, their wrappers, enums and classes having a String-parametrized
+     *  constructor are converted without additional configuration. 
+     * </p>
+     */
+    public static final SelfKeyValueSetProperty<Class<?>, 
+    Class<? extends ParamConverter<?>>> PARAM_CONVERTER
+        = new SelfKeyValueSetPropertyImpl<Class<?>, 
+            Class<? extends ParamConverter<?>>>(KEY_PARAM_CONVERTER);
+
     
     private final Map<String, Object> values;
 
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import java.io.StringWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.contextfw.org.dom4j.io.XMLWriter;
+import net.contextfw.web.application.development.XMLResponseLogger;
+
+import org.dom4j.Document;
+import org.dom4j.io.OutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Formats and logs XML-responses in a background thread.
+ * 
+ * <p>
+ *  Only every n:th response is logged. Responses are queued as documents without 
+ *  copying, so a document must not be modified after it has been logged. If the queue
+ *  is full, the response is dropped instead of blocking the request. The number of
+ *  dropped responses is logged when the queue has room again.
+ * </p>
+ */
+public class AsyncResponseLogger {
+
+    private final Logger logger = LoggerFactory.getLogger(AsyncResponseLogger.class);
+
+    private final XMLResponseLogger delegate;
+
+    private final int interval;
+
+    private final AtomicLong responses = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong logged = new AtomicLong();
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param delegate
+     *      The logger that receives formatted responses
+     * @param interval
+     *      Every n:th response is logged
+     * @param queueSize
+     *      The maximum number of responses waiting to be logged
+     */
+    public AsyncResponseLogger(XMLResponseLogger delegate, int interval, int queueSize) {
+        this.delegate = delegate;
+        this.interval = interval;
+        executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "contextfw-xml-logger");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        dropped.incrementAndGet();
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the document for logging if it is sampled.
+     */
+    public void log(final Document document) {
+        if (responses.getAndIncrement() % interval == 0) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(document);
+                }
+            });
+        }
+    }
+
+    private void write(Document document) {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            logger.warn("{} XML-responses were dropped from the log", count);
+        }
+        try {
+            StringWriter xml = new StringWriter();
+            new XMLWriter(xml, OutputFormat.createPrettyPrint()).write(document);
+            delegate.logXML(xml.toString());
+            logged.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("Could not log XML-response", e);
+        }
+    }
+
+    /**
+     * Returns the number of responses that have been logged
+     */
+    public long getLoggedCount() {
+        return logged.get();
+    }
+
+    /**
+     * Returns the number of responses that have been dropped and not yet reported
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -17,9 +17,9 @@
 
 package net.contextfw.web.application.internal;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -27,25 +27,37 @@ import javax.servlet.http.HttpServletRequest;
 import net.contextfw.web.application.WebApplicationException;
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.internal.util.ClassScanner;
+import net.contextfw.web.application.internal.util.ParamConverters;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
 import net.contextfw.web.application.remote.Delayed;
+import net.contextfw.web.application.remote.ParamConverter;
 import net.contextfw.web.application.remote.ResourceBody;
 
-import com.google.gson.Gson;
-
 public class ComponentUpdateHandler {
 
-    private final Gson gson;
+    private final List<ParamConverter<Object>> paramConverters;
     private final String key;
     private final Method method;
     private final Delayed delayed;
     private final boolean resource;
     private final LifecycleListener listener;
 
-    public ComponentUpdateHandler(String key, Method method, Gson gson, LifecycleListener listener) {
+    /**
+     * Parameter types depend on the type arguments of the component class, so handlers are 
+     * created per component class.
+     */
+    public ComponentUpdateHandler(String key, 
+                                  Class<? extends Component> componentClass, 
+                                  Method method, 
+                                  ParamConverters converters, 
+                                  LifecycleListener listener) {
         this.key = key;
         this.method = method;
-        this.gson = gson;
+        this.method.setAccessible(true);
+        this.paramConverters = new ArrayList<ParamConverter<Object>>();
+        for (Class<?> type : ClassScanner.getParamTypes(componentClass, method)) {
+            paramConverters.add(converters.getJsonConverter(type));
+        }
         this.delayed = method.getAnnotation(Delayed.class);
         this.resource = method.getAnnotation(ResourceBody.class) != null;
         this.listener = listener;
@@ -74,32 +86,17 @@ public class ComponentUpdateHandler {
         return null;
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     private Object invokeWithParams(Component rootComponent, Component component, HttpServletRequest request)
             throws IllegalAccessException, InstantiationException {
 
-        List<Class<?>> paramTypes = ClassScanner.getParamTypes(component.getClass(), method);
-        Object[] params = new Object[paramTypes.size()];
+        Object[] params = new Object[paramConverters.size()];
         RuntimeException thrown = null;
         Object returnVal = null;
         try {
-            for (int c = 0; c < paramTypes.size(); c++) {
-    
+            for (int c = 0; c < params.length; c++) {
                 String value = request.getParameter("p" + c);
                 if (value != null) {
-                    Class<?> type = paramTypes.get(c);
-                    try {
-                        if (type.isEnum()) {
-                            params[c] = Enum.valueOf((Class<Enum>) type, value);
-                        } else {
-                            Constructor<?> constructor = type.getConstructor(String.class);
-                            params[c] = constructor.newInstance(value);
-                        }
-                    } catch (NoSuchMethodException e) {
-                        params[c] = gson.fromJson(value, type);
-                    } catch (InvocationTargetException ie) {
-                        throw new WebApplicationException(ie);
-                    }
+                    params[c] = paramConverters.get(c).convert(value);
                 }
             }
             if (listener.beforeUpdate(component, method, params)) {
@@ -18,26 +18,118 @@
 package net.contextfw.web.application.internal;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.contextfw.web.application.component.Component;
+import net.contextfw.web.application.configuration.Configuration;
 import net.contextfw.web.application.internal.util.ClassScanner;
+import net.contextfw.web.application.internal.util.ParamConverters;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
+import net.contextfw.web.application.remote.Remoted;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+/**
+ * Dispatch table of remoted methods.
+ * 
+ * <p>
+ *  Handlers for all remoted methods of a component class are created at once, either when
+ *  production classes are preloaded or when the class is first updated. After that handlers
+ *  are looked up without locking. In development mode handlers are created for each update,
+ *  so that reloaded classes are not retained.
+ * </p>
+ */
 @Singleton
 public class ComponentUpdateHandlerFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ComponentUpdateHandlerFactory.class);
     
-    private Gson gson;
+    private final ConcurrentMap<Class<?>, Map<String, ComponentUpdateHandler>> handlers =
+        new ConcurrentHashMap<Class<?>, Map<String, ComponentUpdateHandler>>();
+
+    private final ParamConverters converters;
     
     private final LifecycleListener listener;
+
+    private final boolean developmentMode;
     
     @Inject
-    public ComponentUpdateHandlerFactory(Gson gson, LifecycleListener listener) {
-        this.gson = gson;
+    public ComponentUpdateHandlerFactory(ParamConverters converters, LifecycleListener listener,
+            Configuration configuration) {
+        this.converters = converters;
         this.listener = listener;
+        this.developmentMode = configuration.get(Configuration.DEVELOPMENT_MODE);
+    }
+
+    /**
+     * Returns the handler for the remoted method or <code>null</code> if component does
+     * not have remoted method with the name.
+     */
+    public ComponentUpdateHandler getHandler(Class<? extends Component> elClass, String methodName) {
+        if (developmentMode) {
+            return createHandler(elClass, methodName);
+        }
+        Map<String, ComponentUpdateHandler> classHandlers = handlers.get(elClass);
+        if (classHandlers == null) {
+            classHandlers = createHandlers(elClass);
+            Map<String, ComponentUpdateHandler> existing = handlers.putIfAbsent(elClass, classHandlers);
+            if (existing != null) {
+                classHandlers = existing;
+            }
+        }
+        return classHandlers.get(methodName);
+    }
+
+    /**
+     * Creates handlers for the remoted methods of components beforehand.
+     * 
+     * @return
+     *      The number of created handlers
+     */
+    @SuppressWarnings("unchecked")
+    public int preload(Iterable<Class<?>> classes) {
+        int count = 0;
+        if (!developmentMode) {
+            for (Class<?> cl : classes) {
+                if (Component.class.isAssignableFrom(cl) && !handlers.containsKey(cl)) {
+                    try {
+                        Map<String, ComponentUpdateHandler> classHandlers = 
+                            createHandlers((Class<? extends Component>) cl);
+                        handlers.putIfAbsent(cl, classHandlers);
+                        count += classHandlers.size();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Could not preload remoted methods of " + cl.getName(), e);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private Map<String, ComponentUpdateHandler> createHandlers(Class<? extends Component> elClass) {
+        Map<String, ComponentUpdateHandler> classHandlers = 
+            new HashMap<String, ComponentUpdateHandler>();
+        Class<?> current = elClass;
+        while (Component.class.isAssignableFrom(current)) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getAnnotation(Remoted.class) != null 
+                        && !classHandlers.containsKey(method.getName())) {
+                    ComponentUpdateHandler handler = createHandler(elClass, method.getName());
+                    if (handler != null) {
+                        classHandlers.put(method.getName(), handler);
+                    }
+                }
+            }
+            current = current.getSuperclass();
+        }
+        return classHandlers;
     }
     
     public ComponentUpdateHandler createHandler(Class<? extends Component> elClass, String methodName) {
@@ -45,11 +137,11 @@ public class ComponentUpdateHandlerFactory {
         Method method = ClassScanner.findMethodForName(elClass, methodName);
 
         if (method != null) {
-            return new ComponentUpdateHandler(
-                    ComponentUpdateHandler.getKey(elClass, methodName), method, gson, listener);
+            return new ComponentUpdateHandler(ComponentUpdateHandler.getKey(elClass, methodName), 
+                    elClass, method, converters, listener);
         }
         else {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.sax.SAXResult;
+
+import org.dom4j.Document;
+import org.dom4j.io.SAXWriter;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * Serializes SAX-events directly to a writer.
+ *
+ * <p>
+ *  The output is identical to the output of <code>HTMLWriter</code> using the compact XHTML-format
+ *  that <code>WebResponder</code> uses, but no intermediate document is needed. This makes it possible
+ *  to use this class as a target of XSL-transformation.
+ * </p>
+ */
+public class HTMLContentWriter implements ContentHandler, LexicalHandler {
+
+    private static final String[] OMIT_CLOSE = {
+        "AREA", "BASE", "BR", "COL", "HR", "IMG", "INPUT", "LINK", "META", "P", "PARAM"
+    };
+
+    private static final String[] TEXT_ESCAPES = new String[128];
+
+    private static final String[] ATTRIBUTE_ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 32; c++) {
+            if (c != '\t' && c != '\n' && c != '\r') {
+                TEXT_ESCAPES[c] = "&#" + c + ";";
+            }
+        }
+        TEXT_ESCAPES['<'] = "&lt;";
+        TEXT_ESCAPES['>'] = "&gt;";
+        TEXT_ESCAPES['&'] = "&amp;";
+        System.arraycopy(TEXT_ESCAPES, 0, ATTRIBUTE_ESCAPES, 0, 128);
+        ATTRIBUTE_ESCAPES['"'] = "&quot;";
+    }
+
+    private final Writer writer;
+
+    // Namespaces declared in current scope as prefix-uri -pairs
+    private final List<String> namespaces = new ArrayList<String>();
+
+    private final List<Integer> namespaceMarks = new ArrayList<Integer>();
+
+    private final List<String> pendingMappings = new ArrayList<String>();
+
+    private String openName = null;
+
+    private int depth = 0;
+
+    private boolean lastWasText = false;
+
+    private char lastChar = 'a';
+
+    private boolean inCDATA = false;
+
+    public HTMLContentWriter(Writer writer) {
+        this.writer = writer;
+        namespaces.add("");
+        namespaces.add("");
+    }
+
+    /**
+     * Wraps this writer into a result that can be given to transformer
+     */
+    public SAXResult toResult() {
+        SAXResult result = new SAXResult(this);
+        result.setLexicalHandler(this);
+        return result;
+    }
+
+    public void writeDocType(String name, String publicId, String systemId) throws IOException {
+        writer.write("<!DOCTYPE ");
+        writer.write(name);
+        if (publicId != null && publicId.length() > 0) {
+            writer.write(" PUBLIC \"");
+            writer.write(publicId);
+            writer.write("\"");
+        }
+        if (systemId != null && systemId.length() > 0) {
+            if (publicId == null || publicId.length() == 0) {
+                writer.write(" SYSTEM");
+            }
+            writer.write(" \"");
+            writer.write(systemId);
+            writer.write("\"");
+        }
+        writer.write(">");
+    }
+
+    /**
+     * Writes an already transformed document
+     */
+    public void write(Document document) throws IOException {
+        try {
+            new SAXWriter(this, this).write(document);
+        } catch (SAXException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        pendingMappings.add(prefix == null ? "" : prefix);
+        pendingMappings.add(uri == null ? "" : uri);
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        try {
+            beforeNode(true);
+            writer.write('<');
+            writer.write(qName);
+
+            namespaceMarks.add(namespaces.size());
+
+            boolean hasNamespaceNodes = !pendingMappings.isEmpty();
+
+            int colon = qName.indexOf(':');
+            String prefix = colon == -1 ? "" : qName.substring(0, colon);
+            declareNamespace(prefix, uri == null ? "" : uri);
+
+            for (int i = 0; i < pendingMappings.size(); i += 2) {
+                declareNamespace(pendingMappings.get(i), pendingMappings.get(i + 1));
+            }
+            pendingMappings.clear();
+
+            for (int i = 0; i < atts.getLength(); i++) {
+                String attName = atts.getQName(i);
+                if (!attName.startsWith("xmlns")) {
+                    int attColon = attName.indexOf(':');
+                    if (attColon != -1) {
+                        String attPrefix = attName.substring(0, attColon);
+                        if (!"xml".equals(attPrefix)) {
+                            declareNamespace(attPrefix, atts.getURI(i));
+                        }
+                    }
+                    writer.write(' ');
+                    writer.write(attName);
+                    writer.write("=\"");
+                    writeEscaped(atts.getValue(i), ATTRIBUTE_ESCAPES);
+                    writer.write('"');
+                }
+            }
+
+            if (hasNamespaceNodes) {
+                writer.write('>');
+                openName = null;
+            } else {
+                openName = qName;
+            }
+            depth++;
+            lastWasText = false;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        try {
+            if (openName != null) {
+                if (isOmitClose(qName)) {
+                    writer.write(" />");
+                } else {
+                    writer.write("></");
+                    writer.write(qName);
+                    writer.write('>');
+                }
+                openName = null;
+            } else {
+                writer.write("</");
+                writer.write(qName);
+                writer.write('>');
+            }
+            depth--;
+            lastWasText = false;
+
+            int mark = namespaceMarks.remove(namespaceMarks.size() - 1);
+            while (namespaces.size() > mark) {
+                namespaces.remove(namespaces.size() - 1);
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (length <= 0 || depth == 0) {
+            return;
+        }
+        try {
+            closeStartTag();
+            if (inCDATA) {
+                writer.write(ch, start, length);
+            } else {
+                writeEscaped(ch, start, length, TEXT_ESCAPES);
+                lastWasText = true;
+                lastChar = ch[start + length - 1];
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        try {
+            beforeNode(depth > 0);
+            writer.write("<?");
+            writer.write(target);
+            writer.write(' ');
+            writer.write(data);
+            writer.write("?>");
+            lastWasText = false;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+        try {
+            beforeNode(depth > 0);
+            writer.write("<!--");
+            writer.write(ch, start, length);
+            writer.write("-->");
+            lastWasText = false;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void startCDATA() throws SAXException {
+        try {
+            beforeNode(true);
+            writer.write("<![CDATA[");
+            inCDATA = true;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endCDATA() throws SAXException {
+        try {
+            writer.write("]]>");
+            inCDATA = false;
+            lastWasText = false;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+    }
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) throws SAXException {
+    }
+
+    @Override
+    public void endDTD() throws SAXException {
+    }
+
+    @Override
+    public void startEntity(String name) throws SAXException {
+    }
+
+    @Override
+    public void endEntity(String name) throws SAXException {
+    }
+
+    /**
+     * Text followed by a non-text node is padded if it ended with whitespace
+     */
+    private void beforeNode(boolean pad) throws IOException {
+        closeStartTag();
+        if (pad && lastWasText && Character.isWhitespace(lastChar)) {
+            writer.write(' ');
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (openName != null) {
+            writer.write('>');
+            openName = null;
+        }
+    }
+
+    private void declareNamespace(String prefix, String uri) throws IOException {
+        if ("xml".equals(prefix) || isDeclared(prefix, uri)) {
+            return;
+        }
+        namespaces.add(prefix);
+        namespaces.add(uri);
+        if (prefix.length() > 0) {
+            writer.write(" xmlns:");
+            writer.write(prefix);
+            writer.write("=\"");
+        } else {
+            writer.write(" xmlns=\"");
+        }
+        writer.write(uri);
+        writer.write('"');
+    }
+
+    private boolean isDeclared(String prefix, String uri) {
+        for (int i = namespaces.size() - 2; i >= 0; i -= 2) {
+            if (namespaces.get(i).equals(prefix)) {
+                return namespaces.get(i + 1).equals(uri);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOmitClose(String name) {
+        if (name.length() > 5) {
+            return false;
+        }
+        for (String omit : OMIT_CLOSE) {
+            if (omit.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeEscaped(String text, String[] escapes) throws IOException {
+        int last = 0;
+        int end = text.length();
+        for (int i = 0; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 128 && escapes[c] != null) {
+                writer.write(text, last, i - last);
+                writer.write(escapes[c]);
+                last = i + 1;
+            }
+        }
+        writer.write(text, last, end - last);
+    }
+
+    private void writeEscaped(char[] ch, int start, int length, String[] escapes) throws IOException {
+        int last = start;
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            char c = ch[i];
+            if (c < 128 && escapes[c] != null) {
+                writer.write(ch, last, i - last);
+                writer.write(escapes[c]);
+                last = i + 1;
+            }
+        }
+        writer.write(ch, last, end - last);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+
+import net.contextfw.web.application.WebApplicationException;
+
+/**
+ * Bounded pool of transformers that can be used from any thread.
+ * 
+ * <p>
+ *  At most <code>size</code> transformers are pooled. When all of them are in use,
+ *  the caller waits for at most <code>maxWait</code> milliseconds. If no transformer 
+ *  is returned during that time, a temporary transformer is created and it is 
+ *  discarded after use. Transformers are reset when they are returned.
+ * </p>
+ */
+public class TransformerPool {
+
+    private final Templates templates;
+
+    private final int size;
+
+    private final long maxWait;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedQueue<Transformer> idle = 
+            new ConcurrentLinkedQueue<Transformer>();
+
+    private final Set<Transformer> overflowing = 
+            Collections.newSetFromMap(new ConcurrentHashMap<Transformer, Boolean>());
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final AtomicLong overflows = new AtomicLong();
+
+    private final AtomicLong waits = new AtomicLong();
+
+    private final AtomicLong waitTime = new AtomicLong();
+
+    public TransformerPool(Templates templates, int size, long maxWait) {
+        this.templates = templates;
+        this.size = size;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(size);
+    }
+
+    public Transformer acquire() {
+        if (!permits.tryAcquire() && !await()) {
+            overflows.incrementAndGet();
+            Transformer transformer = newTransformer();
+            overflowing.add(transformer);
+            return transformer;
+        }
+        Transformer transformer = idle.poll();
+        if (transformer == null) {
+            try {
+                transformer = newTransformer();
+                created.incrementAndGet();
+            } catch (WebApplicationException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return transformer;
+    }
+
+    private boolean await() {
+        if (maxWait <= 0) {
+            return false;
+        }
+        waits.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    public void release(Transformer transformer) {
+        if (overflowing.remove(transformer)) {
+            return;
+        }
+        try {
+            // Some implementations keep parameters on reset
+            transformer.clearParameters();
+            transformer.reset();
+            idle.offer(transformer);
+        } catch (UnsupportedOperationException e) {
+            // Reset is not supported, transformer is discarded 
+            created.decrementAndGet();
+        }
+        permits.release();
+    }
+
+    private Transformer newTransformer() {
+        try {
+            return templates.newTransformer();
+        } catch (TransformerConfigurationException e) {
+            throw new WebApplicationException("Error while instantiating transformer", e);
+        }
+    }
+
+    /**
+     * Returns the maximum number of pooled transformers
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of pooled transformers in use
+     */
+    public int getActive() {
+        return size - permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of created pooled transformers
+     */
+    public int getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Returns the number of temporary transformers created because pool was exhausted
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    /**
+     * Returns the number of times callers have waited for a transformer
+     */
+    public long getWaits() {
+        return waits.get();
+    }
+
+    /**
+     * Returns the total time callers have waited for a transformer in milliseconds
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * State of the transformer pool of one stylesheet.
+ */
+public class TransformerPoolStatistics {
+
+    private final String language;
+    private final int size;
+    private final int active;
+    private final int created;
+    private final long overflows;
+    private final long waits;
+    private final long waitTimeMillis;
+
+    @ConstructorProperties({ "language", "size", "active", "created", "overflows", 
+        "waits", "waitTimeMillis" })
+    public TransformerPoolStatistics(String language, int size, int active, int created, 
+            long overflows, long waits, long waitTimeMillis) {
+        this.language = language;
+        this.size = size;
+        this.active = active;
+        this.created = created;
+        this.overflows = overflows;
+        this.waits = waits;
+        this.waitTimeMillis = waitTimeMillis;
+    }
+
+    /**
+     * Returns the language of the stylesheet or <code>null</code> for the default stylesheet
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public long getOverflows() {
+        return overflows;
+    }
+
+    public long getWaits() {
+        return waits;
+    }
+
+    public long getWaitTimeMillis() {
+        return waitTimeMillis;
+    }
+}
@@ -17,8 +17,24 @@
 
 package net.contextfw.web.application.internal;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import javax.xml.transform.Result;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -26,38 +42,296 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamSource;
 
 import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.timing.TemplateProfiler;
 
 import org.dom4j.Document;
 import org.dom4j.io.DocumentResult;
 import org.dom4j.io.DocumentSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class Transformers {
+/**
+ * Pooled transformers of the default and localized stylesheets.
+ * 
+ * <p>
+ *  When render timing is enabled, the state of the pools is registered to platform 
+ *  MBean server as <code>net.contextfw:type=Transformers,application=&lt;name&gt;</code>.
+ * </p>
+ */
+public class Transformers implements TransformersMXBean {
+
+    private static final String XSLTC_FACTORY = 
+            "org.apache.xalan.xsltc.trax.TransformerFactoryImpl";
+
+    private static final String DIGEST_SUFFIX = ".digest";
+
+    private static final int DEFAULT_POOL_SIZE = 16;
+
+    private static final long DEFAULT_MAX_WAIT = 100;
 
     private static final TransformerFactory FACTORY =
             TransformerFactory.newInstance();
 
+    private Logger logger = LoggerFactory.getLogger(Transformers.class);
+
     private boolean initialized = false;
 
-    private TransformersThreadLocal transformers;
+    private TransformerPool transformers;
+
+    private Map<String, TransformerPool> localizedTransformers = Collections.emptyMap();
+
+    private final int poolSize;
+
+    private final long maxWait;
+
+    private final TemplateProfiler profiler;
+
+    private Map<String, Templates> profiledTemplates = Collections.emptyMap();
 
     public Transformers() {
+        this(DEFAULT_POOL_SIZE, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * @param poolSize
+     *      The maximum number of pooled transformers for each stylesheet
+     * @param maxWait
+     *      The maximum time in milliseconds to wait for a pooled transformer
+     *  
+     * @see TransformerPool
+     */
+    public Transformers(int poolSize, long maxWait) {
+        this(poolSize, maxWait, null);
+    }
+
+    /**
+     * @param profiler
+     *      Profiler for sampled transformations or <code>null</code>
+     *      
+     * @see #Transformers(int, long)
+     */
+    public Transformers(int poolSize, long maxWait, TemplateProfiler profiler) {
+        this.poolSize = poolSize;
+        this.maxWait = maxWait;
+        this.profiler = profiler != null && profiler.isEnabled() ? profiler : null;
     }
 
     public void initialize(Document xsltDocument) {
+        initialize(xsltDocument, null);
+    }
+
+    /**
+     * Initializes transformers using precompiled translet if possible.
+     * 
+     * <p>
+     *  Translet is used only if its digest matches the given stylesheet. Otherwise
+     *  stylesheet is compiled at runtime with the same compiler.
+     * </p>
+     * 
+     * @param xsltDocument
+     *      The merged stylesheet
+     * @param transletName
+     *      Fully qualified name of the precompiled translet or <code>null</code>
+     */
+    public void initialize(Document xsltDocument, String transletName) {
+        initialize(xsltDocument, Collections.<String, Document>emptyMap(), transletName);
+    }
+
+    /**
+     * Initializes transformers with a separate stylesheet for each language.
+     * 
+     * <p>
+     *  Documents whose <code>xml:lang</code> has no own stylesheet are transformed with
+     *  the default stylesheet. Translets of localized stylesheets are named with 
+     *  language as suffix, for instance <code>Stylesheet_fi</code>.
+     * </p>
+     * 
+     * @param xsltDocument
+     *      The default stylesheet
+     * @param localized
+     *      Localized stylesheets by language
+     * @param transletName
+     *      Fully qualified name of the precompiled translet or <code>null</code>
+     */
+    public void initialize(Document xsltDocument, 
+                           Map<String, Document> localized, 
+                           String transletName) {
+        
+        Map<String, TransformerPool> localizedTransformers = 
+                new HashMap<String, TransformerPool>();
+        
+        for (Map.Entry<String, Document> entry : localized.entrySet()) {
+            localizedTransformers.put(entry.getKey(), new TransformerPool(
+                    compile(entry.getValue(), getTransletName(transletName, entry.getKey())),
+                    poolSize, maxWait));
+        }
+        this.localizedTransformers = localizedTransformers;
+        transformers = new TransformerPool(compile(xsltDocument, transletName), 
+                poolSize, maxWait);
+        
+        if (profiler != null) {
+            Map<String, Templates> profiledTemplates = new HashMap<String, Templates>();
+            profiledTemplates.put(null, profiler.compile(xsltDocument.asXML()));
+            for (Map.Entry<String, Document> entry : localized.entrySet()) {
+                profiledTemplates.put(entry.getKey(), 
+                        profiler.compile(entry.getValue().asXML()));
+            }
+            this.profiledTemplates = profiledTemplates;
+        }
+        initialized = true;
+    }
+
+    private Templates compile(Document xsltDocument, String transletName) {
+        String xsl = xsltDocument.asXML();
         try {
-            transformers = new TransformersThreadLocal(
-                    FACTORY.newTemplates(new StreamSource(
-                                    new StringReader(xsltDocument.asXML()))));
-            initialized = true;
+            if (transletName == null) {
+                return FACTORY.newTemplates(new StreamSource(new StringReader(xsl)));
+            } else if (isTransletValid(transletName, digest(xsl))) {
+                TransformerFactory factory = createTransletFactory(transletName);
+                factory.setAttribute("use-classpath", Boolean.TRUE);
+                logger.debug("Using precompiled translet {}", transletName);
+                return factory.newTemplates(new StreamSource(new StringReader(xsl)));
+            } else {
+                logger.info("Translet {} is missing or stale, compiling stylesheet", transletName);
+                return createTransletFactory(transletName)
+                        .newTemplates(new StreamSource(new StringReader(xsl)));
+            }
         } catch (TransformerConfigurationException e) {
             throw new WebApplicationException(
                     "Could not get transformer", e);
         }
     }
 
+    private static String getTransletName(String transletName, String language) {
+        return transletName == null ? null : transletName + "_" + language;
+    }
+
+    /**
+     * Compiles the stylesheet into translet classes and writes them with 
+     * the stylesheet digest into given directory.
+     */
+    public void precompile(Document xsltDocument, String transletName, File directory) {
+        precompile(xsltDocument, Collections.<String, Document>emptyMap(), 
+                transletName, directory);
+    }
+
+    /**
+     * Compiles the default and localized stylesheets into translet classes.
+     * 
+     * @see #initialize(Document, Map, String)
+     */
+    public void precompile(Document xsltDocument, 
+                           Map<String, Document> localized,
+                           String transletName, 
+                           File directory) {
+        
+        precompileTranslet(xsltDocument, transletName, directory);
+        for (Map.Entry<String, Document> entry : localized.entrySet()) {
+            precompileTranslet(entry.getValue(), 
+                    getTransletName(transletName, entry.getKey()), directory);
+        }
+    }
+
+    private void precompileTranslet(Document xsltDocument, String transletName, File directory) {
+        String xsl = xsltDocument.asXML();
+        try {
+            TransformerFactory factory = createTransletFactory(transletName);
+            factory.setAttribute("generate-translet", Boolean.TRUE);
+            factory.setAttribute("destination-directory", directory.getAbsolutePath());
+            factory.newTemplates(new StreamSource(new StringReader(xsl)));
+
+            File digestFile = new File(directory, 
+                    transletName.replace('.', File.separatorChar) + DIGEST_SUFFIX);
+            OutputStream out = new FileOutputStream(digestFile);
+            try {
+                out.write(digest(xsl).getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+        } catch (TransformerConfigurationException e) {
+            throw new WebApplicationException("Could not precompile stylesheet", e);
+        } catch (IOException e) {
+            throw new WebApplicationException("Could not write translet digest", e);
+        }
+    }
+
+    private TransformerFactory createTransletFactory(String transletName) {
+        TransformerFactory factory = TransformerFactory.newInstance(XSLTC_FACTORY, 
+                Transformers.class.getClassLoader());
+        int dot = transletName.lastIndexOf('.');
+        if (dot != -1) {
+            factory.setAttribute("package-name", transletName.substring(0, dot));
+        }
+        factory.setAttribute("translet-name", transletName.substring(dot + 1));
+        return factory;
+    }
+
+    private boolean isTransletValid(String transletName, String digest) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = Transformers.class.getClassLoader();
+        }
+        InputStream stream = loader.getResourceAsStream(
+                transletName.replace('.', '/') + DIGEST_SUFFIX);
+        if (stream == null) {
+            return false;
+        }
+        try {
+            try {
+                StringBuilder stored = new StringBuilder();
+                int c;
+                while ((c = stream.read()) != -1) {
+                    stored.append((char) c);
+                }
+                return digest.equals(stored.toString().trim());
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static String digest(String xsl) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(xsl.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new WebApplicationException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new WebApplicationException(e);
+        }
+    }
+
     public void invalidate() {
         initialized = false;
         transformers = null;
+        localizedTransformers = Collections.emptyMap();
+        profiledTemplates = Collections.emptyMap();
+    }
+
+    @Override
+    public List<TransformerPoolStatistics> getPools() {
+        List<TransformerPoolStatistics> pools = new ArrayList<TransformerPoolStatistics>();
+        TransformerPool pool = transformers;
+        if (pool != null) {
+            pools.add(getStatistics(null, pool));
+            for (Map.Entry<String, TransformerPool> entry 
+                    : new TreeMap<String, TransformerPool>(localizedTransformers).entrySet()) {
+                pools.add(getStatistics(entry.getKey(), entry.getValue()));
+            }
+        }
+        return pools;
+    }
+
+    private static TransformerPoolStatistics getStatistics(String language, 
+            TransformerPool pool) {
+        return new TransformerPoolStatistics(language, pool.getSize(), pool.getActive(), 
+                pool.getCreated(), pool.getOverflows(), pool.getWaits(), pool.getWaitTime());
     }
 
     public boolean isInitialized() {
@@ -65,21 +339,60 @@ public class Transformers {
     }
 
     public Document transform(Document document) {
+        DocumentResult result = new DocumentResult();
+        transform(document, result);
+        return result.getDocument();
+    }
+
+    /**
+     * Returns the language of the stylesheet to be used or <code>null</code>
+     * for the default stylesheet.
+     */
+    private String getStylesheetLanguage(String lang) {
+        if (lang == null || localizedTransformers.isEmpty()) {
+            return null;
+        }
+        if (localizedTransformers.containsKey(lang)) {
+            return lang;
+        }
+        int i = lang.indexOf('_');
+        if (i == -1) {
+            i = lang.indexOf('-');
+        }
+        if (i != -1 && localizedTransformers.containsKey(lang.substring(0, i))) {
+            return lang.substring(0, i);
+        }
+        return null;
+    }
+
+    public void transform(Document document, Result result) {
         if (initialized) {
             DocumentSource source = new DocumentSource(document);
-            DocumentResult result = new DocumentResult();
-            Transformer tr = transformers.get();
             String lang = document.getRootElement()
                         .attributeValue("xml:lang");
-            if (lang != null) {
-                tr.setParameter("xml:lang", lang);
+            String stylesheetLanguage = getStylesheetLanguage(lang);
+            if (profiler != null && profiler.sample()) {
+                try {
+                    profiler.transform(profiledTemplates.get(stylesheetLanguage), 
+                            source, result, lang);
+                } catch (TransformerException e) {
+                    throw new WebApplicationException(e);
+                }
+                return;
             }
+            TransformerPool pool = stylesheetLanguage == null ? transformers 
+                    : localizedTransformers.get(stylesheetLanguage);
+            Transformer tr = pool.acquire();
             try {
+                if (lang != null) {
+                    tr.setParameter("xml:lang", lang);
+                }
                 tr.transform(source, result);
             } catch (TransformerException e) {
                 throw new WebApplicationException(e);
+            } finally {
+                pool.release(tr);
             }
-            return result.getDocument();
         } else {
             throw new WebApplicationException("Transformers are not initialized");
         }
@@ -17,6 +17,7 @@
 
 package net.contextfw.web.application.internal;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.regex.Pattern;
 import net.contextfw.web.application.PropertyProvider;
 import net.contextfw.web.application.ResourceCleaner;
 import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.component.ComponentBuilder;
 import net.contextfw.web.application.internal.development.InternalDevelopmentTools;
 import net.contextfw.web.application.internal.development.ReloadingClassLoaderConf;
 import net.contextfw.web.application.internal.initializer.InitializerProvider;
@@ -35,13 +37,16 @@ import net.contextfw.web.application.internal.service.DirectoryWatcher;
 import net.contextfw.web.application.internal.service.InitHandler;
 import net.contextfw.web.application.internal.service.UpdateHandler;
 import net.contextfw.web.application.internal.servlet.CSSServlet;
+import net.contextfw.web.application.internal.servlet.CompressionFilter;
 import net.contextfw.web.application.internal.servlet.DevelopmentFilter;
 import net.contextfw.web.application.internal.servlet.InitServlet;
 import net.contextfw.web.application.internal.servlet.RegexUriMapping;
 import net.contextfw.web.application.internal.servlet.ScriptServlet;
+import net.contextfw.web.application.internal.servlet.StylesheetServlet;
 import net.contextfw.web.application.internal.servlet.UpdateServlet;
 import net.contextfw.web.application.internal.servlet.UriMapping;
 import net.contextfw.web.application.internal.servlet.UriMappingFactory;
+import net.contextfw.web.application.internal.timing.RenderStatistics;
 import net.contextfw.web.application.internal.util.ClassScanner;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
 import net.contextfw.web.application.lifecycle.RequestInvocationFilter;
@@ -51,6 +56,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.inject.Inject;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.servlet.ServletModule;
@@ -83,6 +89,8 @@ public class WebApplicationServletModule extends ServletModule {
 
     private InternalDevelopmentTools internalDevelopmentTools;
     
+    private List<Class<?>> productionClasses = Collections.emptyList();
+    
     public WebApplicationServletModule(
             Configuration configuration,
             PropertyProvider propertyProvider,
@@ -115,10 +123,18 @@ public class WebApplicationServletModule extends ServletModule {
         requestInjection(initHandler);
         initializerProvider = new InitializerProvider();
         
+        if (configuration.getOrElse(Configuration.COMPRESSION, false)) {
+            filter("/*").through(CompressionFilter.class);
+        }
+        
         serve(resourcePrefix + ".js").with(
                 ScriptServlet.class);
         serve(resourcePrefix + ".css").with(
                 CSSServlet.class);
+        if (configuration.getOrElse(Configuration.CLIENT_SIDE_RENDERING, false)) {
+            serve(resourcePrefix + ".xsl").with(
+                    StylesheetServlet.class);
+        }
         
         serveRegex(".*/contextfw-update/.*").with(UpdateServlet.class);
         serveRegex(".*/contextfw-refresh/.*").with(UpdateServlet.class);
@@ -157,6 +173,7 @@ public class WebApplicationServletModule extends ServletModule {
         logger.info("Serving view components in PRODUCTION mode");
         
         List<Class<?>> classes = ClassScanner.getClasses(rootPackages);
+        productionClasses = classes;
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         UriMappingFactory fact = new UriMappingFactory();
         
@@ -184,6 +201,22 @@ public class WebApplicationServletModule extends ServletModule {
         }
     }
     
+    /**
+     * Introspects components and their remoted methods found in production mode when 
+     * injector is created.
+     */
+    @Inject
+    public void preloadComponents(ComponentBuilder componentBuilder,
+            ComponentUpdateHandlerFactory updateHandlerFactory) {
+        if (!productionClasses.isEmpty()) {
+            long start = System.currentTimeMillis();
+            int count = componentBuilder.preload(productionClasses);
+            int handlers = updateHandlerFactory.preload(productionClasses);
+            logger.info("Preloaded {} components and {} remoted methods in {} ms", 
+                    new Object[] { count, handlers, System.currentTimeMillis() - start });
+        }
+    }
+    
     @Provides
     @Singleton
     public UpdateHandler provideUpdateHandler(
@@ -191,6 +224,7 @@ public class WebApplicationServletModule extends ServletModule {
             DirectoryWatcher watcher,
             ResourceCleaner cleaner,
             WebApplicationStorage storage,
+            RenderStatistics statistics,
             Gson gson) {
         
         return new UpdateHandler(listeners, 
@@ -199,6 +233,7 @@ public class WebApplicationServletModule extends ServletModule {
                 storage,
                 configuration,
                 pageScope,
+                statistics,
                 gson);
     }
 }
\ No newline at end of file
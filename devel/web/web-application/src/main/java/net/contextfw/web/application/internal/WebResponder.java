@@ -17,13 +17,14 @@
 
 package net.contextfw.web.application.internal;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.servlet.ServletException;
@@ -31,21 +32,22 @@ import javax.servlet.http.HttpServletResponse;
 
 import net.contextfw.org.dom4j.io.XMLWriter;
 import net.contextfw.web.application.DocumentProcessor;
+import net.contextfw.web.application.LocalizedDocumentProcessor;
 import net.contextfw.web.application.WebApplicationException;
 import net.contextfw.web.application.configuration.Configuration;
 import net.contextfw.web.application.development.XMLResponseLogger;
 import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.internal.timing.RenderPhase;
+import net.contextfw.web.application.internal.timing.RenderTimer;
+import net.contextfw.web.application.internal.timing.MBeans;
+import net.contextfw.web.application.internal.timing.TemplateProfiler;
 import net.contextfw.web.application.internal.util.ResourceEntry;
 import net.contextfw.web.application.internal.util.ResourceScanner;
 import net.contextfw.web.application.internal.util.Utils;
 
 import org.dom4j.Document;
-import org.dom4j.DocumentException;
 import org.dom4j.Element;
-import org.dom4j.Node;
-import org.dom4j.io.HTMLWriter;
 import org.dom4j.io.OutputFormat;
-import org.dom4j.io.SAXReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,10 +70,26 @@ public class WebResponder {
 
     private final Transformers transformers;
 
-    private final XMLResponseLogger responseLogger;
+    private final TemplateProfiler profiler;
+
+    private final AsyncResponseLogger responseLogger;
     private final DocumentProcessor xslPostProcessor;
+
+    private final XSLFragmentCache fragments = new XSLFragmentCache();
+    
+    private final boolean streamedRendering;
+    
+    private final String precompiledXSL;
+    
+    private final boolean clientSideRendering;
     
-    private final OutputFormat htmlFormat;
+    private final boolean serverTiming;
+    
+    private final String stylesheetPath;
+    
+    // Stylesheet and its version are published together, so that a version is never 
+    // paired with a stylesheet of another reload
+    private volatile Stylesheet stylesheet;
 
     public enum Mode {
 
@@ -94,16 +112,26 @@ public class WebResponder {
     @Inject
     public WebResponder(Configuration configuration, Injector injector) {
         rootResourcePaths.add("net.contextfw.web.application");
-        transformers = new Transformers();
+        profiler = new TemplateProfiler(
+                configuration.getOrElse(Configuration.TEMPLATE_PROFILING, 0),
+                configuration.getOrElse(Configuration.APPLICATION_NAME, null));
+        transformers = new Transformers(
+                configuration.getOrElse(Configuration.TRANSFORMER_POOL_SIZE, 16),
+                configuration.getOrElse(Configuration.TRANSFORMER_POOL_MAX_WAIT, 100L),
+                profiler);
+        if (configuration.getOrElse(Configuration.RENDER_TIMING, false)) {
+            MBeans.register(transformers, "Transformers", 
+                    configuration.getOrElse(Configuration.APPLICATION_NAME, null));
+        }
         resourcePaths.addAll(configuration.get(Configuration.RESOURCE_PATH));
         namespaces.addAll(configuration.get(Configuration.NAMESPACE));
         
-        htmlFormat = OutputFormat.createCompactFormat();
-        htmlFormat.setXHTML(true);
-        htmlFormat.setTrimText(false);
-        htmlFormat.setPadText(true);
-        htmlFormat.setNewlines(false);
-        htmlFormat.setExpandEmptyElements(true);
+        streamedRendering = configuration.getOrElse(Configuration.STREAMED_RENDERING, false);
+        precompiledXSL = configuration.getOrElse(Configuration.PRECOMPILED_XSL, null);
+        clientSideRendering = configuration.getOrElse(Configuration.CLIENT_SIDE_RENDERING, false);
+        serverTiming = configuration.getOrElse(Configuration.RENDER_TIMING, false)
+                && configuration.getOrElse(Configuration.SERVER_TIMING, false);
+        stylesheetPath = configuration.getOrElse(Configuration.RESOURCES_PREFIX, "/resources") + ".xsl";
         
         if (configuration.get(Configuration.XSL_POST_PROCESSOR) != null) {
             xslPostProcessor = Utils.toInstance(
@@ -111,38 +139,73 @@ public class WebResponder {
         } else {
             xslPostProcessor = null;
         }
+        XMLResponseLogger logger = null;
         if (configuration.get(Configuration.LOG_XML)) {
             Object obj = configuration.get(Configuration.XML_RESPONSE_LOGGER);
             if (obj instanceof XMLResponseLogger) {
-                responseLogger = (XMLResponseLogger) obj;
+                logger = (XMLResponseLogger) obj;
             } else if (obj instanceof Class
                     && XMLResponseLogger.class.isAssignableFrom((Class<?>) obj)) {
-                responseLogger = injector.getInstance((Class<XMLResponseLogger>) obj);
-            } else {
-                responseLogger = null;
+                logger = injector.getInstance((Class<XMLResponseLogger>) obj);
             }
+        }
+        if (logger != null) {
+            responseLogger = new AsyncResponseLogger(logger,
+                    configuration.getOrElse(Configuration.LOG_XML_INTERVAL, 1),
+                    configuration.getOrElse(Configuration.LOG_XML_QUEUE_SIZE, 100));
         } else {
             responseLogger = null;
         }
     }
 
+    /**
+     * Queues the document for logging. The document must not be modified afterwards.
+     */
     public void logXML(Document d) {
-        try {
-            OutputFormat format = OutputFormat.createPrettyPrint();
-            XMLWriter writer;
-
-            StringWriter xml = new StringWriter();
-            writer = new XMLWriter(xml, format);
-            writer.write(d);
+        responseLogger.log(d);
+    }
 
-            responseLogger.logXML(xml.toString());
+    /**
+     * Returns the merged and post processed stylesheet
+     */
+    protected Document getXSLDocument() {
+        Document document = buildXSLDocument();
+        if (xslPostProcessor != null) {
+            xslPostProcessor.process(document);
+        }
+        return document;
+    }
 
-        } catch (Exception e) {
-            throw new WebApplicationException(e);
+    /**
+     * Post processes the given document and returns stylesheets localized by the post 
+     * processor for each language.
+     * 
+     * <p>
+     *  The shared stylesheet is processed first, so that the processor can reload its 
+     *  resources once for the whole compilation.
+     * </p>
+     */
+    private Map<String, Document> postProcessXSLDocument(Document document) {
+        Map<String, Document> localized = new HashMap<String, Document>();
+        LocalizedDocumentProcessor processor = null;
+        if (xslPostProcessor instanceof LocalizedDocumentProcessor) {
+            processor = (LocalizedDocumentProcessor) xslPostProcessor;
+            for (String language : processor.getLanguages()) {
+                localized.put(language, (Document) document.clone());
+            }
+        }
+        if (xslPostProcessor != null) {
+            xslPostProcessor.process(document);
+        }
+        if (processor != null) {
+            for (Map.Entry<String, Document> entry : localized.entrySet()) {
+                processor.process(entry.getValue(), entry.getKey());
+            }
         }
+        return localized;
     }
 
-    protected Document getXSLDocument() {
+    private Document buildXSLDocument() {
 
         List<ResourceEntry> rootResources = ResourceScanner.findResources(
                 rootResourcePaths, XSL_ACCEPTOR);
@@ -167,68 +230,180 @@ public class WebResponder {
 
         List<ResourceEntry> resources = ResourceScanner.findResources(resourcePaths, XSL_ACCEPTOR);
 
-        InputStream stream;
-        SAXReader reader = new SAXReader();
-        try {
-            stream = root.getInputStream();
-            Document document = reader.read(stream);
-            stream.close();
-            for (KeyValue<String, String> entry : namespaces) {
-                document.getRootElement().addNamespace(entry.getKey(),
-                        entry.getValue());
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        entries.add(root);
+        for (ResourceEntry file : resources) {
+            if (file.getPath().endsWith(".xsl")) {
+                entries.add(file);
             }
+        }
+
+        List<Document> documents;
+        try {
+            documents = fragments.getDocuments(entries);
+        } catch (WebApplicationException e) {
+            transformers.invalidate();
+            throw e;
+        }
 
-            Element stylesheet = (Element) document
-                    .selectSingleNode("//stylesheet");
-
-            // Adding other stylesheets
-
-            for (ResourceEntry file : resources) {
-                if (file.getPath().endsWith(".xsl")) {
-                    reader = new SAXReader();
-                    stream = file.getInputStream();
-
-                    try {
-                        Document child = reader.read(stream);
-                        for (Object el : child.getRootElement().elements()) {
-                            if (el instanceof Node) {
-                                stylesheet.add(((Node) el).detach());
-                            }
-                        }
-                    } catch (DocumentException de) {
-                        transformers.invalidate();
-                        throw new WebApplicationException("Xsl-file " + file.getPath()
-                                + " contains errors", de);
-                    } finally {
-                        stream.close();
-                    }
+        // Cached documents are shared, so they are copied
+        Document document = (Document) documents.get(0).clone();
+        for (KeyValue<String, String> entry : namespaces) {
+            document.getRootElement().addNamespace(entry.getKey(),
+                    entry.getValue());
+        }
 
-                }
+        Element stylesheet = (Element) document
+                .selectSingleNode("//stylesheet");
+
+        // Adding other stylesheets
+
+        for (Document child : documents.subList(1, documents.size())) {
+            for (Object el : child.getRootElement().elements()) {
+                stylesheet.add(((Element) el).createCopy());
             }
+        }
+
+        if (profiler.isEnabled()) {
+            profiler.setSources(getTemplateSources(entries, documents));
+        }
+
+        return document;
+    }
 
-            if (xslPostProcessor != null) {
-                xslPostProcessor.process(document);
+    private Map<String, String> getTemplateSources(List<ResourceEntry> entries, 
+                                                   List<Document> documents) {
+        Map<String, String> sources = new HashMap<String, String>();
+        for (int i = 0; i < documents.size(); i++) {
+            String path = entries.get(i).getPath();
+            String file = path.substring(
+                    Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+            for (Object el : documents.get(i).getRootElement().elements("template")) {
+                Element template = (Element) el;
+                sources.put(TemplateProfiler.getLabel(
+                        template.attributeValue("match"), 
+                        template.attributeValue("name"), 
+                        template.attributeValue("mode")), file);
             }
-            return document;
-        } catch (DocumentException e) {
-            throw new WebApplicationException(e);
-        } catch (UnsupportedEncodingException e) {
-            throw new WebApplicationException(e);
-        } catch (IOException e) {
-            throw new WebApplicationException(e);
         }
+        return sources;
     }
 
     public void sendResponse(Document document, HttpServletResponse resp,
             Mode mode) throws ServletException, IOException {
-        if (responseLogger != null) {
-            logXML(document);
+        if (serverTiming) {
+            RenderTimer timer = RenderTimer.current();
+            if (timer != null) {
+                resp.setHeader("Server-Timing", timer.toServerTiming());
+            }
+        }
+        try {
+            if (mode == Mode.XML) {
+                sendXMLResponse(document, resp);
+            } else if (clientSideRendering) {
+                sendClientSideResponse(document, resp, mode);
+            } else {
+                sendHTMLResponse(document, resp, mode);
+            }
+        } finally {
+            // Logged after sending, so that the document is not modified anymore
+            if (responseLogger != null) {
+                logXML(document);
+            }
         }
-        if (mode != Mode.XML) {
-            sendHTMLResponse(document, resp, mode);
+    }
+
+    /**
+     * Sends the document untransformed with a reference to the stylesheet.
+     * 
+     * <p>
+     *  Page loads are transformed by the browser using xml-stylesheet processing
+     *  instruction. Updates have the stylesheet url as an attribute and are
+     *  transformed by contextfw.js.
+     * </p>
+     */
+    private void sendClientSideResponse(Document document, HttpServletResponse resp, Mode mode)
+            throws IOException {
+        resp.setContentType(Mode.XML.getContentType());
+        resp.setHeader("Expires", "-1");
+        resp.setHeader("Pragma", "no-cache");
+        resp.setHeader("Cache-Control", "no-cache, no-store");
+
+        Element root = document.getRootElement();
+        String contextPath = root.attributeValue("contextPath");
+        String href = (contextPath == null ? "" : contextPath) + stylesheetPath 
+                + "?v=" + getStylesheetVersion();
+
+        Writer writer = resp.getWriter();
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        if (mode == Mode.INIT) {
+            writer.write("<?xml-stylesheet type=\"text/xsl\" href=\"" + href + "\"?>");
         } else {
-            sendXMLResponse(document, resp);
+            root.addAttribute("stylesheet", href);
+        }
+        OutputFormat format = new OutputFormat();
+        format.setSuppressDeclaration(true);
+        long start = RenderTimer.start();
+        XMLWriter xmlWriter = new XMLWriter(writer, format);
+        xmlWriter.write(root);
+        xmlWriter.flush();
+        RenderTimer.stop(RenderPhase.WRITE, start);
+    }
+
+    /**
+     * Merged stylesheet that is served to browsers and its version
+     */
+    public static final class Stylesheet {
+
+        private final String xsl;
+
+        private final String version;
+
+        private Stylesheet(String xsl) {
+            this.xsl = xsl;
+            this.version = Transformers.digest(xsl);
+        }
+
+        public String getXSL() {
+            return xsl;
+        }
+
+        /**
+         * Returns the version of the stylesheet. Version changes when stylesheet changes. 
+         */
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Returns the merged stylesheet with its version
+     */
+    public Stylesheet getMergedStylesheet() {
+        Stylesheet current = stylesheet;
+        if (current == null) {
+            synchronized (this) {
+                if (stylesheet == null) {
+                    stylesheet = new Stylesheet(getXSLDocument().asXML());
+                }
+                current = stylesheet;
+            }
         }
+        return current;
+    }
+
+    /**
+     * Returns the merged stylesheet that is served to browsers
+     */
+    public String getStylesheet() {
+        return getMergedStylesheet().getXSL();
+    }
+
+    /**
+     * Returns the version of the merged stylesheet. Version changes when stylesheet changes. 
+     */
+    public String getStylesheetVersion() {
+        return getMergedStylesheet().getVersion();
     }
 
     private void sendXMLResponse(Document document, HttpServletResponse resp)
@@ -237,8 +412,10 @@ public class WebResponder {
         resp.setHeader("Expires", "-1");
         resp.setHeader("Pragma", "no-cache");
         resp.setHeader("Cache-Control", "no-cache, no-store");
+        long start = RenderTimer.start();
         OutputFormat format = OutputFormat.createPrettyPrint();
         new XMLWriter(resp.getWriter(), format).write(document);
+        RenderTimer.stop(RenderPhase.WRITE, start);
     }
 
     public void sendHTMLResponse(Document document, HttpServletResponse resp,
@@ -252,25 +429,61 @@ public class WebResponder {
         if (!transformers.isInitialized()) {
             synchronized (transformers) {
                 if (!transformers.isInitialized()) {
-                    transformers.initialize(getXSLDocument());
+                    Document xsl = buildXSLDocument();
+                    Map<String, Document> localized = postProcessXSLDocument(xsl);
+                    transformers.initialize(xsl, localized, precompiledXSL);
                 }
             }
         }
 
-        Document rDocument = transformers.transform(document);
-        
+        Writer out;
+        try {
+            out = new UTF8Writer(resp.getOutputStream());
+        } catch (IllegalStateException e) {
+            // Writer has already been obtained, for instance by a filter
+            out = resp.getWriter();
+        }
+        HTMLContentWriter writer = new HTMLContentWriter(out);
         if (mode == Mode.INIT) {
-            rDocument.addDocType(
+            writer.writeDocType(
                 "html",
                 "-//W3C//DTD XHTML 1.0 Transitional//EN",
                 "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd");
         }
-        
-        new HTMLWriter(resp.getWriter(), htmlFormat).write(rDocument);
+        long start = RenderTimer.start();
+        if (streamedRendering) {
+            // Writing cannot be separated from transformation
+            transformers.transform(document, writer.toResult());
+            out.flush();
+            RenderTimer.stop(RenderPhase.TRANSFORM, start);
+        } else {
+            Document transformed = transformers.transform(document);
+            RenderTimer.stop(RenderPhase.TRANSFORM, start);
+            start = RenderTimer.start();
+            writer.write(transformed);
+            out.flush();
+            RenderTimer.stop(RenderPhase.WRITE, start);
+        }
+    }
+
+    /**
+     * Compiles the merged stylesheet into translet classes in given directory
+     */
+    public void precompileXSL(File directory) {
+        if (precompiledXSL == null) {
+            throw new WebApplicationException("Translet name is not configured, see " 
+                    + "Configuration.PRECOMPILED_XSL");
+        }
+        Document xsl = buildXSLDocument();
+        Map<String, Document> localized = postProcessXSLDocument(xsl);
+        transformers.precompile(xsl, localized, precompiledXSL, directory);
     }
 
     public void clean() {
         logger.debug("Reloading resources");
         transformers.invalidate();
+        synchronized (this) {
+            stylesheet = null;
+        }
     }
 }
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.util.ResourceEntry;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.io.SAXReader;
+
+/**
+ * Cache for parsed xsl-files.
+ * 
+ * <p>
+ *  Files are cached by their location and last modification time, so only changed files 
+ *  are parsed again when stylesheet is reloaded. If several files need to be parsed, 
+ *  they are parsed in parallel.
+ * </p>
+ * 
+ * <p>
+ *  Cached documents are shared and must not be modified.
+ * </p>
+ */
+public class XSLFragmentCache {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static class Fragment {
+        private final long lastModified;
+        private final Document document;
+
+        Fragment(long lastModified, Document document) {
+            this.lastModified = lastModified;
+            this.document = document;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Fragment> fragments = 
+            new ConcurrentHashMap<String, Fragment>();
+
+    private final ThreadPoolExecutor executor;
+
+    private int parseCount = 0;
+
+    public XSLFragmentCache() {
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "contextfw-xsl-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns parsed documents in the same order as entries.
+     * 
+     * <p>
+     *  Documents of resources that are not in entries are removed from the cache.
+     * </p>
+     */
+    public synchronized List<Document> getDocuments(List<ResourceEntry> entries) {
+        
+        List<Document> documents = new ArrayList<Document>(entries.size());
+        List<Future<Document>> futures = new ArrayList<Future<Document>>(entries.size());
+        Set<String> locations = new HashSet<String>();
+        
+        List<ResourceEntry> stale = new ArrayList<ResourceEntry>();
+        for (ResourceEntry entry : entries) {
+            locations.add(entry.getLocation());
+            if (getCached(entry) == null) {
+                stale.add(entry);
+            }
+        }
+
+        if (stale.size() > 1) {
+            for (final ResourceEntry entry : stale) {
+                futures.add(executor.submit(new Callable<Document>() {
+                    @Override
+                    public Document call() {
+                        return parse(entry);
+                    }
+                }));
+            }
+            for (int i = 0; i < stale.size(); i++) {
+                put(stale.get(i), getResult(futures.get(i)));
+            }
+        } else if (stale.size() == 1) {
+            put(stale.get(0), parse(stale.get(0)));
+        }
+        parseCount += stale.size();
+
+        fragments.keySet().retainAll(locations);
+
+        for (ResourceEntry entry : entries) {
+            documents.add(fragments.get(entry.getLocation()).document);
+        }
+        return documents;
+    }
+
+    private Document getCached(ResourceEntry entry) {
+        Fragment fragment = fragments.get(entry.getLocation());
+        long lastModified = entry.getLastModified();
+        if (fragment == null || lastModified == -1 || fragment.lastModified != lastModified) {
+            return null;
+        }
+        return fragment.document;
+    }
+
+    private void put(ResourceEntry entry, Document document) {
+        fragments.put(entry.getLocation(), new Fragment(entry.getLastModified(), document));
+    }
+
+    private Document getResult(Future<Document> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebApplicationException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WebApplicationException) {
+                throw (WebApplicationException) e.getCause();
+            }
+            throw new WebApplicationException(e.getCause());
+        }
+    }
+
+    private Document parse(ResourceEntry entry) {
+        InputStream stream = entry.getInputStream();
+        try {
+            return new SAXReader().read(stream);
+        } catch (DocumentException e) {
+            throw new WebApplicationException("Xsl-file " + entry.getPath()
+                    + " contains errors", e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of parsed files
+     */
+    public synchronized int getParseCount() {
+        return parseCount;
+    }
+
+    public void clear() {
+        fragments.clear();
+    }
+}
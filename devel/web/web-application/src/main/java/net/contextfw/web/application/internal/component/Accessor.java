@@ -0,0 +1,37 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+/**
+ * Reads a field or invokes a method without parameters.
+ * 
+ * <p>
+ *  Implementations are generated at runtime by {@link AccessorGenerator} or at compile time
+ *  by {@link net.contextfw.web.application.processor.BuildableProcessor}. The interface
+ *  is public, because generated classes are defined in their own class loader or package.
+ * </p>
+ */
+public interface Accessor {
+
+    /**
+     * @return
+     *   The value of the field, the return value of the method or <code>null</code>
+     *   if method is void
+     */
+    Object access(Object target);
+}
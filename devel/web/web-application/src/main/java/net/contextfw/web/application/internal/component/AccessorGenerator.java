@@ -0,0 +1,226 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.contextfw.web.application.processor.BuildableProcessor;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.InstructionConstants;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates accessors that read fields and invoke methods directly instead of 
+ * through reflection.
+ * 
+ * <p>
+ *  Generated classes are defined in a class loader whose parent is the loader of the 
+ *  component, so they are discarded together with reloaded classes. Because of that
+ *  only public, non-static members of public classes can be accessed. For other members 
+ *  no accessor is generated and reflection must be used.
+ * </p>
+ * 
+ * <p>
+ *  If the declaring class has been processed with {@link BuildableProcessor}, accessors 
+ *  of the builder generated at compile time are preferred.
+ * </p>
+ */
+final class AccessorGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccessorGenerator.class);
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    private static class AccessorClassLoader extends ClassLoader {
+
+        AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private final Class<?> componentClass;
+
+    private AccessorClassLoader loader;
+
+    private final Map<Class<?>, GeneratedBuilder> compiled = 
+        new HashMap<Class<?>, GeneratedBuilder>();
+
+    AccessorGenerator(Class<?> componentClass) {
+        this.componentClass = componentClass;
+    }
+
+    /**
+     * Returns accessor for the field or <code>null</code> if field cannot be accessed directly.
+     */
+    Accessor generate(Field field) {
+        Accessor compiledAccessor = getCompiledAccessor(field, field.getName());
+        if (compiledAccessor != null) {
+            return compiledAccessor;
+        }
+        if (!isAccessible(field)) {
+            return null;
+        }
+        ClassGen cg = createClass();
+        InstructionFactory factory = new InstructionFactory(cg);
+        InstructionList il = new InstructionList();
+        il.append(InstructionFactory.createLoad(Type.OBJECT, 1));
+        il.append(factory.createCheckCast(
+                new ObjectType(field.getDeclaringClass().getName())));
+        il.append(factory.createGetField(field.getDeclaringClass().getName(), 
+                field.getName(), Type.getType(field.getType())));
+        appendReturn(factory, il, field.getType());
+        return define(cg, il, field);
+    }
+
+    /**
+     * Returns accessor for the method or <code>null</code> if method cannot be invoked directly.
+     */
+    Accessor generate(Method method) {
+        if (method.getParameterTypes().length == 0) {
+            Accessor compiledAccessor = getCompiledAccessor(method, method.getName() + "()");
+            if (compiledAccessor != null) {
+                return compiledAccessor;
+            }
+        }
+        if (!isAccessible(method) || method.getParameterTypes().length > 0) {
+            return null;
+        }
+        Class<?> declaringClass = method.getDeclaringClass();
+        ClassGen cg = createClass();
+        InstructionFactory factory = new InstructionFactory(cg);
+        InstructionList il = new InstructionList();
+        il.append(InstructionFactory.createLoad(Type.OBJECT, 1));
+        il.append(factory.createCheckCast(new ObjectType(declaringClass.getName())));
+        il.append(factory.createInvoke(declaringClass.getName(), method.getName(), 
+                Type.getType(method.getReturnType()), Type.NO_ARGS, 
+                declaringClass.isInterface() ? Constants.INVOKEINTERFACE 
+                        : Constants.INVOKEVIRTUAL));
+        appendReturn(factory, il, method.getReturnType());
+        return define(cg, il, method);
+    }
+
+    private Accessor getCompiledAccessor(Member member, String name) {
+        GeneratedBuilder generated = getGenerated(member.getDeclaringClass());
+        return generated == null ? null : generated.getAccessor(name);
+    }
+
+    /**
+     * Returns the builder generated at compile time for the class or <code>null</code> 
+     * if class has not been processed.
+     */
+    synchronized GeneratedBuilder getGenerated(Class<?> cl) {
+        if (!compiled.containsKey(cl)) {
+            GeneratedBuilder generated = null;
+            try {
+                generated = (GeneratedBuilder) Class.forName(
+                        cl.getName() + BuildableProcessor.SUFFIX, 
+                        true, cl.getClassLoader()).newInstance();
+            } catch (ClassNotFoundException e) {
+                // Class has not been processed
+            } catch (Throwable e) {
+                LOG.warn("Could not load generated builder of " + cl.getName(), e);
+            }
+            compiled.put(cl, generated);
+        }
+        return compiled.get(cl);
+    }
+
+    private static boolean isAccessible(Member member) {
+        return Modifier.isPublic(member.getModifiers())
+                && !Modifier.isStatic(member.getModifiers())
+                && Modifier.isPublic(member.getDeclaringClass().getModifiers());
+    }
+
+    private ClassGen createClass() {
+        String name = componentClass.getName() + "$$Accessor" + COUNTER.incrementAndGet();
+        ClassGen cg = new ClassGen(name, Object.class.getName(), "<generated>",
+                Constants.ACC_PUBLIC | Constants.ACC_FINAL | Constants.ACC_SUPER,
+                new String[] { Accessor.class.getName() });
+        cg.addEmptyConstructor(Constants.ACC_PUBLIC);
+        return cg;
+    }
+
+    private static void appendReturn(InstructionFactory factory, InstructionList il, 
+            Class<?> type) {
+        if (type == void.class) {
+            il.append(InstructionConstants.ACONST_NULL);
+        } else if (type.isPrimitive()) {
+            Class<?> wrapper = WRAPPERS.get(type);
+            il.append(factory.createInvoke(wrapper.getName(), "valueOf", 
+                    Type.getType(wrapper), new Type[] { Type.getType(type) }, 
+                    Constants.INVOKESTATIC));
+        }
+        il.append(InstructionConstants.ARETURN);
+    }
+
+    private Accessor define(ClassGen cg, InstructionList il, Member member) {
+        MethodGen mg = new MethodGen(Constants.ACC_PUBLIC, Type.OBJECT, 
+                new Type[] { Type.OBJECT }, new String[] { "target" }, "access", 
+                cg.getClassName(), il, cg.getConstantPool());
+        mg.setMaxStack();
+        mg.setMaxLocals();
+        cg.addMethod(mg.getMethod());
+        il.dispose();
+        try {
+            return (Accessor) getLoader()
+                    .define(cg.getClassName(), cg.getJavaClass().getBytes())
+                    .newInstance();
+        } catch (Throwable e) {
+            LOG.debug("Could not generate accessor for " + member + ", using reflection", e);
+            return null;
+        }
+    }
+
+    private synchronized AccessorClassLoader getLoader() {
+        if (loader == null) {
+            loader = new AccessorClassLoader(componentClass.getClassLoader());
+        }
+        return loader;
+    }
+}
@@ -18,17 +18,35 @@
 package net.contextfw.web.application.internal.component;
 
 import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.serialize.AttributeSerializer;
 
 public class AttributeBuilder extends NamedBuilder {
 
+    private final AttributeSerializer<Object> serializer;
+
     protected AttributeBuilder(PropertyAccess<Object> propertyAccess, String name, String accessName) {
+        this(propertyAccess, name, accessName, null);
+    }
+
+    /**
+     * @param serializer
+     *      The serializer resolved for the property or <code>null</code> if the serializer 
+     *      of <code>DOMBuilder</code> is used
+     */
+    protected AttributeBuilder(PropertyAccess<Object> propertyAccess, String name, String accessName,
+            AttributeSerializer<Object> serializer) {
         super(propertyAccess, name, accessName);
+        this.serializer = serializer;
     }
 
     @Override
     void buildNamedValue(DOMBuilder b, String name, Object value) {
         if (value != null) {
-            b.attr(name, value);
+            if (serializer == null) {
+                b.attr(name, value);
+            } else {
+                b.getCurrentRoot().addAttribute(name, serializer.serialize(value));
+            }
         }
     }
 }
@@ -30,6 +30,17 @@ abstract class Builder {
     protected Builder(String name) {
         this.accessName = name;
     }
+
+    String getAccessName() {
+        return accessName;
+    }
+
+    /**
+     * Builds the buildable as a part of its own update. By default same as a normal build.
+     */
+    void buildUpdate(DOMBuilder b, Object buildable) {
+        build(b, buildable);
+    }
     
     boolean isUpdateBuildable(Set<String> updateModes) {
         if (accessName == null || updateModes.size() == 0) {
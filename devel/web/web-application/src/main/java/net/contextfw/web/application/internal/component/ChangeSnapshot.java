@@ -0,0 +1,57 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+/**
+ * Values of tracked properties of a component as they were last built.
+ * 
+ * <p>
+ *  Along with the value its hash code is recorded, so that changes made to the value
+ *  in place can be detected. Hash codes of arrays are their identities.
+ * </p>
+ */
+public final class ChangeSnapshot {
+
+    private final Object[] values;
+
+    private final int[] hashes;
+
+    ChangeSnapshot(int size) {
+        values = new Object[size];
+        hashes = new int[size];
+    }
+
+    void record(int index, Object value) {
+        values[index] = value;
+        hashes[index] = hash(value);
+    }
+
+    /**
+     * Compares identity first, then equality and finally hash code of the value.
+     */
+    boolean isChanged(int index, Object value) {
+        Object old = values[index];
+        if (old != value && (old == null || value == null || !old.equals(value))) {
+            return true;
+        }
+        return hash(value) != hashes[index];
+    }
+
+    private static int hash(Object value) {
+        return value == null ? 0 : value.hashCode();
+    }
+}
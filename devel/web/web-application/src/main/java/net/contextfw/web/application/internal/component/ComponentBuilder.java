@@ -17,6 +17,7 @@
 
 package net.contextfw.web.application.internal.component;
 
+import java.util.List;
 import java.util.Set;
 
 import net.contextfw.web.application.component.Component;
@@ -39,4 +40,18 @@ public interface ComponentBuilder {
     
     MetaComponent getMetaComponent(Class<?> cl);
     
+    int preload(Iterable<Class<?>> classes);
+
+    void refreshChanges(Component component);
+
+    /**
+     * Builds a whole tree, building independent subtrees concurrently if enabled.
+     * 
+     * <p>
+     *  Deferred components are not built but added to the given list, and a placeholder 
+     *  is built instead.
+     * </p>
+     */
+    void buildTree(DOMBuilder sb, Object component, List<Component> deferred);
+    
 }
\ No newline at end of file
@@ -17,17 +17,23 @@
 
 package net.contextfw.web.application.internal.component;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.Buildable;
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.DOMBuilder;
 import net.contextfw.web.application.component.ScriptContext;
 import net.contextfw.web.application.internal.util.AttributeHandler;
+import net.contextfw.web.application.internal.util.ParamConverters;
+import net.contextfw.web.application.lifecycle.View;
+
+import org.dom4j.Element;
 
 import com.google.gson.Gson;
 import com.google.inject.Inject;
@@ -36,39 +42,117 @@ import com.google.inject.Singleton;
 @Singleton
 public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
 
-    private static final Map<Class<?>, MetaComponent> metaModels = 
-        new HashMap<Class<?>, MetaComponent>();
-    private static final Map<Class<?>, Class<?>> actualClasses =
-        new WeakHashMap<Class<?>, Class<?>>();
+    // Maps are read without locking. Meta models are created while holding 
+    // the lock on metaModels, so that each class is introspected only once.
+    private static final ConcurrentMap<Class<?>, MetaComponent> metaModels = 
+        new ConcurrentHashMap<Class<?>, MetaComponent>();
+    private static final ConcurrentMap<Class<?>, Class<?>> actualClasses =
+        new ConcurrentHashMap<Class<?>, Class<?>>();
 
     private final AttributeHandler attributeHandler;
 
     private final Gson gson;
 
+    private final FragmentCache fragmentCache;
+
+    private final ParamConverters paramConverters;
+
+    private final boolean generateAccessors;
+
+    private ParallelBuilder parallelBuilder = null;
+
+    // Static, because meta models are shared and hold the builder that created them
+    private static final ThreadLocal<List<Component>> deferredComponents = 
+        new ThreadLocal<List<Component>>();
+
+    // Set when the tree being cached contains something that cannot be replayed
+    private static final ThreadLocal<boolean[]> notReplayable = new ThreadLocal<boolean[]>() {
+        @Override
+        protected boolean[] initialValue() {
+            return new boolean[1];
+        }
+    };
+
     @Inject
-    public ComponentBuilderImpl(AttributeHandler attributeHandler, Gson gson) {
+    public ComponentBuilderImpl(AttributeHandler attributeHandler, Gson gson,
+            FragmentCache fragmentCache, ParamConverters paramConverters) {
         this.attributeHandler = attributeHandler;
         this.gson = gson;
+        this.fragmentCache = fragmentCache;
+        this.paramConverters = paramConverters;
+        this.generateAccessors = true;
+    }
+
+    /**
+     * @param generateAccessors
+     *      Whether components are accessed with generated accessors instead of reflection
+     */
+    public ComponentBuilderImpl(AttributeHandler attributeHandler, Gson gson,
+            FragmentCache fragmentCache, boolean generateAccessors) {
+        this.attributeHandler = attributeHandler;
+        this.gson = gson;
+        this.fragmentCache = fragmentCache;
+        this.paramConverters = new ParamConverters(gson);
+        this.generateAccessors = generateAccessors;
+    }
+
+    @Inject
+    public void setParallelBuilder(ParallelBuilder parallelBuilder) {
+        this.parallelBuilder = parallelBuilder.isEnabled() ? parallelBuilder : null;
     }
 
     @Override
     public MetaComponent getMetaComponent(final Class<?> cl) {
-        Class<?> actual = actualClasses.get(cl);
-        if (actual == null) {
-            actual = getActualClass(cl);
-            actualClasses.put(cl, actual);
-        }
+        Class<?> actual = getActualClass(cl);
         MetaComponent model = metaModels.get(actual);
         if (model == null) {
-            model = new MetaComponent(actual, this, gson, this);
-            metaModels.put(actual, model);
+            synchronized (metaModels) {
+                model = metaModels.get(actual);
+                if (model == null) {
+                    model = new MetaComponent(actual, this, gson, this, generateAccessors, 
+                            paramConverters, attributeHandler);
+                    metaModels.put(actual, model);
+                }
+            }
         }
         return model;
     }
+
+    /**
+     * Creates meta models of components, buildables and views beforehand, so that
+     * requests do not need to introspect classes.
+     * 
+     * @return
+     *      The number of classes that were introspected
+     */
+    @Override
+    public int preload(Iterable<Class<?>> classes) {
+        int count = 0;
+        for (Class<?> cl : classes) {
+            if (!cl.isInterface() && !cl.isAnnotation() && isPreloadable(cl)) {
+                getMetaComponent(cl);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isPreloadable(Class<?> cl) {
+        if (Component.class.isAssignableFrom(cl) || cl.isAnnotationPresent(View.class)) {
+            return true;
+        }
+        for (Class<?> current = cl; current != null; current = current.getSuperclass()) {
+            if (current.isAnnotationPresent(Buildable.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
     
     public void clean() {
         metaModels.clear();
         actualClasses.clear();
+        fragmentCache.clear();
     }
 
     public static Class<?> getActualClass(Object element) {
@@ -106,16 +190,124 @@ public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
             if (component instanceof Component && !((Component) component).isEnabled()) {
                 return;
             }
+            if (model.annotation.deferred() && defer(sb, (Component) component)) {
+                return;
+            }
+            if (!model.isReplayable()) {
+                notReplayable.get()[0] = true;
+            }
+            Object cacheKey = getCacheKey(model, component, buildins);
+            if (cacheKey != null) {
+                Element cached = fragmentCache.get(cacheKey);
+                if (cached != null) {
+                    sb.child(cached);
+                    return;
+                }
+            }
+            if (model.isTrackingChanges()) {
+                Component c = (Component) component;
+                if (c.getChangeSnapshot() == null) {
+                    c.setChangeSnapshot(model.createChangeSnapshot());
+                }
+            }
             DOMBuilder b = model.buildName == null ? sb : sb
                     .descend(model.buildName);
-            build(model, b, component, model.builders, false, null, buildins);
+            if (parallelBuilder != null && model.annotation.independent()
+                    && (buildins == null || buildins.length == 0)) {
+                final MetaComponent independent = model;
+                final Object independentComponent = component;
+                final Object independentKey = cacheKey;
+                final List<Component> deferred = deferredComponents.get();
+                if (parallelBuilder.submit(b, new ParallelBuilder.Build() {
+                    @Override
+                    public void build(DOMBuilder detached) {
+                        deferredComponents.set(deferred);
+                        try {
+                            buildAndCache(independent, detached, independentComponent, 
+                                    independentKey);
+                        } finally {
+                            deferredComponents.remove();
+                        }
+                    }
+                })) {
+                    // Content is added later, so enclosing tree cannot be cached
+                    notReplayable.get()[0] = true;
+                    return;
+                }
+            }
+            buildAndCache(model, b, component, cacheKey, buildins);
         } else {
             sb.text(attributeHandler.serialize(component));
         }
     }
 
+    private void buildAndCache(MetaComponent model, DOMBuilder b, Object component, 
+            Object cacheKey, Object... buildins) {
+        if (cacheKey == null) {
+            build(model, b, component, model.builders, false, false, null, buildins);
+            return;
+        }
+        boolean[] flag = notReplayable.get();
+        boolean outer = flag[0];
+        flag[0] = false;
+        try {
+            build(model, b, component, model.builders, false, false, null, buildins);
+            if (!flag[0]) {
+                fragmentCache.put(cacheKey, b.getCurrentRoot());
+            }
+        } finally {
+            flag[0] |= outer;
+        }
+    }
+
+    /**
+     * Builds a placeholder for the component if deferring is active in current thread
+     */
+    private boolean defer(DOMBuilder sb, Component component) {
+        List<Component> deferred = deferredComponents.get();
+        if (deferred == null || component.getId() == null) {
+            return false;
+        }
+        sb.descend("Deferred").attr("id", component.getId());
+        deferred.add(component);
+        return true;
+    }
+
+    @Override
+    public void buildTree(DOMBuilder sb, final Object component, List<Component> deferred) {
+        // Workers building independent components add to the same list
+        deferredComponents.set(deferred == null || parallelBuilder == null ? deferred 
+                : Collections.synchronizedList(deferred));
+        try {
+            if (parallelBuilder == null) {
+                build(sb, component);
+            } else {
+                parallelBuilder.buildTree(sb, new ParallelBuilder.Build() {
+                    @Override
+                    public void build(DOMBuilder b) {
+                        ComponentBuilderImpl.this.build(b, component);
+                    }
+                });
+            }
+        } finally {
+            deferredComponents.remove();
+        }
+    }
+
+    private Object getCacheKey(MetaComponent model, Object component, Object... buildins) {
+        if (!fragmentCache.isEnabled() || !model.isCacheable()
+                || (buildins != null && buildins.length > 0)) {
+            return null;
+        }
+        Object key = model.getCacheKey(component);
+        if (key == null) {
+            return null;
+        }
+        return Arrays.asList(model, key);
+    }
+
     private void build(MetaComponent model, DOMBuilder b, Object component,
-            List<Builder> builders, boolean partial, Set<String> updates,
+            List<Builder> builders, boolean update, boolean partial, Set<String> updates,
             Object... buildins) {
         
         model.applyBeforeBuilds(component);
@@ -123,13 +315,15 @@ public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
         if (partial) {
             for (Builder builder : builders) {
                 if (builder.isUpdateBuildable(updates)) {
-                    builder.build(b, component);
+                    builder.buildUpdate(b, component);
                 }
             }
-        } else {
+        } else if (update) {
             for (Builder builder : builders) {
-                builder.build(b, component);
+                builder.buildUpdate(b, component);
             }
+        } else {
+            model.build(b, component);
         }
 
         // Handling buildins
@@ -139,9 +333,7 @@ public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
                 if (buildIn != null) {
                     MetaComponent bmodel = getMetaComponent(buildIn.getClass());
                     if (bmodel.annotation != null) {
-                        for (Builder builder : bmodel.builders) {
-                            builder.build(b, buildIn);
-                        }
+                        bmodel.build(b, buildIn);
                     }
                 }
             }
@@ -157,7 +349,7 @@ public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
         MetaComponent model = getMetaComponent(component.getClass());
         if (model.annotation != null) {
             DOMBuilder b = sb.descend(model.buildName + "." + updateName);
-            build(model, b, component, model.updateBuilders, false, null,
+            build(model, b, component, model.updateBuilders, true, false, null,
                     (Object[]) null);
         }
     }
@@ -168,11 +360,28 @@ public class ComponentBuilderImpl implements ComponentBuilder, ScriptContext {
         MetaComponent model = getMetaComponent(component.getClass());
         if (model.annotation != null) {
             DOMBuilder b = sb.descend(model.buildName + "." + updateName);
-            build(model, b, component, model.partialBuilders, true, updates,
+            build(model, b, component, model.partialBuilders, true, true, updates,
                     (Object[]) null);
         }
     }
 
+    /**
+     * Requests partial update of the changed properties, if component is tracking changes
+     * and no update has been requested yet.
+     */
+    @Override
+    public void refreshChanges(Component component) {
+        ChangeSnapshot snapshot = component.getChangeSnapshot();
+        if (snapshot != null && component.isEnabled() && !component.isRefreshRequested()) {
+            MetaComponent model = getMetaComponent(component.getClass());
+            List<String> changes = model.findChanges(component, snapshot);
+            if (!changes.isEmpty()) {
+                component.partialRefresh(model.annotation.trackChanges(), 
+                        changes.toArray(new String[changes.size()]));
+            }
+        }
+    }
+
     @Override
     public boolean isBuildable(Class<?> cl) {
         return getMetaComponent(cl).annotation != null;
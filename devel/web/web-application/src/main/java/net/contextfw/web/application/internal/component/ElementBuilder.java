@@ -17,15 +17,117 @@
 
 package net.contextfw.web.application.internal.component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.Keyed;
 
 class ElementBuilder extends NamedBuilder {
 
     private final ComponentBuilder componentBuilder;
+
+    private final boolean keyed;
     
     protected ElementBuilder(ComponentBuilder componentBuilder, PropertyAccess<Object> propertyAccess, String name, String accessName) {
+        this(componentBuilder, propertyAccess, name, accessName, false);
+    }
+
+    /**
+     * @param keyed
+     *      Whether the declared element type of the collection is keyed, so that also an 
+     *      empty collection is built as keyed
+     */
+    protected ElementBuilder(ComponentBuilder componentBuilder, PropertyAccess<Object> propertyAccess, String name, String accessName,
+            boolean keyed) {
         super(propertyAccess, name, accessName);
         this.componentBuilder = componentBuilder;
+        this.keyed = keyed;
+    }
+
+    @Override
+    void buildValue(DOMBuilder b, Object buildable, Object value, boolean update) {
+        if (getName() != null && buildable instanceof Component 
+                && ((Component) buildable).getId() != null
+                && value != null && !componentBuilder.isBuildable(value.getClass())) {
+            List<Keyed> items = null;
+            if (value instanceof Iterable) {
+                items = toKeyed((Iterable<?>) value);
+            } else if (value instanceof Object[]) {
+                items = toKeyed(Arrays.asList((Object[]) value));
+            }
+            if (items != null) {
+                buildKeyed(b, (Component) buildable, items, update);
+                return;
+            }
+        }
+        buildValue(b, value);
+    }
+
+    /**
+     * @return
+     *      The items or <code>null</code> if any of the items is not keyed or if collection
+     *      is empty and its declared element type is not keyed
+     */
+    private List<Keyed> toKeyed(Iterable<?> values) {
+        List<Keyed> items = new ArrayList<Keyed>();
+        for (Object value : values) {
+            if (value instanceof Keyed) {
+                items.add((Keyed) value);
+            } else {
+                return null;
+            }
+        }
+        return items.isEmpty() && !keyed ? null : items;
+    }
+
+    /**
+     * Builds the whole collection or, during an update, only the changes since the 
+     * previous build.
+     */
+    private void buildKeyed(DOMBuilder b, Component component, List<Keyed> items, boolean update) {
+        String prefix = component.getId() + "_";
+        KeyedSnapshot previous = component.getKeyedSnapshot(getAccessName());
+        KeyedSnapshot next = new KeyedSnapshot(items);
+        DOMBuilder child = b.descend(getName());
+
+        if (update && previous != null) {
+            DOMBuilder changes = child.descend("KeyedUpdate").attr("container", prefix + getName());
+            for (KeyedSnapshot.Operation operation : previous.diff(next)) {
+                int i = operation.index;
+                switch (operation.type) {
+                case REMOVE:
+                    changes.descend("Remove").attr("id", prefix + previous.getKey(i));
+                    break;
+                case INSERT:
+                    buildItem(after(changes.descend("Insert"), prefix, items, i), prefix, items.get(i));
+                    break;
+                case MOVE:
+                    after(changes.descend("Move"), prefix, items, i)
+                        .attr("id", prefix + items.get(i).getKey());
+                    break;
+                case CHANGE:
+                    buildItem(changes.descend("Change").attr("id", prefix + items.get(i).getKey()), 
+                            prefix, items.get(i));
+                    break;
+                }
+            }
+        } else {
+            for (Keyed item : items) {
+                buildItem(child, prefix, item);
+            }
+        }
+        component.setKeyedSnapshot(getAccessName(), next);
+    }
+
+    private static DOMBuilder after(DOMBuilder b, String prefix, List<Keyed> items, int index) {
+        return index == 0 ? b : b.attr("after", prefix + items.get(index - 1).getKey());
+    }
+
+    private void buildItem(DOMBuilder b, String prefix, Keyed item) {
+        componentBuilder.build(b, item, new ItemId(prefix + item.getKey()));
     }
 
     @Override
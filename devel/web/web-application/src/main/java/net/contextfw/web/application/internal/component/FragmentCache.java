@@ -0,0 +1,180 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.timing.MBeans;
+
+import org.dom4j.Attribute;
+import org.dom4j.Element;
+import org.dom4j.Node;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Least recently used cache for built DOM-trees of cacheable buildables.
+ *
+ * <p>
+ *  The size of the cache is measured as approximate number of characters
+ *  in cached trees. Stored and returned elements are copies, so cached
+ *  elements are never attached to any document.
+ * </p>
+ * 
+ * <p>
+ *  When render timing is enabled, statistics are registered to platform MBean server 
+ *  as <code>net.contextfw:type=FragmentCache,application=&lt;name&gt;</code>.
+ * </p>
+ */
+@Singleton
+public class FragmentCache implements FragmentCacheMXBean {
+
+    private final int maxWeight;
+
+    private final LinkedHashMap<Object, Entry> entries =
+            new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+    private long weight = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static class Entry {
+        private final Element element;
+        private final int weight;
+
+        Entry(Element element, int weight) {
+            this.element = element;
+            this.weight = weight;
+        }
+    }
+
+    @Inject
+    public FragmentCache(Configuration configuration) {
+        this(configuration.getOrElse(Configuration.FRAGMENT_CACHE_SIZE, 0));
+        if (isEnabled() && configuration.getOrElse(Configuration.RENDER_TIMING, false)) {
+            MBeans.register(this, "FragmentCache", 
+                    configuration.getOrElse(Configuration.APPLICATION_NAME, null));
+        }
+    }
+
+    public FragmentCache(int maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns a copy of cached element or <code>null</code> if not found
+     */
+    public Element get(Object key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return entry.element.createCopy();
+    }
+
+    public void put(Object key, Element element) {
+        Element copy = element.createCopy();
+        int w = weigh(copy);
+        if (w > maxWeight) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(copy, w));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += w;
+            Iterator<Entry> iter = entries.values().iterator();
+            while (weight > maxWeight && iter.hasNext()) {
+                weight -= iter.next().weight;
+                iter.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxWeight > 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int weigh(Element element) {
+        int w = element.getName().length() * 2 + 5;
+        for (Attribute attribute : (List<Attribute>) element.attributes()) {
+            w += attribute.getName().length() + attribute.getValue().length() + 4;
+        }
+        for (Iterator<Node> iter = element.nodeIterator(); iter.hasNext();) {
+            Node node = iter.next();
+            if (node instanceof Element) {
+                w += weigh((Element) node);
+            } else {
+                String text = node.getText();
+                w += text == null ? 0 : text.length();
+            }
+        }
+        return w;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FragmentCache[size=" + entries.size() + ", weight=" + weight
+                + "/" + maxWeight + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+/**
+ * Management interface for the fragment cache.
+ */
+public interface FragmentCacheMXBean {
+
+    /**
+     * Returns the number of lookups that found a cached tree
+     */
+    long getHits();
+
+    /**
+     * Returns the number of lookups that did not find a cached tree
+     */
+    long getMisses();
+
+    /**
+     * Returns the number of trees removed to keep the cache within its size
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of cached trees
+     */
+    int getSize();
+
+    /**
+     * Returns the approximate number of characters in cached trees
+     */
+    long getWeight();
+
+    /**
+     * Removes all cached trees
+     */
+    void clear();
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import net.contextfw.web.application.component.DOMBuilder;
+
+/**
+ * Builder that is generated at compile time by 
+ * {@link net.contextfw.web.application.processor.BuildableProcessor}.
+ * 
+ * <p>
+ *  Implementation is generated in the same package as the class it builds and is named
+ *  after the binary name of the class with suffix <code>$$Builder</code>. Members are
+ *  identified by the name of the field or the name of the method followed by 
+ *  <code>()</code>.
+ * </p>
+ */
+public interface GeneratedBuilder {
+
+    /**
+     * Builds the parts of a member whose value is read by the generated builder.
+     */
+    interface Calls {
+
+        /**
+         * Builds the value of the property at given index of the build order
+         */
+        void property(int index, DOMBuilder b, Object buildable, Object value);
+
+        /**
+         * Builds the member at given index of the build order, when the generated builder
+         * cannot access it directly
+         */
+        void member(int index, DOMBuilder b, Object buildable);
+
+        /**
+         * @return
+         *   The builder that the custom build method at given index is invoked with
+         */
+        DOMBuilder custom(int index, DOMBuilder b);
+    }
+
+    /**
+     * @return
+     *   The names of built fields and methods of the class and its superclasses in the 
+     *   order they are built or <code>null</code> if class is not buildable
+     */
+    String[] getBuildOrder();
+
+    /**
+     * Builds the members that are built on create in the build order.
+     */
+    void build(Object target, DOMBuilder b, Calls calls);
+
+    /**
+     * @return
+     *   The accessor of a member declared by the class or <code>null</code> if member 
+     *   cannot be accessed directly
+     */
+    Accessor getAccessor(String member);
+
+    /**
+     * Sets the value of a path or request parameter declared by the class.
+     * 
+     * @return
+     *   <code>false</code> if member cannot be set directly
+     */
+    boolean setParam(Object target, String member, Object value);
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.InternalWebApplicationException;
+
+final class GeneratedPropertyAccess implements PropertyAccess<Object> {
+
+    private final Accessor accessor;
+
+    public GeneratedPropertyAccess(Accessor accessor) {
+        this.accessor = accessor;
+    }
+
+    @Override
+    public Object getValue(Object obj) {
+        try {
+            return accessor.access(obj);
+        } catch (WebApplicationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InternalWebApplicationException(e);
+        }
+    }
+}
@@ -17,39 +17,196 @@
 
 package net.contextfw.web.application.internal.component;
 
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.ComponentRegister;
 import net.contextfw.web.application.lifecycle.PageScoped;
 
+/**
+ * Register of the components in a page
+ * 
+ * <p>
+ *  Generated ids are of form <code>c[n]</code>, and components having them are stored in an array 
+ *  indexed by <code>n - base</code>. Ids are never reused, because an unregistered component keeps 
+ *  its id and stale requests must not reach another component. Strings of small ids are shared 
+ *  between pages. Components with custom ids are kept in a separate map. 
+ * </p>
+ * <p>
+ *  When the array is full but mostly empty, it is not grown. Instead remaining components are 
+ *  moved to the map and the array starts again from the next id, so that a page that keeps 
+ *  creating and detaching components does not grow the array with every id.
+ * </p>
+ */
 @PageScoped
 public class InternalComponentRegister implements ComponentRegister {
 
+    private static final int SHARED_IDS = 1024;
+
+    private static final String[] IDS = new String[SHARED_IDS];
+
+    static {
+        for (int i = 0; i < SHARED_IDS; i++) {
+            IDS[i] = "c" + i;
+        }
+    }
+
     private int idCounter = 0;
 
-    private Map<String, Component> components = new HashMap<String, Component>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Component[] components = new Component[INITIAL_CAPACITY];
+
+    // The index of the first generated id in the array
+    private int base = 0;
+
+    private int size = 0;
+
+    private Map<String, Component> customComponents = null;
+
+    private final Collection<Component> view = new AbstractCollection<Component>() {
+
+        @Override
+        public Iterator<Component> iterator() {
+            return new ComponentIterator();
+        }
+
+        @Override
+        public int size() {
+            return size + (customComponents == null ? 0 : customComponents.size());
+        }
+    };
+
+    private int getNextIndex() {
+        int index = idCounter++;
+        while (customComponents != null && customComponents.containsKey(toId(index))) {
+            index = idCounter++;
+        }
+        return index;
+    }
+
+    private static String toId(int index) {
+        return index < SHARED_IDS ? IDS[index] : "c" + index;
+    }
 
-    private String getNextId() {
-        return "c" + idCounter++;
+    /**
+     * Parses the index from a generated id without allocating.
+     * 
+     * @return
+     *      The index or <code>-1</code> if id is not of generated form 
+     */
+    static int parseIndex(String id) {
+        int length = id.length();
+        if (length < 2 || length > 10 || id.charAt(0) != 'c' 
+                || (length > 2 && id.charAt(1) == '0')) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 1; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
     }
 
     public void register(Component component) {
         
         if (component.getId() == null) {
-            component.setId(getNextId());
+            int index = getNextIndex();
+            component.setId(toId(index));
+            if (index - base >= components.length) {
+                ensureCapacity(index);
+            }
+            components[index - base] = component;
+            size++;
+        } else {
+            int index = parseIndex(component.getId());
+            boolean inArray = index >= base && index < idCounter;
+            if (inArray && components[index - base] == null) {
+                components[index - base] = component;
+                size++;
+            } else if (!inArray || components[index - base] != component) {
+                putCustom(component);
+            }
         }
-        
-        components.put(component.getId(), component);
+    }
+
+    private void ensureCapacity(int index) {
+        if (size * 4 < components.length) {
+            for (Component component : components) {
+                if (component != null) {
+                    putCustom(component);
+                }
+            }
+            Arrays.fill(components, null);
+            size = 0;
+            base = index;
+        } else {
+            components = Arrays.copyOf(components, 
+                    Math.max(index - base + 1, components.length * 2));
+        }
+    }
+
+    private void putCustom(Component component) {
+        if (customComponents == null) {
+            customComponents = new HashMap<String, Component>();
+        }
+        customComponents.put(component.getId(), component);
     }
 
     public void unregister(Component component) {
-        components.remove(component.getId());
+        if (component.getId() == null) {
+            return;
+        }
+        int slot = getSlot(component.getId());
+        if (slot >= 0 && components[slot] == component) {
+            components[slot] = null;
+            size--;
+        } else if (customComponents != null) {
+            customComponents.remove(component.getId());
+        }
+    }
+
+    /**
+     * @return
+     *      The array slot of a generated id currently in use or <code>-1</code>
+     */
+    private int getSlot(String id) {
+        int index = parseIndex(id);
+        return index >= base && index < idCounter && components[index - base] != null 
+                ? index - base : -1;
+    }
+
+    /**
+     * Returns the length of the array of generated ids
+     */
+    int getCapacity() {
+        return components.length;
     }
 
     public Component findComponent(String id) {
-        return components.get(id);
+        int slot = getSlot(id);
+        if (slot >= 0) {
+            return components[slot];
+        }
+        return customComponents == null ? null : customComponents.get(id);
+    }
+
+    /**
+     * Returns a view of registered components. The view must not be used while components
+     * are being registered or unregistered.
+     */
+    public Collection<Component> getComponents() {
+        return view;
     }
 
     @SuppressWarnings("unchecked")
@@ -57,4 +214,55 @@ public class InternalComponentRegister implements ComponentRegister {
     public <C extends Component> C findComponent(Class<C> cl, String id) {
         return (C) findComponent(id);
     }
-}
\ No newline at end of file
+
+    private class ComponentIterator implements Iterator<Component> {
+
+        private int slot = -1;
+
+        private final int limit = idCounter - base;
+
+        private Iterator<Component> custom = null;
+
+        private ComponentIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                slot++;
+            } while (slot < limit && components[slot] == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (slot < limit) {
+                return true;
+            }
+            if (custom == null) {
+                if (customComponents == null) {
+                    return false;
+                }
+                custom = customComponents.values().iterator();
+            }
+            return custom.hasNext();
+        }
+
+        @Override
+        public Component next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (slot < limit) {
+                Component component = components[slot];
+                advance();
+                return component;
+            }
+            return custom.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
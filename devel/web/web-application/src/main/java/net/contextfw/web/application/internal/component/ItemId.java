@@ -0,0 +1,34 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+
+/**
+ * Buildin that adds the DOM id of a keyed item to the item
+ */
+@Buildable
+public final class ItemId {
+
+    @Attribute
+    private final String itemId;
+
+    ItemId(String itemId) {
+        this.itemId = itemId;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.Keyed;
+
+/**
+ * Keys and versions of a keyed collection as they were last built.
+ * 
+ * <p>
+ *  Differences between two snapshots are expressed as operations that transform the 
+ *  previous collection into the next one. Items that belong to the longest increasing 
+ *  subsequence of previous positions keep their places, so the number of moves is minimal.
+ * </p>
+ */
+public final class KeyedSnapshot {
+
+    enum Type {
+        REMOVE, INSERT, MOVE, CHANGE
+    }
+
+    static final class Operation {
+
+        final Type type;
+
+        /**
+         * Index in the previous snapshot for removals, otherwise in the next snapshot 
+         */
+        final int index;
+
+        Operation(Type type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    private final String[] keys;
+
+    private final long[] versions;
+
+    KeyedSnapshot(List<? extends Keyed> items) {
+        int size = items.size();
+        keys = new String[size];
+        versions = new long[size];
+        for (int i = 0; i < size; i++) {
+            Keyed item = items.get(i);
+            keys[i] = item.getKey();
+            versions[i] = item.getVersion();
+        }
+    }
+
+    String getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns operations in order they must be applied: removals first and then 
+     * the rest in the order of the next snapshot. Insertions and moves are placed after the previous 
+     * item in the next snapshot.
+     */
+    List<Operation> diff(KeyedSnapshot next) {
+
+        Map<String, Integer> indexes = new HashMap<String, Integer>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            indexes.put(keys[i], i);
+        }
+
+        int[] sources = new int[next.keys.length];
+        boolean[] kept = new boolean[keys.length];
+        Map<String, Boolean> seen = new HashMap<String, Boolean>(next.keys.length * 2);
+
+        for (int i = 0; i < sources.length; i++) {
+            if (seen.put(next.keys[i], Boolean.TRUE) != null) {
+                throw new WebApplicationException("Duplicate key in keyed collection: " + next.keys[i]);
+            }
+            Integer source = indexes.get(next.keys[i]);
+            if (source == null) {
+                sources[i] = -1;
+            } else {
+                sources[i] = source;
+                kept[source] = true;
+            }
+        }
+
+        List<Operation> operations = new ArrayList<Operation>();
+
+        for (int i = 0; i < kept.length; i++) {
+            if (!kept[i]) {
+                operations.add(new Operation(Type.REMOVE, i));
+            }
+        }
+
+        boolean[] stable = findStable(sources);
+
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] < 0) {
+                operations.add(new Operation(Type.INSERT, i));
+            } else {
+                if (!stable[i]) {
+                    operations.add(new Operation(Type.MOVE, i));
+                }
+                if (versions[sources[i]] != next.versions[i]) {
+                    operations.add(new Operation(Type.CHANGE, i));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Marks the longest increasing subsequence of sources, ignoring negative values
+     */
+    private static boolean[] findStable(int[] sources) {
+        int[] tails = new int[sources.length];
+        int[] previous = new int[sources.length];
+        int length = 0;
+
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] >= 0) {
+                int low = 0;
+                int high = length;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (sources[tails[middle]] < sources[i]) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                previous[i] = low > 0 ? tails[low - 1] : -1;
+                tails[low] = i;
+                if (low == length) {
+                    length++;
+                }
+            }
+        }
+
+        boolean[] stable = new boolean[sources.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stable[i] = true;
+        }
+        return stable;
+    }
+}
@@ -18,9 +18,18 @@
 package net.contextfw.web.application.internal.component;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,16 +41,23 @@ import javax.servlet.http.HttpServletRequest;
 import net.contextfw.web.application.WebApplicationException;
 import net.contextfw.web.application.component.Attribute;
 import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.CacheKey;
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.CustomBuild;
+import net.contextfw.web.application.component.DOMBuilder;
 import net.contextfw.web.application.component.Element;
+import net.contextfw.web.application.component.Keyed;
 import net.contextfw.web.application.component.ScriptContext;
 import net.contextfw.web.application.component.ScriptElement;
 import net.contextfw.web.application.internal.servlet.UriMapping;
+import net.contextfw.web.application.internal.util.AttributeHandler;
+import net.contextfw.web.application.internal.util.ParamConverters;
 import net.contextfw.web.application.lifecycle.AfterBuild;
 import net.contextfw.web.application.lifecycle.BeforeBuild;
+import net.contextfw.web.application.remote.ParamConverter;
 import net.contextfw.web.application.remote.PathParam;
 import net.contextfw.web.application.remote.RequestParam;
+import net.contextfw.web.application.serialize.AttributeSerializer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,24 +66,11 @@ import com.google.gson.Gson;
 
 public final class MetaComponent {
 
-    private static Map<Class<?>, Class<?>> primitives = new HashMap<Class<?>, Class<?>>();
-
-    static {
-        primitives.put(boolean.class, Boolean.class);
-        primitives.put(byte.class, Byte.class);
-        primitives.put(char.class, Character.class);
-        primitives.put(short.class, Short.class);
-        primitives.put(int.class, Integer.class);
-        primitives.put(long.class, Long.class);
-        primitives.put(float.class, Float.class);
-        primitives.put(double.class, Double.class);
-    }
-
     Logger log = LoggerFactory.getLogger(MetaComponent.class);
 
     private final Set<String> registeredNames = new HashSet<String>();
-    private final List<Method> beforeBuilds = new ArrayList<Method>();
-    private final List<Method> afterBuilds = new ArrayList<Method>();
+    private final List<MethodInvoker> beforeBuilds = new ArrayList<MethodInvoker>();
+    private final List<MethodInvoker> afterBuilds = new ArrayList<MethodInvoker>();
     public final List<Builder> builders = new ArrayList<Builder>();
     public final List<Builder> updateBuilders = new ArrayList<Builder>();
     public final List<Builder> partialBuilders = new ArrayList<Builder>();
@@ -75,8 +78,16 @@ public final class MetaComponent {
     private final List<Method> pathParamMethods = new ArrayList<Method>();
     private final List<Field> requestParamFields = new ArrayList<Field>();
     private final List<Method> requestParamMethods = new ArrayList<Method>();
+    private final Map<Member, ParamConverter<Object>> paramConverters = 
+        new HashMap<Member, ParamConverter<Object>>();
+    private final Map<Member, GeneratedBuilder> paramSetters = 
+        new HashMap<Member, GeneratedBuilder>();
+    private final List<PropertyBuilder> trackedBuilders = new ArrayList<PropertyBuilder>();
     private final List<Field> autoregisterFields = new ArrayList<Field>();
     private final List<Field> fields = new ArrayList<Field>();
+    private MethodInvoker cacheKey = null;
+    private GeneratedBuilder generatedBuilder = null;
+    private Builder[] generatedOrder = null;
     
     public final String buildName;
     public final Buildable annotation;
@@ -85,12 +96,54 @@ public final class MetaComponent {
     private final ComponentBuilder componentBuilder;
     private final Gson gson;
     private final ScriptContext scriptContext;
+    private final AccessorGenerator generator;
+    private final ParamConverters converters;
+    private final AttributeHandler attributeHandler;
 
     public MetaComponent(Class<?> rawCl,
                          ComponentBuilder componentBuilder,
                          Gson gson,
                          ScriptContext scriptContext) {
+        this(rawCl, componentBuilder, gson, scriptContext, true);
+    }
+
+    public MetaComponent(Class<?> rawCl,
+                         ComponentBuilder componentBuilder,
+                         Gson gson,
+                         ScriptContext scriptContext,
+                         boolean generateAccessors) {
+        this(rawCl, componentBuilder, gson, scriptContext, generateAccessors, 
+                new ParamConverters(gson));
+    }
+
+    public MetaComponent(Class<?> rawCl,
+                         ComponentBuilder componentBuilder,
+                         Gson gson,
+                         ScriptContext scriptContext,
+                         boolean generateAccessors,
+                         ParamConverters converters) {
+        this(rawCl, componentBuilder, gson, scriptContext, generateAccessors, converters, null);
+    }
+
+    /**
+     * @param generateAccessors
+     *      Whether public properties and lifecycle methods are accessed with generated 
+     *      accessors instead of reflection
+     * @param attributeHandler
+     *      The handler that attributes are serialized with or <code>null</code> if 
+     *      attributes are serialized by the <code>DOMBuilder</code>
+     */
+    public MetaComponent(Class<?> rawCl,
+                         ComponentBuilder componentBuilder,
+                         Gson gson,
+                         ScriptContext scriptContext,
+                         boolean generateAccessors,
+                         ParamConverters converters,
+                         AttributeHandler attributeHandler) {
         cl = getActualClass(rawCl);
+        this.converters = converters;
+        this.attributeHandler = attributeHandler;
+        this.generator = generateAccessors ? new AccessorGenerator(cl) : null;
         this.componentBuilder = componentBuilder;
         this.gson = gson;
         this.scriptContext = scriptContext;
@@ -99,14 +152,55 @@ public final class MetaComponent {
             buildName = getBuildableName();
             iterateFields();
             iterateMethods();
+            setupGeneratedBuilder();
+            checkCacheable();
+            checkIndependent();
+            setupChangeTracking();
         } else {
             buildName = null;
         }
     }
 
+    /**
+     * Serializer is resolved beforehand only if all values of the declared type have 
+     * the same serializer.
+     */
+    private AttributeSerializer<Object> getAttributeSerializer(Class<?> declaredType) {
+        if (attributeHandler == null) {
+            return null;
+        } else if (AttributeHandler.isExactType(declaredType)) {
+            return attributeHandler.getSerializer(declaredType);
+        } else {
+            return attributeHandler;
+        }
+    }
+
+    private PropertyAccess<Object> createPropertyAccess(Field field) {
+        Accessor accessor = generator == null ? null : generator.generate(field);
+        if (accessor == null) {
+            return new FieldPropertyAccess<Object>(field);
+        } else {
+            return new GeneratedPropertyAccess(accessor);
+        }
+    }
+
+    private PropertyAccess<Object> createPropertyAccess(Method method) {
+        PropertyAccess<Object> reflective = new MethodPropertyAccess(method);
+        Accessor accessor = generator == null ? null : generator.generate(method);
+        if (accessor == null) {
+            return reflective;
+        } else {
+            return new GeneratedPropertyAccess(accessor);
+        }
+    }
+
+    private MethodInvoker createInvoker(Method method) {
+        return new MethodInvoker(method, 
+                generator == null ? null : generator.generate(method));
+    }
+
     private boolean processFieldBuilders(Field field) {
-        PropertyAccess<Object> propertyAccess =
-                new FieldPropertyAccess<Object>(field);
+        PropertyAccess<Object> propertyAccess = createPropertyAccess(field);
 
         String name = null;
         Builder builder = null;
@@ -116,7 +210,8 @@ public final class MetaComponent {
             name = "".equals(element.name()) ? field.getName()
                     : element.name();
             builder = new ElementBuilder(componentBuilder, propertyAccess,
-                    element.wrap() ? name : null, field.getName());
+                    element.wrap() ? name : null, field.getName(), 
+                    isKeyedCollection(field.getGenericType()));
             addToBuilders(element.onCreate(), element.onUpdate(), builder);
             if (element.autoRegister()) {
                 autoregisterFields.add(field);
@@ -126,7 +221,7 @@ public final class MetaComponent {
             name = "".equals(attribute.name()) ? field.getName()
                     : attribute.name();
             builder = new AttributeBuilder(propertyAccess, name,
-                    field.getName());
+                    field.getName(), getAttributeSerializer(field.getType()));
             addToBuilders(attribute.onCreate(), attribute.onUpdate(), builder);
         } else if (field.getAnnotation(ScriptElement.class) != null) {
             ScriptElement scriptElement = field
@@ -140,6 +235,36 @@ public final class MetaComponent {
         return builder != null;
     }
 
+    /**
+     * Returns <code>true</code> if type is an array or an iterable whose declared element 
+     * type is keyed
+     */
+    private static boolean isKeyedCollection(Type type) {
+        Type elementType = null;
+        if (type instanceof Class && ((Class<?>) type).isArray()) {
+            elementType = ((Class<?>) type).getComponentType();
+        } else if (type instanceof GenericArrayType) {
+            elementType = ((GenericArrayType) type).getGenericComponentType();
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            if (parameterized.getRawType() instanceof Class
+                    && Iterable.class.isAssignableFrom((Class<?>) parameterized.getRawType())
+                    && parameterized.getActualTypeArguments().length == 1) {
+                elementType = parameterized.getActualTypeArguments()[0];
+            }
+        }
+        if (elementType instanceof WildcardType) {
+            elementType = ((WildcardType) elementType).getUpperBounds()[0];
+        } else if (elementType instanceof TypeVariable) {
+            elementType = ((TypeVariable<?>) elementType).getBounds()[0];
+        }
+        if (elementType instanceof ParameterizedType) {
+            elementType = ((ParameterizedType) elementType).getRawType();
+        }
+        return elementType instanceof Class 
+                && Keyed.class.isAssignableFrom((Class<?>) elementType);
+    }
+
     private boolean processMethodBuilders(Method method) {
         String name = null;
         Builder builder = null;
@@ -148,18 +273,17 @@ public final class MetaComponent {
             Element element = method.getAnnotation(Element.class);
             name = "".equals(element.name()) ? method.getName()
                     : element.name();
-            builder = new ElementBuilder(componentBuilder, new MethodPropertyAccess(
-                    method),
-                    element.wrap() ? name : null, method.getName());
+            builder = new ElementBuilder(componentBuilder, createPropertyAccess(method),
+                    element.wrap() ? name : null, method.getName(), 
+                    isKeyedCollection(method.getGenericReturnType()));
             addToBuilders(element.onCreate(), element.onUpdate(), builder);
         } else if (method.getAnnotation(Attribute.class) != null) {
             Attribute attribute = method
                     .getAnnotation(Attribute.class);
             name = "".equals(attribute.name()) ? method.getName()
                     : attribute.name();
-            builder = new AttributeBuilder(new MethodPropertyAccess(
-                    method), name,
-                    method.getName());
+            builder = new AttributeBuilder(createPropertyAccess(method), name,
+                    method.getName(), getAttributeSerializer(method.getReturnType()));
             addToBuilders(attribute.onCreate(), attribute.onUpdate(), builder);
         } else if (method.getAnnotation(CustomBuild.class) != null) {
             CustomBuild customBuild = method
@@ -174,12 +298,84 @@ public final class MetaComponent {
                     .getAnnotation(ScriptElement.class);
             name = scriptElement.wrapper();
             builder = new ScriptElementBuilder(scriptContext, gson,
-                    new MethodPropertyAccess(method), name, method.getName());
+                    createPropertyAccess(method), name, method.getName());
             addToBuilders(scriptElement.onCreate(), scriptElement.onUpdate(), builder);
         }
         return builder != null;
     }
 
+    private final GeneratedBuilder.Calls calls = new GeneratedBuilder.Calls() {
+        @Override
+        public void property(int index, DOMBuilder b, Object buildable, Object value) {
+            ((PropertyBuilder) generatedOrder[index]).build(b, buildable, value, false);
+        }
+
+        @Override
+        public void member(int index, DOMBuilder b, Object buildable) {
+            generatedOrder[index].build(b, buildable);
+        }
+
+        @Override
+        public DOMBuilder custom(int index, DOMBuilder b) {
+            return ((MethodCustomBuilder) generatedOrder[index]).descend(b);
+        }
+    };
+
+    /**
+     * Takes the builder generated at compile time into use, if it builds the same members
+     * that were found. Builders are then ordered as declared in the source.
+     */
+    private void setupGeneratedBuilder() {
+        GeneratedBuilder generated = generator == null ? null : generator.getGenerated(cl);
+        String[] order = generated == null ? null : generated.getBuildOrder();
+        if (order == null) {
+            return;
+        }
+        List<String> names = Arrays.asList(order);
+        final Map<Builder, Integer> indexes = new HashMap<Builder, Integer>();
+        Builder[] ordered = new Builder[order.length];
+        for (Builder builder : partialBuilders) {
+            int index = names.indexOf(builder.getAccessName());
+            if (index < 0 || order.length != partialBuilders.size()) {
+                log.warn("Generated builder of " + cl.getName() 
+                        + " is out of date, using reflection");
+                return;
+            }
+            ordered[index] = builder;
+            indexes.put(builder, index);
+        }
+        Comparator<Builder> comparator = new Comparator<Builder>() {
+            @Override
+            public int compare(Builder b1, Builder b2) {
+                return indexes.get(b1) - indexes.get(b2);
+            }
+        };
+        Collections.sort(builders, comparator);
+        Collections.sort(updateBuilders, comparator);
+        Collections.sort(partialBuilders, comparator);
+        generatedBuilder = generated;
+        generatedOrder = ordered;
+    }
+
+    /**
+     * Builds the members that are built on create
+     */
+    public void build(DOMBuilder b, Object obj) {
+        if (generatedBuilder == null) {
+            for (Builder builder : builders) {
+                builder.build(b, obj);
+            }
+        } else {
+            try {
+                generatedBuilder.build(obj, b, calls);
+            } catch (WebApplicationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new WebApplicationException(e);
+            }
+        }
+    }
+
     private boolean canProcess(Field field) {
         return !registeredNames.contains(field.getName());
     }
@@ -234,6 +430,9 @@ public final class MetaComponent {
                 if (canProcess(method) && processAfterBuilds(method)) {
                     setProcessed(method);
                 }
+                if (canProcess(method) && processCacheKey(method)) {
+                    setProcessed(method);
+                }
                 if (canProcess(method) && processPathParam(method)) {
                     setProcessed(method);
                 }
@@ -287,7 +486,7 @@ public final class MetaComponent {
 
     public boolean processBeforeBuilds(Method method) {
         if (method.getAnnotation(BeforeBuild.class) != null) {
-            beforeBuilds.add(method);
+            beforeBuilds.add(createInvoker(method));
             return true;
         } else {
             return false;
@@ -296,27 +495,132 @@ public final class MetaComponent {
 
     public boolean processAfterBuilds(Method method) {
         if (method.getAnnotation(AfterBuild.class) != null) {
-            afterBuilds.add(method);
+            afterBuilds.add(createInvoker(method));
             return true;
         } else {
             return false;
         }
     }
 
+    public boolean processCacheKey(Method method) {
+        if (method.getAnnotation(CacheKey.class) != null) {
+            if (method.getParameterTypes().length != 0) {
+                throw new WebApplicationException(method,
+                        "@CacheKey annotated method must not take parameters", null);
+            }
+            if (cacheKey == null) {
+                cacheKey = createInvoker(method);
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void checkCacheable() {
+        if (annotation.cacheable()) {
+            if (buildName == null) {
+                throw new WebApplicationException(cl, 
+                        "Cacheable buildable must be wrapped", null);
+            }
+            if (cacheKey == null) {
+                throw new WebApplicationException(cl, 
+                        "Cacheable buildable does not have @CacheKey annotated method", null);
+            }
+            if (!isReplayable()) {
+                throw new WebApplicationException(cl, 
+                        "Cacheable buildable cannot be a component or have build callbacks", null);
+            }
+        }
+    }
+
+    private void checkIndependent() {
+        if (annotation.independent() && buildName == null) {
+            throw new WebApplicationException(cl, 
+                    "Independent buildable must be wrapped", null);
+        }
+        if (annotation.deferred() && (buildName == null || !Component.class.isAssignableFrom(cl))) {
+            throw new WebApplicationException(cl, 
+                    "Deferred buildable must be a wrapped component", null);
+        }
+    }
+
+    private void setupChangeTracking() {
+        if (!"".equals(annotation.trackChanges())) {
+            if (buildName == null) {
+                throw new WebApplicationException(cl, 
+                        "Buildable tracking changes must be wrapped", null);
+            }
+            if (!Component.class.isAssignableFrom(cl)) {
+                throw new WebApplicationException(cl, 
+                        "Buildable tracking changes must be a component", null);
+            }
+            for (Builder builder : builders) {
+                if ((builder instanceof AttributeBuilder || builder instanceof ElementBuilder)
+                        && updateBuilders.contains(builder)) {
+                    ((PropertyBuilder) builder).setTrackIndex(trackedBuilders.size());
+                    trackedBuilders.add((PropertyBuilder) builder);
+                }
+            }
+        }
+    }
+
+    public boolean isTrackingChanges() {
+        return !trackedBuilders.isEmpty();
+    }
+
+    public ChangeSnapshot createChangeSnapshot() {
+        return new ChangeSnapshot(trackedBuilders.size());
+    }
+
+    /**
+     * Returns the names of tracked properties that have changed since they were last built
+     */
+    public List<String> findChanges(Component component, ChangeSnapshot snapshot) {
+        List<String> changes = new ArrayList<String>();
+        for (PropertyBuilder builder : trackedBuilders) {
+            if (builder.isChanged(component, snapshot)) {
+                changes.add(builder.getAccessName());
+            }
+        }
+        return changes;
+    }
+
+    public boolean isCacheable() {
+        return cacheKey != null && annotation.cacheable();
+    }
+
+    /**
+     * Returns <code>true</code> if a cached tree of the object can be used instead of 
+     * building it. Components have ids and snapshots, and callbacks must be invoked on 
+     * every build, so they cannot be replayed.
+     */
+    public boolean isReplayable() {
+        return !Component.class.isAssignableFrom(cl) 
+                && beforeBuilds.isEmpty() && afterBuilds.isEmpty();
+    }
+
+    /**
+     * Returns the cache key of the object or <code>null</code> if object is not cacheable
+     */
+    public Object getCacheKey(Object obj) {
+        if (!isCacheable()) {
+            return null;
+        }
+        return cacheKey.invoke(obj);
+    }
+
     public boolean processPathParam(Field field) {
         if (field.isAnnotationPresent(PathParam.class)) {
-            if (!primitives.containsKey(field.getType())) {
-                try {
-                    field.getType().getConstructor(String.class);
-                } catch (SecurityException e) {
-                    throw new WebApplicationException(e);
-                } catch (NoSuchMethodException e) {
-                    throw new WebApplicationException(field,
-                            "@PathParam-annotated field " +
-                                    "type does not contain constructor " +
-                                    "having String as parameter", e);
-                }
+            ParamConverter<Object> converter = converters.getConverter(field.getType());
+            if (converter == null) {
+                throw new WebApplicationException(field,
+                        "@PathParam-annotated field " +
+                                "type does not contain constructor " +
+                                "having String as parameter", null);
             }
+            paramConverters.put(field, converter);
+            addParamSetter(field);
             pathParamFields.add(field);
             return true;
         } else {
@@ -326,18 +630,15 @@ public final class MetaComponent {
     
     public boolean processRequestParam(Field field) {
         if (field.isAnnotationPresent(RequestParam.class)) {
-            if (!primitives.containsKey(field.getType())) {
-                try {
-                    field.getType().getConstructor(String.class);
-                } catch (SecurityException e) {
-                    throw new WebApplicationException(e);
-                } catch (NoSuchMethodException e) {
-                    throw new WebApplicationException(field,
-                            "@RequestParam-annotated field " +
-                                    "type does not contain constructor " +
-                                    "having String as parameter", e);
-                }
+            ParamConverter<Object> converter = converters.getConverter(field.getType());
+            if (converter == null) {
+                throw new WebApplicationException(field,
+                        "@RequestParam-annotated field " +
+                                "type does not contain constructor " +
+                                "having String as parameter", null);
             }
+            paramConverters.put(field, converter);
+            addParamSetter(field);
             requestParamFields.add(field);
             return true;
         } else {
@@ -352,18 +653,15 @@ public final class MetaComponent {
                 throw new WebApplicationException(method,
                         "@PathParam annotated method does not take 1 parameter", null);
             }
-            if (!primitives.containsKey(types[0])) {
-                try {
-                    types[0].getConstructor(String.class);
-                } catch (SecurityException e) {
-                    throw new WebApplicationException(e);
-                } catch (NoSuchMethodException e) {
-                    throw new WebApplicationException(method,
-                            "@PathParam-annotated method parameter " +
-                                    "type does not contain constructor " +
-                                    "having String as parameter", e);
-                }
+            ParamConverter<Object> converter = converters.getConverter(types[0]);
+            if (converter == null) {
+                throw new WebApplicationException(method,
+                        "@PathParam-annotated method parameter " +
+                                "type does not contain constructor " +
+                                "having String as parameter", null);
             }
+            paramConverters.put(method, converter);
+            addParamSetter(method);
             pathParamMethods.add(method);
             return true;
         } else {
@@ -378,18 +676,15 @@ public final class MetaComponent {
                 throw new WebApplicationException(method,
                         "@RequestParam annotated method does not take 1 parameter", null);
             }
-            if (!primitives.containsKey(types[0])) {
-                try {
-                    types[0].getConstructor(String.class);
-                } catch (SecurityException e) {
-                    throw new WebApplicationException(e);
-                } catch (NoSuchMethodException e) {
-                    throw new WebApplicationException(method,
-                            "@RequestParam-annotated method parameter " +
-                                    "type does not contain constructor " +
-                                    "having String as parameter", e);
-                }
+            ParamConverter<Object> converter = converters.getConverter(types[0]);
+            if (converter == null) {
+                throw new WebApplicationException(method,
+                        "@RequestParam-annotated method parameter " +
+                                "type does not contain constructor " +
+                                "having String as parameter", null);
             }
+            paramConverters.put(method, converter);
+            addParamSetter(method);
             requestParamMethods.add(method);
             return true;
         } else {
@@ -397,31 +692,38 @@ public final class MetaComponent {
         }
     }
 
+    private void addParamSetter(Member member) {
+        GeneratedBuilder generated = generator == null ? null 
+                : generator.getGenerated(member.getDeclaringClass());
+        if (generated != null) {
+            paramSetters.put(member, generated);
+        }
+    }
+
+    private void setParam(Field field, Object obj, Object value) throws IllegalAccessException {
+        GeneratedBuilder generated = paramSetters.get(field);
+        if (generated == null || !generated.setParam(obj, field.getName(), value)) {
+            field.set(obj, value);
+        }
+    }
+
+    private void setParam(Method method, Object obj, Object value) 
+            throws IllegalAccessException, InvocationTargetException {
+        GeneratedBuilder generated = paramSetters.get(method);
+        if (generated == null || !generated.setParam(obj, method.getName() + "()", value)) {
+            method.invoke(obj, value);
+        }
+    }
+
     public void applyBeforeBuilds(Object obj) {
-        for (Method method : beforeBuilds) {
-            try {
-                method.invoke(obj);
-            } catch (IllegalArgumentException e) {
-                throw new WebApplicationException(e);
-            } catch (IllegalAccessException e) {
-                throw new WebApplicationException(e);
-            } catch (InvocationTargetException e) {
-                throw new WebApplicationException(e);
-            }
+        for (MethodInvoker invoker : beforeBuilds) {
+            invoker.invoke(obj);
         }
     }
 
     public void applyAfterBuilds(Object obj) {
-        for (Method method : afterBuilds) {
-            try {
-                method.invoke(obj);
-            } catch (IllegalArgumentException e) {
-                throw new WebApplicationException(e);
-            } catch (IllegalAccessException e) {
-                throw new WebApplicationException(e);
-            } catch (InvocationTargetException e) {
-                throw new WebApplicationException(e);
-            }
+        for (MethodInvoker invoker : afterBuilds) {
+            invoker.invoke(obj);
         }
     }
 
@@ -431,10 +733,10 @@ public final class MetaComponent {
             RequestParam annotation = field.getAnnotation(RequestParam.class);
             String name = "".equals(annotation.name()) ? field.getName() : annotation.name();
             try {
-                field.set(obj, getValue(annotation,
-                                        field.getType(),
-                                        name,
-                                        request));
+                setParam(field, obj, getValue(annotation,
+                                              paramConverters.get(field),
+                                              name,
+                                              request));
             } catch (Exception e) {
                 if (e instanceof WebApplicationException) {
                     throw (RuntimeException) e;
@@ -447,10 +749,10 @@ public final class MetaComponent {
             RequestParam annotation = method.getAnnotation(RequestParam.class);
             String name = "".equals(annotation.name()) ? method.getName() : annotation.name();
             try {
-                method.invoke(obj, getValue(annotation,
-                                        method.getParameterTypes()[0],
-                                        name,
-                                        request));
+                setParam(method, obj, getValue(annotation,
+                                               paramConverters.get(method),
+                                               name,
+                                               request));
             } catch (Exception e) {
                 if (e instanceof WebApplicationException) {
                     throw (RuntimeException) e;
@@ -469,11 +771,11 @@ public final class MetaComponent {
             PathParam annotation = field.getAnnotation(PathParam.class);
             String name = "".equals(annotation.name()) ? field.getName() : annotation.name();
             try {
-                field.set(obj, getValue(annotation,
-                                        field.getType(),
-                                        name,
-                                        mapping,
-                                        uri));
+                setParam(field, obj, getValue(annotation,
+                                              paramConverters.get(field),
+                                              name,
+                                              mapping,
+                                              uri));
             } catch (Exception e) {
                 if (e instanceof WebApplicationException) {
                     throw (RuntimeException) e;
@@ -486,11 +788,11 @@ public final class MetaComponent {
             PathParam annotation = method.getAnnotation(PathParam.class);
             String name = "".equals(annotation.name()) ? method.getName() : annotation.name();
             try {
-                method.invoke(obj, getValue(annotation,
-                                        method.getParameterTypes()[0],
-                                        name,
-                                        mapping,
-                                        uri));
+                setParam(method, obj, getValue(annotation,
+                                               paramConverters.get(method),
+                                               name,
+                                               mapping,
+                                               uri));
             } catch (Exception e) {
                 if (e instanceof WebApplicationException) {
                     throw (RuntimeException) e;
@@ -502,7 +804,7 @@ public final class MetaComponent {
     }
 
     private Object getValue(RequestParam annotation,
-                            Class<?> type,
+                            ParamConverter<Object> converter,
                             String name, 
                             HttpServletRequest request) {
         
@@ -520,15 +822,9 @@ public final class MetaComponent {
             }
         }
         Object rv = null;
-        if (String.class == type) {
-            rv = val;
-        } else {
+        if (val != null) {
             try {
-                if (primitives.containsKey(type)) {
-                    rv = primitives.get(type).getConstructor(String.class).newInstance(val);
-                } else {
-                    rv = type.getConstructor(String.class).newInstance(val);
-                }
+                rv = converter.convert(val);
             } catch (Exception e) {
                 switch (annotation.onError()) {
                 case SET_TO_NULL:
@@ -545,7 +841,7 @@ public final class MetaComponent {
     }
     
     private Object getValue(PathParam annotation,
-                            Class<?> type,
+                            ParamConverter<Object> converter,
                             String name,
                             UriMapping mapping,
                             String uri) {
@@ -563,15 +859,9 @@ public final class MetaComponent {
             }
         }
         Object rv = null;
-        if (String.class == type) {
-            rv = val;
-        } else {
+        if (val != null) {
             try {
-                if (primitives.containsKey(type)) {
-                    rv = primitives.get(type).getConstructor(String.class).newInstance(val);
-                } else {
-                    rv = type.getConstructor(String.class).newInstance(val);
-                }
+                rv = converter.convert(val);
             } catch (Exception e) {
                 switch (annotation.onError()) {
                 case SET_TO_NULL:
@@ -43,10 +43,17 @@ class MethodCustomBuilder extends Builder {
         this.name = name;
     }
     
+    /**
+     * Returns the builder that the method is invoked with
+     */
+    DOMBuilder descend(DOMBuilder b) {
+        return name == null ? b : b.descend(name);
+    }
+
     @Override
     public void build(DOMBuilder b, Object buildable) {
         try {
-            method.invoke(buildable, name == null ? b : b.descend(name));
+            method.invoke(buildable, descend(b));
         }
         catch (RuntimeException e) {
             throw new WebApplicationException(e);
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import net.contextfw.web.application.WebApplicationException;
+
+/**
+ * Invokes a method without parameters using generated accessor if available.
+ */
+final class MethodInvoker {
+
+    private final Method method;
+
+    private final Accessor accessor;
+
+    /**
+     * @param accessor
+     *      The generated accessor or <code>null</code> if reflection is used
+     */
+    public MethodInvoker(Method method, Accessor accessor) {
+        this.method = method;
+        this.accessor = accessor;
+    }
+
+    public Object invoke(Object obj) {
+        if (accessor != null) {
+            try {
+                return accessor.access(obj);
+            } catch (Exception e) {
+                throw new WebApplicationException(e);
+            }
+        }
+        try {
+            return method.invoke(obj);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e);
+        } catch (IllegalAccessException e) {
+            throw new WebApplicationException(e);
+        } catch (InvocationTargetException e) {
+            throw new WebApplicationException(e);
+        }
+    }
+}
@@ -28,6 +28,10 @@ abstract class NamedBuilder extends PropertyBuilder {
         this.name = name;
     }
 
+    String getName() {
+        return name;
+    }
+
     @Override
     final void buildValue(DOMBuilder b, Object value) {
         buildNamedValue(b, name, value);
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.page.PageScope;
+import net.contextfw.web.application.internal.page.WebApplicationPage;
+
+import org.dom4j.Attribute;
+import org.dom4j.Element;
+import org.dom4j.Namespace;
+import org.dom4j.Node;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+/**
+ * Builds independent subtrees concurrently during a tree build.
+ * 
+ * <p>
+ *  Subtrees are built into detached elements by pooled threads. The thread building the tree 
+ *  reserves a placeholder element for each subtree and fills them in document order when the 
+ *  tree has been built. Subtrees are submitted only from the thread building the tree, so nested 
+ *  independent subtrees are built in the thread of their ancestor.
+ * </p>
+ */
+@Singleton
+public class ParallelBuilder {
+
+    interface Build {
+        void build(DOMBuilder b);
+    }
+
+    private static class Fragment {
+        private final Element placeholder;
+        private final Element element;
+        private final Future<?> future;
+
+        Fragment(Element placeholder, Element element, Future<?> future) {
+            this.placeholder = placeholder;
+            this.element = element;
+            this.future = future;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private final Provider<PageScope> pageScope;
+
+    private final ThreadLocal<List<Fragment>> fragments = new ThreadLocal<List<Fragment>>();
+
+    @Inject
+    public ParallelBuilder(Configuration configuration, Provider<PageScope> pageScope) {
+        this(configuration.getOrElse(Configuration.PARALLEL_BUILD_THREADS, 0), pageScope);
+    }
+
+    public ParallelBuilder(int threads, final PageScope pageScope) {
+        this(threads, new Provider<PageScope>() {
+            @Override
+            public PageScope get() {
+                return pageScope;
+            }
+        });
+    }
+
+    private ParallelBuilder(int threads, Provider<PageScope> pageScope) {
+        this.pageScope = pageScope;
+        if (threads > 0) {
+            executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "contextfw-build-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        } else {
+            executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Builds the tree and waits until all independent subtrees submitted during 
+     * the build have been built and added to the tree.
+     */
+    void buildTree(DOMBuilder b, Build build) {
+        if (executor == null || fragments.get() != null) {
+            build.build(b);
+            return;
+        }
+        List<Fragment> submitted = new ArrayList<Fragment>();
+        fragments.set(submitted);
+        try {
+            build.build(b);
+        } finally {
+            fragments.remove();
+        }
+        RuntimeException thrown = null;
+        for (Fragment fragment : submitted) {
+            try {
+                fragment.future.get();
+                if (thrown == null) {
+                    splice(fragment);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                thrown = thrown == null ? new WebApplicationException(e) : thrown;
+            } catch (ExecutionException e) {
+                if (thrown == null) {
+                    thrown = e.getCause() instanceof RuntimeException 
+                            ? (RuntimeException) e.getCause() 
+                            : new WebApplicationException("Failed to build " 
+                                    + fragment.placeholder.getName(), e.getCause());
+                }
+            }
+        }
+        if (thrown != null) {
+            throw thrown;
+        }
+    }
+
+    /**
+     * Submits a subtree to be built, if current thread is building a tree.
+     * 
+     * @param placeholder
+     *      The element reserved for the subtree
+     * @return
+     *      <code>true</code> if subtree was submitted, otherwise it must be built by the caller
+     */
+    boolean submit(DOMBuilder placeholder, final Build build) {
+        List<Fragment> submitted = fragments.get();
+        if (submitted == null) {
+            return false;
+        }
+        final DOMBuilder detached = placeholder.detached(
+                placeholder.getCurrentRoot().getQualifiedName());
+        final PageScope scope = pageScope.get();
+        final WebApplicationPage page = scope == null ? null : scope.getCurrentPage();
+        Future<?> future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (page != null) {
+                    scope.attachPage(page);
+                }
+                try {
+                    build.build(detached);
+                } finally {
+                    if (page != null) {
+                        scope.detachPage();
+                    }
+                }
+            }
+        });
+        submitted.add(new Fragment(placeholder.getCurrentRoot(), detached.getCurrentRoot(), future));
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void splice(Fragment fragment) {
+        for (Attribute attribute : (List<Attribute>) fragment.element.attributes()) {
+            fragment.placeholder.addAttribute(attribute.getQName(), attribute.getValue());
+        }
+        // Namespaces are declared by the document already
+        for (Node node : new ArrayList<Node>(fragment.element.content())) {
+            if (!(node instanceof Namespace)) {
+                fragment.placeholder.add(node.detach());
+            }
+        }
+    }
+}
@@ -17,20 +17,63 @@
 
 package net.contextfw.web.application.internal.component;
 
+import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.DOMBuilder;
 
 abstract class PropertyBuilder extends Builder {
 
     private PropertyAccess<Object> propertyAccess;
+
+    private int trackIndex = -1;
     
     protected PropertyBuilder(PropertyAccess<Object> propertyAccess, String methodName) {
         super(methodName);
         this.propertyAccess = propertyAccess;
     }
+
+    /**
+     * Records built values to the change snapshot of the component at given index
+     */
+    void setTrackIndex(int trackIndex) {
+        this.trackIndex = trackIndex;
+    }
     
     final void build(DOMBuilder b, Object buildable) {
-        buildValue(b, propertyAccess.getValue(buildable));
+        build(b, buildable, false);
+    }
+
+    @Override
+    final void buildUpdate(DOMBuilder b, Object buildable) {
+        build(b, buildable, true);
+    }
+
+    private void build(DOMBuilder b, Object buildable, boolean update) {
+        build(b, buildable, propertyAccess.getValue(buildable), update);
+    }
+
+    /**
+     * Builds a value that has already been read from the buildable
+     */
+    final void build(DOMBuilder b, Object buildable, Object value, boolean update) {
+        if (trackIndex >= 0) {
+            ChangeSnapshot snapshot = ((Component) buildable).getChangeSnapshot();
+            if (snapshot != null) {
+                snapshot.record(trackIndex, value);
+            }
+        }
+        buildValue(b, buildable, value, update);
+    }
+
+    final boolean isChanged(Component component, ChangeSnapshot snapshot) {
+        return snapshot.isChanged(trackIndex, propertyAccess.getValue(component));
     }
     
+    /**
+     * Builds the value. By default the buildable and the build mode are ignored.
+     */
+    void buildValue(DOMBuilder b, Object buildable, Object value, boolean update) {
+        buildValue(b, value);
+    }
+
     abstract void buildValue(DOMBuilder b, Object value);
 }
\ No newline at end of file
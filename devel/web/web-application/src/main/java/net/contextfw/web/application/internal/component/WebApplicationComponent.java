@@ -17,16 +17,38 @@
 
 package net.contextfw.web.application.internal.component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import net.contextfw.web.application.component.Component;
 import net.contextfw.web.application.component.DOMBuilder;
 
 import com.google.inject.Inject;
 
+/**
+ * The root of the component tree
+ * 
+ * <p>
+ *  Keeps track of the components that have requested a refresh or track their changes, 
+ *  so that updates can be built and cleared without walking the whole tree.
+ * </p>
+ */
 public class WebApplicationComponent extends Component {
 
     private final InternalComponentRegister elementRegister;
 
+    private final Set<Component> refreshed = new LinkedHashSet<Component>();
+
+    // Components built by parallel workers are added concurrently
+    private final Set<Component> tracked = 
+        Collections.synchronizedSet(new LinkedHashSet<Component>());
+
     private Component child = null;
+
+    private List<Component> deferred = null;
     
     @Inject
     public WebApplicationComponent(InternalComponentRegister elementRegister) {
@@ -43,6 +65,18 @@ public class WebApplicationComponent extends Component {
     @Override
     protected void bubbleUnregisterUp(Component el) {
         elementRegister.unregister(el);
+        refreshed.remove(el);
+        tracked.remove(el);
+    }
+
+    @Override
+    protected void bubbleTrackChangesUp(Component el) {
+        tracked.add(el);
+    }
+
+    @Override
+    protected void bubbleRefreshUp(Component el) {
+        refreshed.add(el);
     }
 
     @Override
@@ -54,8 +88,71 @@ public class WebApplicationComponent extends Component {
     public void buildChild(DOMBuilder b) {
         b.child(child);
     }
+
+    /**
+     * Builds the initial page. If some components were deferred, a script requesting them 
+     * is added to the page.
+     */
+    public void buildChild(DOMBuilder b, ComponentBuilder componentBuilder) {
+        List<Component> components = new ArrayList<Component>();
+        componentBuilder.buildTree(b, child, components);
+        if (!components.isEmpty()) {
+            deferred = components;
+            b.descend("Script").text("contextfw.loadDeferred(\"" + components.get(0).getId() + "\");\n");
+        }
+    }
+
+    /**
+     * Builds the deferred components that are still attached and are not going to be 
+     * built by an update of their ancestor.
+     */
+    public void buildDeferred(DOMBuilder b, ComponentBuilder componentBuilder) {
+        if (deferred != null) {
+            for (Component component : deferred) {
+                if (component.isUpdateRendered(this)) {
+                    componentBuilder.build(b.descend("Deferred.update")
+                            .attr("id", component.getId()), component);
+                    component.clearCascadedUpdate();
+                }
+            }
+            deferred = null;
+        }
+    }
+    
+    /**
+     * Requests partial updates for the changed properties of components tracking their changes.
+     * Components that are no longer attached, for example descendants of a detached 
+     * component, are not tracked anymore.
+     */
+    public void refreshChanges(ComponentBuilder componentBuilder) {
+        if (!tracked.isEmpty()) {
+            for (Component component : tracked.toArray(new Component[0])) {
+                if (component.isAttachedTo(this)) {
+                    componentBuilder.refreshChanges(component);
+                } else {
+                    tracked.remove(component);
+                }
+            }
+        }
+    }
     
     public void buildChildUpdate(DOMBuilder b, ComponentBuilder componentBuilder) {
-        child.buildComponentUpdate(b, componentBuilder);
+        if (!refreshed.isEmpty()) {
+            for (Component component : refreshed.toArray(new Component[refreshed.size()])) {
+                if (component.isRefreshRequested() && component.isUpdateRendered(this)) {
+                    component.buildComponentUpdate(b, componentBuilder);
+                }
+            }
+            clearCascadedUpdate();
+        }
+    }
+
+    @Override
+    public void clearCascadedUpdate() {
+        super.clearCascadedUpdate();
+        for (Component component : refreshed) {
+            component.clearCascadedUpdate();
+        }
+        refreshed.clear();
     }
 }
@@ -59,8 +59,11 @@ public class PageScope implements Scope {
                     T bean = (T) page.getBean(key);
                     if (bean != null) {
                         return bean;
-                    } else { 
-                       return page.setBean(key, unscoped.get());
+                    }
+                    // Page may be shared by threads building it in parallel
+                    synchronized (page) {
+                        bean = (T) page.getBean(key);
+                        return bean != null ? bean : page.setBean(key, unscoped.get());
                     }
                 } else {
                     throw new OutOfScopeException("PageScope does not exist!");
@@ -94,6 +97,28 @@ public class PageScope implements Scope {
         listener.afterPageScopeActivation();
     }
 
+    /**
+     * Returns the page active in current thread or <code>null</code>
+     */
+    public WebApplicationPage getCurrentPage() {
+        return currentPage.get();
+    }
+
+    /**
+     * Makes the page visible in current thread without touching the page context. 
+     * 
+     * <p>
+     *  Used by threads working on behalf of the thread that activated the page.
+     * </p>
+     */
+    public void attachPage(WebApplicationPage page) {
+        currentPage.set(page);
+    }
+
+    public void detachPage() {
+        currentPage.remove();
+    }
+
     public synchronized WebApplicationPage createPage(HttpServlet servlet,
                                                       HttpServletRequest request,
                                                       HttpServletResponse response) {
@@ -17,8 +17,8 @@
 
 package net.contextfw.web.application.internal.page;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.contextfw.web.application.PageHandle;
 import net.contextfw.web.application.internal.service.WebApplication;
@@ -29,7 +29,8 @@ public class WebApplicationPageImpl implements WebApplicationPage {
 
     private static final Key<PageHandle> HANDLE_KEY = Key.get(PageHandle.class);
 
-    private Map<Key<?>, Object> beans = new HashMap<Key<?>, Object>();
+    // Concurrent, because threads building the page in parallel look up beans
+    private final ConcurrentMap<Key<?>, Object> beans = new ConcurrentHashMap<Key<?>, Object>();
 
     private WebApplication webApplication;
     
@@ -38,7 +39,11 @@ public class WebApplicationPageImpl implements WebApplicationPage {
     
     @Override
     public <T> T setBean(Key<T> key, T value) {
-        beans.put(key, value);
+        if (value == null) {
+            beans.remove(key);
+        } else {
+            beans.put(key, value);
+        }
         return value;
     }
 
@@ -65,6 +70,6 @@ public class WebApplicationPageImpl implements WebApplicationPage {
 
     @Override
     public void setHandle(PageHandle handle) {
-        beans.put(HANDLE_KEY, handle);
+        setBean(HANDLE_KEY, handle);
     }
 }
\ No newline at end of file
@@ -35,6 +35,9 @@ import net.contextfw.web.application.internal.development.InternalDevelopmentToo
 import net.contextfw.web.application.internal.page.PageScope;
 import net.contextfw.web.application.internal.page.WebApplicationPage;
 import net.contextfw.web.application.internal.servlet.UriMapping;
+import net.contextfw.web.application.internal.timing.RenderPhase;
+import net.contextfw.web.application.internal.timing.RenderStatistics;
+import net.contextfw.web.application.internal.timing.RenderTimer;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
 import net.contextfw.web.application.remote.ErrorResolution;
 import net.contextfw.web.application.scope.ScopedWebApplicationExecution;
@@ -62,6 +65,9 @@ public class InitHandler {
     
     @Inject
     private WebApplicationStorage storage;
+    
+    @Inject
+    private RenderStatistics statistics;
 
     private final long initialMaxInactivity;
 
@@ -106,60 +112,79 @@ public class InitHandler {
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
         } else {
 
-            WebApplicationPage page = pageScope.createPage(servlet, request, response);
-            final MutableBoolean expired = new MutableBoolean(false);
-            storage.initialize(
-                    page,
-                    request,
-                    System.currentTimeMillis() + HOUR,
-                    new ScopedWebApplicationExecution() {
-                        @Override
-                        public void execute(net.contextfw.web.application.WebApplication application) {
-                            try {
-                                WebApplicationPage page = (WebApplicationPage) application;
-                                WebApplication app = webApplicationProvider.get();
-                                app.setInitializerChain(chain);
-                                page.setWebApplication(app);
-                                listeners.beforeInitialize();
-                                page.getWebApplication().initState(mapping);
-                                listeners.afterInitialize();
-                                listeners.beforeRender();
-                                expired.setValue(page.getWebApplication().sendResponse());
-                                listeners.afterRender();
-                            } catch (Exception e) {
-                                // TODO Fix this construct with test
-                                if (e instanceof MetaComponentException) {
-                                    ErrorResolution resolution =
-                                            ((MetaComponentException) e).getResolution();
-                                    try {
-                                        if (resolution == ErrorResolution.SEND_NOT_FOUND_ERROR) {
-                                            response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                                        } else if (resolution == ErrorResolution.SEND_BAD_REQUEST_ERROR) {
-                                            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
-                                        }
-                                    } catch (IOException e1) {
-                                        throw new WebApplicationException(e1);
+            statistics.begin(mapping.getViewClass().getName());
+            try {
+                initialize(mapping, chain, servlet, request, response);
+            } finally {
+                statistics.end();
+            }
+        }
+    }
+
+    private void initialize(
+            final UriMapping mapping,
+            final List<Class<? extends Component>> chain,
+            final HttpServlet servlet,
+            final HttpServletRequest request,
+            final HttpServletResponse response) {
+
+        WebApplicationPage page = pageScope.createPage(servlet, request, response);
+        final MutableBoolean expired = new MutableBoolean(false);
+        final long lockStart = RenderTimer.start();
+        storage.initialize(
+                page,
+                request,
+                System.currentTimeMillis() + HOUR,
+                new ScopedWebApplicationExecution() {
+                    @Override
+                    public void execute(net.contextfw.web.application.WebApplication application) {
+                        RenderTimer.stop(RenderPhase.LOCK, lockStart);
+                        try {
+                            WebApplicationPage page = (WebApplicationPage) application;
+                            WebApplication app = webApplicationProvider.get();
+                            app.setInitializerChain(chain);
+                            page.setWebApplication(app);
+                            listeners.beforeInitialize();
+                            long start = RenderTimer.start();
+                            page.getWebApplication().initState(mapping);
+                            RenderTimer.stop(RenderPhase.INITIALIZE, start);
+                            listeners.afterInitialize();
+                            listeners.beforeRender();
+                            expired.setValue(page.getWebApplication().sendResponse());
+                            listeners.afterRender();
+                        } catch (Exception e) {
+                            // TODO Fix this construct with test
+                            if (e instanceof MetaComponentException) {
+                                ErrorResolution resolution =
+                                        ((MetaComponentException) e).getResolution();
+                                try {
+                                    if (resolution == ErrorResolution.SEND_NOT_FOUND_ERROR) {
+                                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                                    } else if (resolution == ErrorResolution.SEND_BAD_REQUEST_ERROR) {
+                                        response.sendError(HttpServletResponse.SC_BAD_REQUEST);
                                     }
+                                } catch (IOException e1) {
+                                    throw new WebApplicationException(e1);
                                 }
-                                listeners.onException(e);
-                            } finally {
-                                pageScope.deactivateCurrentPage();
                             }
-
+                            listeners.onException(e);
+                        } finally {
+                            pageScope.deactivateCurrentPage();
                         }
-                    });
-            // Setting expiration here so that long page
-            // processing is
-            // not
-            // penalizing client
-            if (expired.booleanValue()) {
-                storage.remove(page.getHandle(), request);
-            } else {
-                storage.refresh(
-                        page.getHandle(), 
-                        request,
-                        System.currentTimeMillis() + initialMaxInactivity);
-            }
+
+                    }
+                });
+        // Setting expiration here so that long page
+        // processing is
+        // not
+        // penalizing client
+        if (expired.booleanValue()) {
+            storage.remove(page.getHandle(), request);
+        } else {
+            storage.refresh(
+                    page.getHandle(), 
+                    request,
+                    System.currentTimeMillis() + initialMaxInactivity);
         }
     }
 
@@ -36,6 +36,9 @@ import net.contextfw.web.application.PageHandle;
 import net.contextfw.web.application.configuration.Configuration;
 import net.contextfw.web.application.internal.page.PageScope;
 import net.contextfw.web.application.internal.page.WebApplicationPage;
+import net.contextfw.web.application.internal.timing.RenderPhase;
+import net.contextfw.web.application.internal.timing.RenderStatistics;
+import net.contextfw.web.application.internal.timing.RenderTimer;
 import net.contextfw.web.application.lifecycle.LifecycleListener;
 import net.contextfw.web.application.remote.ResourceResponse;
 import net.contextfw.web.application.scope.Execution;
@@ -58,6 +61,8 @@ public class UpdateHandler {
     private static final String CONTEXTFW_UPDATE = "contextfw-update";
 
     private static final String CONTEXTFW_REMOVE = "contextfw-remove";
+
+    private static final String UPDATE_KEY = "update";
     
     private ThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(10);
 
@@ -77,6 +82,8 @@ public class UpdateHandler {
 
     private final WebApplicationStorage storage;
 
+    private final RenderStatistics statistics;
+
     @Inject
     public UpdateHandler(LifecycleListener listeners,
             DirectoryWatcher watcher,
@@ -84,9 +91,11 @@ public class UpdateHandler {
             WebApplicationStorage storage,
             Configuration configuration,
             PageScope pageScope,
+            RenderStatistics statistics,
             Gson gson) {
 
         this.gson = gson;
+        this.statistics = statistics;
         this.listeners = listeners;
         this.maxInactivity = configuration.get(Configuration.MAX_INACTIVITY);
         this.storage = storage;
@@ -140,80 +149,98 @@ public class UpdateHandler {
                 storage.refresh(handle, request, System.currentTimeMillis() + maxInactivity);
                 response.setStatus(HttpServletResponse.SC_NO_CONTENT);
             } else if (CONTEXTFW_UPDATE.equals(command)) {
-                
-                final UpdateInvocation[] invocation = new UpdateInvocation[1];
-                invocation[0] = UpdateInvocation.NOT_DELAYED;
-                storage.update(
-                        handle, 
-                        request,
-                        System.currentTimeMillis() + maxInactivity, 
-                        new ScopedWebApplicationExecution() {
-                    @Override
-                    public void execute(WebApplication application) {
-                        if (application == null) {
-                            try {
-                                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                            } catch (IOException e) {
-                                throw new WebApplicationException(e);
-                            }
-                        } else {
-                            WebApplicationPage page = (WebApplicationPage) application;
-                            pageScope.activatePage(page, servlet, request, response);
-                            try {
-                                invocation[0] =
-                                        page.getWebApplication().updateState(
-                                                uriSplits[commandStart + 2],
-                                                uriSplits[commandStart + 3]);
-                                if (invocation[0].isDelayed()) {
-                                    pageScope.deactivateCurrentPage();
-                                    return;
-                                }
+                statistics.begin(UPDATE_KEY);
+                try {
+                    update(servlet, request, response, handle, uriSplits, commandStart);
+                } finally {
+                    statistics.end();
+                }
+            }
+        }
+        else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        }
+    }
 
-                                if (!invocation[0].isResource() && !invocation[0].isCancelled()) {
-                                    listeners.beforeRender();
-                                    setHeaders(response);
-                                    response.setContentType("text/xml; charset=UTF-8");
-                                    page.getWebApplication().sendResponse();
-                                    listeners.afterRender();
-                                }
-                            } catch (Exception e) {
-                                listeners.onException(e);
-                            } finally {
-                                pageScope.deactivateCurrentPage();
-                            }
-                        }
+    private void update(final HttpServlet servlet,
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final PageHandle handle,
+            final String[] uriSplits,
+            final int commandStart) throws IOException {
+
+        final UpdateInvocation[] invocation = new UpdateInvocation[1];
+        invocation[0] = UpdateInvocation.NOT_DELAYED;
+        final long lockStart = RenderTimer.start();
+        storage.update(
+                handle, 
+                request,
+                System.currentTimeMillis() + maxInactivity, 
+                new ScopedWebApplicationExecution() {
+            @Override
+            public void execute(WebApplication application) {
+                RenderTimer.stop(RenderPhase.LOCK, lockStart);
+                if (application == null) {
+                    try {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    } catch (IOException e) {
+                        throw new WebApplicationException(e);
                     }
-                });
-
-                Set<Execution> afterRun =  new HashSet<Execution>();
-                
-                Object retVal = null;
-                
-                if (invocation[0].isResource()) {
-                    retVal = handleResource(request, response, invocation[0]);
                 } else {
-                    retVal = invocation[0].getRetVal();
-                }
-                
-                if (retVal instanceof Execution) {
-                    afterRun.add((Execution) retVal);
-                } else if (retVal instanceof Iterable) {
-                    for (Object i : ((Iterable<?>) retVal)) {
-                        afterRun.add((Execution) i);
-                    }
-                } else if (retVal instanceof Execution[]) {
-                    for (Execution i : ((Execution[]) retVal)) {
-                        afterRun.add(i);
-                    }
-                }
+                    WebApplicationPage page = (WebApplicationPage) application;
+                    pageScope.activatePage(page, servlet, request, response);
+                    try {
+                        long start = RenderTimer.start();
+                        invocation[0] =
+                                page.getWebApplication().updateState(
+                                        uriSplits[commandStart + 2],
+                                        uriSplits[commandStart + 3]);
+                        RenderTimer.stop(RenderPhase.INVOKE, start);
+                        if (invocation[0].isDelayed()) {
+                            pageScope.deactivateCurrentPage();
+                            return;
+                        }
 
-                if (!afterRun.isEmpty()) {
-                    runAfterRun(handle, afterRun);
+                        if (!invocation[0].isResource() && !invocation[0].isCancelled()) {
+                            listeners.beforeRender();
+                            setHeaders(response);
+                            response.setContentType("text/xml; charset=UTF-8");
+                            page.getWebApplication().sendResponse();
+                            listeners.afterRender();
+                        }
+                    } catch (Exception e) {
+                        listeners.onException(e);
+                    } finally {
+                        pageScope.deactivateCurrentPage();
+                    }
                 }
             }
+        });
+
+        Set<Execution> afterRun =  new HashSet<Execution>();
+        
+        Object retVal = null;
+        
+        if (invocation[0].isResource()) {
+            retVal = handleResource(request, response, invocation[0]);
+        } else {
+            retVal = invocation[0].getRetVal();
         }
-        else {
-            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        
+        if (retVal instanceof Execution) {
+            afterRun.add((Execution) retVal);
+        } else if (retVal instanceof Iterable) {
+            for (Object i : ((Iterable<?>) retVal)) {
+                afterRun.add((Execution) i);
+            }
+        } else if (retVal instanceof Execution[]) {
+            for (Execution i : ((Execution[]) retVal)) {
+                afterRun.add(i);
+            }
+        }
+
+        if (!afterRun.isEmpty()) {
+            runAfterRun(handle, afterRun);
         }
     }
 
@@ -19,9 +19,7 @@ package net.contextfw.web.application.internal.service;
 
 import java.io.IOException;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
@@ -40,6 +38,8 @@ import net.contextfw.web.application.internal.component.InternalComponentRegiste
 import net.contextfw.web.application.internal.component.WebApplicationComponent;
 import net.contextfw.web.application.internal.initializer.InitializerContextImpl;
 import net.contextfw.web.application.internal.servlet.UriMapping;
+import net.contextfw.web.application.internal.timing.RenderPhase;
+import net.contextfw.web.application.internal.timing.RenderTimer;
 import net.contextfw.web.application.internal.util.AttributeHandler;
 import net.contextfw.web.application.lifecycle.PageScoped;
 import net.contextfw.web.application.lifecycle.ResourceView;
@@ -47,6 +47,8 @@ import net.contextfw.web.application.remote.ResourceBody;
 import net.contextfw.web.application.remote.ResourceResponse;
 import net.contextfw.web.application.scope.Provided;
 
+import org.dom4j.Document;
+
 import com.google.gson.Gson;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -54,6 +56,11 @@ import com.google.inject.Injector;
 @PageScoped
 public class WebApplicationImpl implements WebApplication {
 
+    /**
+     * Update method requested by the client to load components deferred on page creation
+     */
+    public static final String DEFERRED_METHOD = "contextfw-deferred";
+
     @Inject
     @Provided
     private Gson gson;
@@ -66,8 +73,6 @@ public class WebApplicationImpl implements WebApplication {
     @Provided
     private ComponentBuilder builder;
 
-    private static volatile Map<String, ComponentUpdateHandler> updateHandlers = new HashMap<String, ComponentUpdateHandler>();
-
     @Inject
     @Provided
     private Injector injector;
@@ -195,6 +200,7 @@ public class WebApplicationImpl implements WebApplication {
     }
 
     private void sendNormalResponse() throws ServletException, IOException {
+        long start = RenderTimer.start();
         pageContext.getResponse().setContentType("text/html; charset=UTF-8");
 
         DOMBuilder d;
@@ -216,7 +222,7 @@ public class WebApplicationImpl implements WebApplication {
             d.attr("lang", pageContext.getLocale().toString());
         }
         if (mode == Mode.INIT) {
-            getRootComponent().buildChild(d);
+            getRootComponent().buildChild(d, builder);
         } else if (pageContext.getRedirectUrl() != null) {
             d.descend("Redirect").attr("href", pageContext.getRedirectUrl());
         } else if (pageContext.getErrorCode() != null) {
@@ -224,16 +230,21 @@ public class WebApplicationImpl implements WebApplication {
         } else if (pageContext.isReload()) {
             d.descend("Reload");
         } else {
+            getRootComponent().refreshChanges(builder);
+            getRootComponent().buildDeferred(d, builder);
             getRootComponent().buildChildUpdate(d, builder);
         }
 
         getRootComponent().clearCascadedUpdate();
 
+        Document document = d.toDocument();
+        RenderTimer.stop(RenderPhase.BUILD, start);
+
         if (conf.getXmlParamName() == null
                 || pageContext.getRequest().getParameter(conf.getXmlParamName()) == null) {
-            responder.sendResponse(d.toDocument(), pageContext.getResponse(), mode);
+            responder.sendResponse(document, pageContext.getResponse(), mode);
         } else {
-            responder.sendResponse(d.toDocument(), pageContext.getResponse(), Mode.XML);
+            responder.sendResponse(document, pageContext.getResponse(), Mode.XML);
         }
     }
 
@@ -245,15 +256,14 @@ public class WebApplicationImpl implements WebApplication {
 
     @SuppressWarnings("unchecked")
     protected UpdateInvocation updateElements(final String id, final String method) {
+        if (DEFERRED_METHOD.equals(method)) {
+            return UpdateInvocation.NOT_DELAYED;
+        }
         try {
             Component element = componentRegister.findComponent(id);
-            String key = ComponentUpdateHandler.getKey(element.getClass(), method);
-
-                if (!updateHandlers.containsKey(key) || conf.isDevelopmentMode()) {
-                    updateHandlers.put(key, euhf.createHandler(element.getClass(), method));
-                }
-
-                ComponentUpdateHandler handler = updateHandlers.get(key);
+            ComponentUpdateHandler handler = euhf.getHandler(element.getClass(), method);
+            RenderTimer.key(handler != null ? handler.getKey() 
+                    : ComponentUpdateHandler.getKey(element.getClass(), method));
 
                 if (handler != null) {
                     if (handler.getDelayed() == null
@@ -0,0 +1,278 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import net.contextfw.web.application.internal.util.ContentEncoding;
+import net.contextfw.web.application.internal.util.DeflaterPool;
+import net.contextfw.web.application.internal.util.DeflatingOutputStream;
+
+/**
+ * Response that compresses its content if it is large enough.
+ * 
+ * <p>
+ *  Content is buffered until it reaches the minimum size. After that the content is 
+ *  compressed while it is written. Smaller responses, responses with incompressible 
+ *  content type and responses that already have <code>Content-Encoding</code> are sent 
+ *  as such.
+ * </p>
+ */
+public class CompressedResponse extends HttpServletResponseWrapper {
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private final ContentEncoding encoding;
+
+    private final int minSize;
+
+    private final DeflaterPool pool;
+
+    private CompressingStream stream;
+
+    private PrintWriter writer;
+
+    private boolean passThrough = false;
+
+    private int contentLength = -1;
+
+    public CompressedResponse(HttpServletResponse response, 
+                              ContentEncoding encoding, 
+                              int minSize,
+                              DeflaterPool pool) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.pool = pool;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    private CompressingStream getStream() {
+        if (stream == null) {
+            stream = new CompressingStream();
+        }
+        return stream;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLength(Integer.parseInt(value));
+        } else {
+            passThrough |= CONTENT_ENCODING.equalsIgnoreCase(name);
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLength(Integer.parseInt(value));
+        } else {
+            passThrough |= CONTENT_ENCODING.equalsIgnoreCase(name);
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        if (stream != null && stream.target != null && !stream.compressed) {
+            super.setContentLength(len);
+        } else {
+            contentLength = len;
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        passThrough = true;
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        passThrough = true;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        passThrough = true;
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+        passThrough = false;
+        contentLength = -1;
+        super.reset();
+    }
+
+    /**
+     * Writes the buffered content and finishes compression.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        }
+    }
+
+    private class CompressingStream extends ServletOutputStream {
+
+        private ByteArrayOutputStream buffer;
+
+        private OutputStream target;
+
+        private boolean compressed = false;
+
+        private boolean finished = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("Stream is closed");
+            }
+            if (target != null) {
+                target.write(b, off, len);
+            } else if (passThrough) {
+                start(false);
+                target.write(b, off, len);
+            } else {
+                if (buffer == null) {
+                    buffer = new ByteArrayOutputStream(Math.min(Math.max(minSize, 32), 8192));
+                }
+                buffer.write(b, off, len);
+                if (buffer.size() >= minSize) {
+                    start(true);
+                }
+            }
+        }
+
+        private void start(boolean compress) throws IOException {
+            compressed = compress && !passThrough && ContentEncoding.isCompressible(getContentType());
+            OutputStream out = CompressedResponse.super.getOutputStream();
+            if (compressed) {
+                CompressedResponse.super.setHeader(CONTENT_ENCODING, encoding.getName());
+                target = new DeflatingOutputStream(out, encoding, pool);
+            } else {
+                if (contentLength >= 0) {
+                    CompressedResponse.super.setContentLength(contentLength);
+                }
+                target = out;
+            }
+            if (buffer != null) {
+                buffer.writeTo(target);
+                buffer = null;
+            }
+        }
+
+        // Flushing is ignored until it is known whether content is compressed
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        private void resetBuffer() {
+            if (target == null) {
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (target == null) {
+                if (buffer == null) {
+                    return;
+                }
+                start(false);
+            }
+            if (compressed) {
+                ((DeflatingOutputStream) target).finish();
+            }
+            target.flush();
+        }
+    }
+}
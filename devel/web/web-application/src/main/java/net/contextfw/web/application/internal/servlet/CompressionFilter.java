@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.util.ContentEncoding;
+import net.contextfw.web.application.internal.util.DeflaterPool;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Compresses responses with gzip or deflate depending on <code>Accept-Encoding</code>.
+ */
+@Singleton
+public class CompressionFilter implements Filter {
+
+    private final int minSize;
+
+    private final DeflaterPool pool;
+
+    @Inject
+    public CompressionFilter(Configuration configuration, DeflaterPool pool) {
+        this.minSize = configuration.getOrElse(Configuration.COMPRESSION_MIN_SIZE, 1024);
+        this.pool = pool;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+
+        ContentEncoding encoding = ContentEncoding.negotiate(req.getHeader("Accept-Encoding"));
+        resp.addHeader("Vary", "Accept-Encoding");
+
+        if (encoding == null) {
+            chain.doFilter(request, response);
+        } else {
+            CompressedResponse compressed = new CompressedResponse(resp, encoding, minSize, pool);
+            try {
+                chain.doFilter(request, compressed);
+            } finally {
+                compressed.finish();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -20,6 +20,7 @@ package net.contextfw.web.application.internal.servlet;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -29,6 +30,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.util.ContentEncoding;
+import net.contextfw.web.application.internal.util.DeflaterPool;
+import net.contextfw.web.application.internal.util.DeflatingOutputStream;
 import net.contextfw.web.application.internal.util.ResourceEntry;
 import net.contextfw.web.application.internal.util.ResourceScanner;
 
@@ -38,7 +43,33 @@ public abstract class ResourceServlet extends HttpServlet {
 
     private static final long serialVersionUID = -1979474932427776224L;
 
-    private volatile String content = null;
+    private static final String ENCODING = "UTF-8";
+
+    private volatile Content content = null;
+
+    private final boolean compression;
+
+    private final int compressionMinSize;
+
+    private final DeflaterPool pool;
+
+    private static class Content {
+        private final byte[] plain;
+        private final byte[] gzip;
+        private final byte[] deflate;
+
+        Content(byte[] plain, byte[] gzip, byte[] deflate) {
+            this.plain = plain;
+            this.gzip = gzip;
+            this.deflate = deflate;
+        }
+    }
+
+    protected ResourceServlet(Configuration configuration, DeflaterPool pool) {
+        this.compression = configuration.getOrElse(Configuration.COMPRESSION, false);
+        this.compressionMinSize = configuration.getOrElse(Configuration.COMPRESSION_MIN_SIZE, 1024);
+        this.pool = pool;
+    }
 
     public void clean() {
         content = null;
@@ -53,16 +84,31 @@ public abstract class ResourceServlet extends HttpServlet {
         }
 
         resp.setContentType(getContentType());
+        resp.setCharacterEncoding(ENCODING);
 
-        if (content == null) {
-            reloadResources();
+        Content current = content;
+        if (current == null) {
+            current = reloadResources();
         }
 
-        resp.getWriter().print(content);
-        resp.getWriter().close();
+        byte[] bytes = current.plain;
+        if (current.gzip != null) {
+            resp.setHeader("Vary", "Accept-Encoding");
+            ContentEncoding encoding = ContentEncoding.negotiate(req.getHeader("Accept-Encoding"));
+            if (encoding == ContentEncoding.GZIP) {
+                resp.setHeader("Content-Encoding", encoding.getName());
+                bytes = current.gzip;
+            } else if (encoding == ContentEncoding.DEFLATE) {
+                resp.setHeader("Content-Encoding", encoding.getName());
+                bytes = current.deflate;
+            }
+        }
+        resp.setContentLength(bytes.length);
+        resp.getOutputStream().write(bytes);
+        resp.getOutputStream().close();
     }
 
-    private synchronized void reloadResources() {
+    private synchronized Content reloadResources() {
         if (content == null) {
             StringBuilder contentBuilder = new StringBuilder();
             List<ResourceEntry> files = ResourceScanner
@@ -70,14 +116,27 @@ public abstract class ResourceServlet extends HttpServlet {
             for (ResourceEntry file : files) {
                 addContent(contentBuilder, file);
             }
-            content = contentBuilder.toString();
+            byte[] plain;
+            try {
+                plain = contentBuilder.toString().getBytes(ENCODING);
+            } catch (UnsupportedEncodingException e) {
+                throw new WebApplicationException(e);
+            }
+            if (compression && plain.length >= compressionMinSize) {
+                content = new Content(plain, 
+                        DeflatingOutputStream.compress(plain, ContentEncoding.GZIP, pool),
+                        DeflatingOutputStream.compress(plain, ContentEncoding.DEFLATE, pool));
+            } else {
+                content = new Content(plain, null, null);
+            }
         }
+        return content;
     }
 
     private void addContent(StringBuilder contentBuilder, ResourceEntry file) {
         try {
             InputStream stream = file.getInputStream();
-            contentBuilder.append(IOUtils.toString(stream));
+            contentBuilder.append(IOUtils.toString(stream, ENCODING));
             if (contentBuilder.length() == 0 || contentBuilder.charAt(contentBuilder.length() - 1) != '\n') {
                 contentBuilder.append("\n");
             }
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.util.DeflaterPool;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -34,7 +35,8 @@ public class ScriptServlet extends ResourceServlet {
     private final List<String> resourcePaths = new ArrayList<String>();
 
     @Inject
-    public ScriptServlet(Configuration configuration) {
+    public ScriptServlet(Configuration configuration, DeflaterPool pool) {
+        super(configuration, pool);
         this.resourcePaths.addAll(configuration.get(Configuration.RESOURCE_PATH));
     }
     
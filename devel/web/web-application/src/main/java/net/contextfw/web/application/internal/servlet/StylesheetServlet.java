@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.contextfw.web.application.internal.WebResponder;
+import net.contextfw.web.application.internal.WebResponder.Stylesheet;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Serves the merged stylesheet for client side rendering.
+ *
+ * <p>
+ *  If the requested version matches the current stylesheet, the response is cached
+ *  for a year. Otherwise it is not cached at all.
+ * </p>
+ */
+@Singleton
+public class StylesheetServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MAX_AGE = 365L * 24 * 60 * 60;
+
+    private final WebResponder webResponder;
+
+    @Inject
+    public StylesheetServlet(WebResponder webResponder) {
+        this.webResponder = webResponder;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException,
+            IOException {
+
+        Stylesheet stylesheet = webResponder.getMergedStylesheet();
+
+        resp.setContentType("text/xsl;charset=UTF-8");
+        if (stylesheet.getVersion().equals(req.getParameter("v"))) {
+            resp.setHeader("Cache-Control", "public, max-age=" + MAX_AGE);
+            resp.setDateHeader("Expires", System.currentTimeMillis() + MAX_AGE * 1000);
+        } else {
+            resp.setHeader("Expires", "-1");
+            resp.setHeader("Cache-Control", "no-cache, no-store");
+        }
+        resp.getWriter().print(stylesheet.getXSL());
+        resp.getWriter().close();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers management beans of the framework.
+ */
+public final class MBeans {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MBeans.class);
+
+    private MBeans() {
+    }
+
+    /**
+     * Registers bean to platform MBean server as 
+     * <code>net.contextfw:type=&lt;type&gt;,application=&lt;application&gt;</code>.
+     * 
+     * <p>
+     *  A named application replaces the bean registered with the same name, which is the 
+     *  bean of its previous deployment. Without a name the first free number is used, 
+     *  so that beans of other applications in the same server are left untouched.
+     * </p>
+     * 
+     * @param application
+     *      The name of the application or <code>null</code>
+     * @return
+     *      The name bean was registered with or <code>null</code> if registration failed
+     */
+    public static ObjectName register(Object bean, String type, String application) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (application != null) {
+                ObjectName name = getName(type, application);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(bean, name);
+                return name;
+            }
+            for (int i = 1;; i++) {
+                ObjectName name = getName(type, String.valueOf(i));
+                try {
+                    server.registerMBean(bean, name);
+                    return name;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Registered by another application
+                }
+            }
+        } catch (JMException e) {
+            LOG.warn("Could not register " + type, e);
+            return null;
+        }
+    }
+
+    static ObjectName getName(String type, String application) 
+            throws MalformedObjectNameException {
+        return new ObjectName("net.contextfw:type=" + type 
+                + ",application=" + ObjectName.quote(application));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Aggregated timing of one phase of a view or a remoted method.
+ */
+public class PhaseTiming {
+
+    private final String key;
+    private final String phase;
+    private final long count;
+    private final double meanMillis;
+    private final double maxMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+
+    @ConstructorProperties({ "key", "phase", "count", "meanMillis", "maxMillis", 
+        "p50Millis", "p95Millis", "p99Millis" })
+    public PhaseTiming(String key, String phase, long count, double meanMillis, 
+            double maxMillis, double p50Millis, double p95Millis, double p99Millis) {
+        this.key = key;
+        this.phase = phase;
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+    }
+
+    /**
+     * Returns the view class name or the remoted method name
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+/**
+ * Measured phases of page loads and updates.
+ */
+public enum RenderPhase {
+
+    /**
+     * Waiting for the page in web application storage
+     */
+    LOCK("lock"),
+
+    /**
+     * Initializing the view on page load
+     */
+    INITIALIZE("init"),
+
+    /**
+     * Invoking the remoted method on update
+     */
+    INVOKE("invoke"),
+
+    /**
+     * Building the DOM-tree
+     */
+    BUILD("build"),
+
+    /**
+     * XSL-transformation. In streamed rendering this includes writing.
+     */
+    TRANSFORM("transform"),
+
+    /**
+     * Writing the response
+     */
+    WRITE("write"),
+
+    /**
+     * The whole request
+     */
+    TOTAL("total");
+
+    private final String metricName;
+
+    private RenderPhase(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
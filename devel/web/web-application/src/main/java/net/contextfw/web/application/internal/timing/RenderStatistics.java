@@ -0,0 +1,141 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.contextfw.web.application.configuration.Configuration;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Collects render timings by view and remoted method.
+ * 
+ * <p>
+ *  When render timing is enabled, statistics are registered to platform MBean server 
+ *  as <code>net.contextfw:type=RenderStatistics,application=&lt;name&gt;</code>.
+ * </p>
+ */
+@Singleton
+public class RenderStatistics implements RenderStatisticsMXBean {
+
+    private static final String TYPE = "RenderStatistics";
+
+    private static final RenderPhase[] PHASES = RenderPhase.values();
+
+    private final ConcurrentMap<String, Histogram[]> histograms = 
+            new ConcurrentHashMap<String, Histogram[]>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final boolean enabled;
+
+    @Inject
+    public RenderStatistics(Configuration configuration) {
+        enabled = configuration.getOrElse(Configuration.RENDER_TIMING, false);
+        if (enabled) {
+            MBeans.register(this, TYPE, 
+                    configuration.getOrElse(Configuration.APPLICATION_NAME, null));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing of a request if timing is enabled.
+     */
+    public void begin(String key) {
+        if (enabled) {
+            RenderTimer.begin(key);
+        }
+    }
+
+    /**
+     * Ends timing of current request and records it.
+     */
+    public void end() {
+        RenderTimer timer = RenderTimer.end();
+        if (timer != null) {
+            record(timer);
+        }
+    }
+
+    void record(RenderTimer timer) {
+        Histogram[] phases = histograms.get(timer.getKey());
+        if (phases == null) {
+            phases = new Histogram[PHASES.length];
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new Histogram();
+            }
+            Histogram[] existing = histograms.putIfAbsent(timer.getKey(), phases);
+            if (existing != null) {
+                phases = existing;
+            }
+        }
+        for (RenderPhase phase : PHASES) {
+            long duration = timer.getDuration(phase);
+            if (duration > 0) {
+                phases[phase.ordinal()].record(duration);
+            }
+        }
+        requestCount.incrementAndGet();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public List<PhaseTiming> getTimings() {
+        List<PhaseTiming> timings = new ArrayList<PhaseTiming>();
+        for (Map.Entry<String, Histogram[]> entry 
+                : new TreeMap<String, Histogram[]>(histograms).entrySet()) {
+            for (RenderPhase phase : PHASES) {
+                Histogram histogram = entry.getValue()[phase.ordinal()];
+                if (histogram.getCount() > 0) {
+                    timings.add(new PhaseTiming(
+                            entry.getKey(),
+                            phase.getMetricName(),
+                            histogram.getCount(),
+                            histogram.getMeanMillis(),
+                            histogram.getMaxMillis(),
+                            histogram.getPercentileMillis(0.5),
+                            histogram.getPercentileMillis(0.95),
+                            histogram.getPercentileMillis(0.99)));
+                }
+            }
+        }
+        return timings;
+    }
+
+    @Override
+    public void reset() {
+        histograms.clear();
+        requestCount.set(0);
+    }
+}
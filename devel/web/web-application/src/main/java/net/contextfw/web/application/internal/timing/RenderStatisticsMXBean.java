@@ -0,0 +1,41 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.util.List;
+
+/**
+ * Management interface for render timing.
+ */
+public interface RenderStatisticsMXBean {
+
+    /**
+     * Returns the number of measured page loads and updates
+     */
+    long getRequestCount();
+
+    /**
+     * Returns timings of each phase by view and remoted method
+     */
+    List<PhaseTiming> getTimings();
+
+    /**
+     * Clears collected timings
+     */
+    void reset();
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+/**
+ * Measures the phases of a single page load or update.
+ * 
+ * <p>
+ *  The timer is bound to the request thread between {@link #begin(String)} and
+ *  {@link #end()}. Static methods do nothing when no timer is bound, so they can be 
+ *  called from rendering code without checking whether timing is enabled.
+ * </p>
+ */
+public final class RenderTimer {
+
+    private static final ThreadLocal<RenderTimer> CURRENT = new ThreadLocal<RenderTimer>();
+
+    private static final RenderPhase[] PHASES = RenderPhase.values();
+
+    private final long started = System.nanoTime();
+
+    private final long[] durations = new long[PHASES.length];
+
+    private String key;
+
+    private RenderTimer(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Binds a new timer to current thread.
+     */
+    public static RenderTimer begin(String key) {
+        RenderTimer timer = new RenderTimer(key);
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    /**
+     * Unbinds the timer from current thread and records the total time.
+     * 
+     * @return
+     *   The timer or <code>null</code> if no timer was bound
+     */
+    public static RenderTimer end() {
+        RenderTimer timer = CURRENT.get();
+        if (timer != null) {
+            CURRENT.remove();
+            timer.durations[RenderPhase.TOTAL.ordinal()] = System.nanoTime() - timer.started;
+        }
+        return timer;
+    }
+
+    public static RenderTimer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the start time for a phase or <code>0</code> if timing is not active.
+     */
+    public static long start() {
+        return CURRENT.get() == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Adds the time elapsed since start to given phase.
+     */
+    public static void stop(RenderPhase phase, long start) {
+        RenderTimer timer = CURRENT.get();
+        if (timer != null && start != 0) {
+            timer.durations[phase.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Changes the key of current timer. Used when key is known only during processing.
+     */
+    public static void key(String key) {
+        RenderTimer timer = CURRENT.get();
+        if (timer != null) {
+            timer.key = key;
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the duration of phase in nanoseconds
+     */
+    public long getDuration(RenderPhase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * Returns the measured phases in <code>Server-Timing</code>-header format.
+     */
+    public String toServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (RenderPhase phase : PHASES) {
+            long duration = durations[phase.ordinal()];
+            if (duration > 0) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.getMetricName()).append(";dur=");
+                // Milliseconds with microsecond precision
+                long micros = duration / 1000;
+                sb.append(micros / 1000).append('.');
+                long fraction = micros % 1000;
+                if (fraction < 100) {
+                    sb.append('0');
+                }
+                if (fraction < 10) {
+                    sb.append('0');
+                }
+                sb.append(fraction);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TooManyListenersException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import net.contextfw.web.application.WebApplicationException;
+
+import org.apache.xalan.templates.ElemTemplate;
+import org.apache.xalan.trace.EndSelectionEvent;
+import org.apache.xalan.trace.GenerateEvent;
+import org.apache.xalan.trace.SelectionEvent;
+import org.apache.xalan.trace.TraceListenerEx2;
+import org.apache.xalan.trace.TracerEvent;
+import org.apache.xalan.transformer.TransformerImpl;
+import org.apache.xml.utils.QName;
+
+/**
+ * Measures the time spent in each template of the merged stylesheet.
+ * 
+ * <p>
+ *  Translets do not support tracing, so sampled transformations are run with 
+ *  the interpretive Xalan processor using a separately compiled stylesheet. 
+ *  Absolute times are therefore higher than in normal rendering, but the ranking of 
+ *  templates is representative.
+ * </p>
+ * 
+ * <p>
+ *  Total time includes templates applied or called by the template and self time 
+ *  excludes them. Time of recursive templates is included in total time once for 
+ *  each level of recursion.
+ * </p>
+ */
+public class TemplateProfiler implements TemplateProfilerMXBean {
+
+    private static final String TYPE = "TemplateProfiler";
+
+    private static final String INTERPRETIVE_FACTORY = 
+            "org.apache.xalan.processor.TransformerFactoryImpl";
+
+    private final int interval;
+
+    private final AtomicLong transformations = new AtomicLong();
+
+    private final AtomicLong profiled = new AtomicLong();
+
+    private final ConcurrentMap<String, Counters> templates = 
+            new ConcurrentHashMap<String, Counters>();
+
+    private volatile Map<String, String> sources = Collections.emptyMap();
+
+    private static class Counters {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong self = new AtomicLong();
+    }
+
+    private static class Frame {
+        private final String template;
+        private final long started;
+        private long children;
+
+        Frame(String template, long started) {
+            this.template = template;
+            this.started = started;
+        }
+    }
+
+    private class Listener implements TraceListenerEx2 {
+
+        private final List<Frame> stack = new ArrayList<Frame>();
+
+        @Override
+        public void trace(TracerEvent ev) {
+            if (ev.m_styleNode instanceof ElemTemplate) {
+                stack.add(new Frame(getLabel((ElemTemplate) ev.m_styleNode), System.nanoTime()));
+            }
+        }
+
+        @Override
+        public void traceEnd(TracerEvent ev) {
+            if (ev.m_styleNode instanceof ElemTemplate && !stack.isEmpty()) {
+                Frame frame = stack.remove(stack.size() - 1);
+                long total = System.nanoTime() - frame.started;
+                if (!stack.isEmpty()) {
+                    stack.get(stack.size() - 1).children += total;
+                }
+                record(frame.template, total, total - frame.children);
+            }
+        }
+
+        @Override
+        public void selected(SelectionEvent ev) {
+        }
+
+        @Override
+        public void selectEnd(EndSelectionEvent ev) {
+        }
+
+        @Override
+        public void generated(GenerateEvent ev) {
+        }
+    }
+
+    /**
+     * @param interval
+     *      Every n:th transformation is profiled. Zero disables profiling.
+     */
+    public TemplateProfiler(int interval) {
+        this(interval, null);
+    }
+
+    /**
+     * @param interval
+     *      Every n:th transformation is profiled. Zero disables profiling.
+     * @param application
+     *      The name of the application in JMX or <code>null</code> 
+     */
+    public TemplateProfiler(int interval, String application) {
+        this.interval = interval;
+        if (interval > 0) {
+            MBeans.register(this, TYPE, application);
+        }
+    }
+
+    public boolean isEnabled() {
+        return interval > 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the current transformation should be profiled.
+     */
+    public boolean sample() {
+        return interval > 0 && transformations.incrementAndGet() % interval == 0;
+    }
+
+    /**
+     * Compiles stylesheet for profiling with the interpretive processor.
+     */
+    public Templates compile(String xsl) {
+        try {
+            return TransformerFactory.newInstance(INTERPRETIVE_FACTORY, 
+                    TemplateProfiler.class.getClassLoader())
+                    .newTemplates(new StreamSource(new StringReader(xsl)));
+        } catch (TransformerConfigurationException e) {
+            throw new WebApplicationException("Could not compile stylesheet for profiling", e);
+        }
+    }
+
+    /**
+     * Transforms the source while recording template timings.
+     * 
+     * @param templates
+     *      Stylesheet compiled with {@link #compile(String)}
+     */
+    public void transform(Templates templates, Source source, Result result, String lang) 
+            throws TransformerException {
+        Transformer transformer = templates.newTransformer();
+        if (lang != null) {
+            transformer.setParameter("xml:lang", lang);
+        }
+        try {
+            ((TransformerImpl) transformer).getTraceManager().addTraceListener(new Listener());
+        } catch (TooManyListenersException e) {
+            throw new WebApplicationException(e);
+        }
+        transformer.transform(source, result);
+        profiled.incrementAndGet();
+    }
+
+    /**
+     * Sets the source files of templates by template label.
+     * 
+     * @see #getLabel(String, String, String)
+     */
+    public void setSources(Map<String, String> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Returns the label that identifies a template in reports.
+     */
+    public static String getLabel(String match, String name, String mode) {
+        StringBuilder sb = new StringBuilder();
+        if (name != null) {
+            sb.append("name=\"").append(localName(name)).append('"');
+        }
+        if (match != null) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append("match=\"").append(match).append('"');
+        }
+        if (mode != null) {
+            sb.append(" mode=\"").append(localName(mode)).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String localName(String qName) {
+        return qName.substring(qName.indexOf(':') + 1);
+    }
+
+    private static String getLabel(ElemTemplate template) {
+        QName name = template.getName();
+        QName mode = template.getMode();
+        return getLabel(
+                template.getMatch() == null ? null : template.getMatch().getPatternString(),
+                name == null ? null : name.getLocalName(),
+                mode == null ? null : mode.getLocalName());
+    }
+
+    private void record(String template, long total, long self) {
+        Counters counters = templates.get(template);
+        if (counters == null) {
+            counters = new Counters();
+            Counters existing = templates.putIfAbsent(template, counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        counters.count.incrementAndGet();
+        counters.total.addAndGet(total);
+        counters.self.addAndGet(self);
+    }
+
+    @Override
+    public long getProfiledCount() {
+        return profiled.get();
+    }
+
+    @Override
+    public List<TemplateTiming> getTemplates() {
+        List<TemplateTiming> timings = new ArrayList<TemplateTiming>();
+        Map<String, String> sources = this.sources;
+        for (Map.Entry<String, Counters> entry : templates.entrySet()) {
+            Counters counters = entry.getValue();
+            timings.add(new TemplateTiming(
+                    entry.getKey(),
+                    sources.get(entry.getKey()),
+                    counters.count.get(),
+                    counters.total.get() / 1000000.0,
+                    counters.self.get() / 1000000.0));
+        }
+        Collections.sort(timings, new Comparator<TemplateTiming>() {
+            @Override
+            public int compare(TemplateTiming a, TemplateTiming b) {
+                return Double.compare(b.getSelfMillis(), a.getSelfMillis());
+            }
+        });
+        return timings;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Profiled transformations: %d%n", profiled.get()));
+        sb.append(String.format("%10s %10s %10s  %s%n", "self ms", "total ms", "count", "template"));
+        for (TemplateTiming timing : getTemplates()) {
+            sb.append(String.format("%10.2f %10.2f %10d  %s%s%n",
+                    timing.getSelfMillis(),
+                    timing.getTotalMillis(),
+                    timing.getCount(),
+                    timing.getTemplate(),
+                    timing.getSource() == null ? "" : " (" + timing.getSource() + ")"));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        templates.clear();
+        profiled.set(0);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Aggregated timing of one template of the merged stylesheet.
+ */
+public class TemplateTiming {
+
+    private final String template;
+    private final String source;
+    private final long count;
+    private final double totalMillis;
+    private final double selfMillis;
+
+    @ConstructorProperties({ "template", "source", "count", "totalMillis", "selfMillis" })
+    public TemplateTiming(String template, String source, long count, 
+            double totalMillis, double selfMillis) {
+        this.template = template;
+        this.source = source;
+        this.count = count;
+        this.totalMillis = totalMillis;
+        this.selfMillis = selfMillis;
+    }
+
+    /**
+     * Returns the match, name and mode of the template
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Returns the name of the file that defines the template or <code>null</code>
+     * for built-in templates
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the time spent in template including templates applied by it
+     */
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Returns the time spent in template excluding templates applied by it
+     */
+    public double getSelfMillis() {
+        return selfMillis;
+    }
+}
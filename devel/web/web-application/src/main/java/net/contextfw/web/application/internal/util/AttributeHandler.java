@@ -17,8 +17,11 @@
 
 package net.contextfw.web.application.internal.util;
 
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.contextfw.web.application.configuration.Configuration;
 import net.contextfw.web.application.internal.ToStringSerializer;
@@ -30,13 +33,91 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Singleton;
 
+/**
+ * Serializes attribute values with the serializers bound to the configuration.
+ * 
+ * <p>
+ *  The serializer of a type is the nearest bound serializer of the type, its superclasses
+ *  or interfaces. Numbers, booleans, characters and strings that have no bound serializer 
+ *  are serialized without creating new strings for common values. Other values are 
+ *  serialized with <code>toString()</code>. Serializers are resolved once per type.
+ * </p>
+ */
 @Singleton
 public class AttributeHandler implements ObjectAttributeSerializer {
-    
+
+    private static final int CACHE_LOW = -128;
+
+    private static final int CACHE_HIGH = 1023;
+
+    private static final String[] NUMBERS = new String[CACHE_HIGH - CACHE_LOW + 1];
+
+    private static final String[] CHARACTERS = new String[128];
+
+    private static final Map<Class<?>, AttributeSerializer<Object>> BUILT_INS = 
+        new HashMap<Class<?>, AttributeSerializer<Object>>();
+
+    static {
+        for (int i = 0; i < NUMBERS.length; i++) {
+            NUMBERS[i] = String.valueOf(i + CACHE_LOW);
+        }
+        for (int i = 0; i < CHARACTERS.length; i++) {
+            CHARACTERS[i] = String.valueOf((char) i);
+        }
+        AttributeSerializer<Object> integer = new AttributeSerializer<Object>() {
+            @Override
+            public String serialize(Object source) {
+                return serializeNumber(((Number) source).longValue());
+            }
+        };
+        AttributeSerializer<Object> bool = new AttributeSerializer<Object>() {
+            @Override
+            public String serialize(Object source) {
+                return ((Boolean) source).booleanValue() ? "true" : "false";
+            }
+        };
+        AttributeSerializer<Object> character = new AttributeSerializer<Object>() {
+            @Override
+            public String serialize(Object source) {
+                char c = ((Character) source).charValue();
+                return c < CHARACTERS.length ? CHARACTERS[c] : String.valueOf(c);
+            }
+        };
+        AttributeSerializer<Object> string = new AttributeSerializer<Object>() {
+            @Override
+            public String serialize(Object source) {
+                return (String) source;
+            }
+        };
+        BUILT_INS.put(Byte.class, integer);
+        BUILT_INS.put(Short.class, integer);
+        BUILT_INS.put(Integer.class, integer);
+        BUILT_INS.put(Long.class, integer);
+        BUILT_INS.put(Boolean.class, bool);
+        BUILT_INS.put(Character.class, character);
+        BUILT_INS.put(String.class, string);
+    }
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
     private final Map<Class<?>,  AttributeSerializer<Object>> serializers = 
         new HashMap<Class<?>,  AttributeSerializer<Object>>();
+
+    private final ConcurrentMap<Class<?>, AttributeSerializer<Object>> resolved =
+        new ConcurrentHashMap<Class<?>, AttributeSerializer<Object>>();
     
-    private ToStringSerializer toStringSerializer = new ToStringSerializer();
+    private final AttributeSerializer<Object> toStringSerializer = new ToStringSerializer();
     
     @SuppressWarnings("unchecked")
     @Inject
@@ -57,18 +138,74 @@ public class AttributeHandler implements ObjectAttributeSerializer {
         }
 
     }
+
+    /**
+     * Returns string for the number without allocating if number is small.
+     */
+    static String serializeNumber(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return NUMBERS[(int) value - CACHE_LOW];
+        }
+        return Long.toString(value);
+    }
     
     @Override
     public String serialize(Object source) {
         if (source != null) {
-            Class<?> cl = source.getClass();
-            if (serializers.containsKey(cl)) {
-                return serializers.get(cl).serialize(source);
-            } else {
-                return toStringSerializer.serialize(source);
-            }
+            return getSerializer(source.getClass()).serialize(source);
         } else {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the serializer for values of given type.
+     * 
+     * <p>
+     *  If the type is primitive or final, the returned serializer can be used for all values
+     *  declared with the type. Otherwise this handler should be used, so that the serializer 
+     *  is chosen by the actual class of the value.
+     * </p>
+     */
+    public AttributeSerializer<Object> getSerializer(Class<?> type) {
+        AttributeSerializer<Object> serializer = resolved.get(type);
+        if (serializer == null) {
+            serializer = resolve(WRAPPERS.containsKey(type) ? WRAPPERS.get(type) : type);
+            resolved.put(type, serializer);
+        }
+        return serializer;
+    }
+
+    /**
+     * Returns <code>true</code> if all values of the type have the same serializer. 
+     */
+    public static boolean isExactType(Class<?> type) {
+        return type.isPrimitive() || Modifier.isFinal(type.getModifiers());
+    }
+
+    private AttributeSerializer<Object> resolve(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            AttributeSerializer<Object> serializer = findBound(current);
+            if (serializer != null) {
+                return serializer;
+            }
+        }
+        if (BUILT_INS.containsKey(type)) {
+            return BUILT_INS.get(type);
+        }
+        return toStringSerializer;
+    }
+
+    private AttributeSerializer<Object> findBound(Class<?> type) {
+        if (serializers.containsKey(type)) {
+            return serializers.get(type);
+        }
+        for (Class<?> iface : type.getInterfaces()) {
+            AttributeSerializer<Object> serializer = findBound(iface);
+            if (serializer != null) {
+                return serializer;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.util;
+
+/**
+ * Content encodings that can be used to compress responses.
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"), DEFLATE("deflate");
+
+    private final String name;
+
+    private ContentEncoding(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Chooses the encoding from <code>Accept-Encoding</code>-header.
+     * 
+     * <p>
+     *  Gzip is preferred over deflate. Encodings with quality value of <code>0</code> are
+     *  not accepted.
+     * </p>
+     * 
+     * @return
+     *   The encoding or <code>null</code> if response should not be compressed
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean any = false;
+        boolean gzipRefused = false;
+        for (String part : acceptEncoding.split(",")) {
+            int i = part.indexOf(';');
+            String name = (i == -1 ? part : part.substring(0, i)).trim();
+            boolean accepted = i == -1 || isAccepted(part.substring(i + 1));
+            if (GZIP.name.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                gzip |= accepted;
+                gzipRefused |= !accepted;
+            } else if (DEFLATE.name.equalsIgnoreCase(name)) {
+                deflate |= accepted;
+            } else if ("*".equals(name)) {
+                any = accepted;
+            }
+        }
+        if (gzip || (any && !gzipRefused)) {
+            return GZIP;
+        } else if (deflate) {
+            return DEFLATE;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isAccepted(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if responses with given content type are worth compressing.
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/")
+            || type.contains("javascript")
+            || type.contains("json")
+            || type.contains("xml");
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import com.google.inject.Singleton;
+
+/**
+ * Pool of deflaters.
+ * 
+ * <p>
+ *  Deflaters hold native memory and are expensive to create, so they are reused
+ *  between responses. Deflaters produce raw deflate data, headers and trailers are
+ *  written by {@link DeflatingOutputStream}. At most <code>maxIdle</code> deflaters
+ *  are kept, the rest are ended when released.
+ * </p>
+ */
+@Singleton
+public class DeflaterPool {
+
+    private static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 4;
+
+    private final ConcurrentLinkedQueue<Deflater> idle = new ConcurrentLinkedQueue<Deflater>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final int level;
+
+    private final int maxIdle;
+
+    public DeflaterPool() {
+        this(Deflater.DEFAULT_COMPRESSION, DEFAULT_MAX_IDLE);
+    }
+
+    public DeflaterPool(int level, int maxIdle) {
+        this.level = level;
+        this.maxIdle = maxIdle;
+    }
+
+    public Deflater acquire() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        } else {
+            idleCount.decrementAndGet();
+            return deflater;
+        }
+    }
+
+    public void release(Deflater deflater) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            deflater.reset();
+            idle.offer(deflater);
+        } else {
+            idleCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+}
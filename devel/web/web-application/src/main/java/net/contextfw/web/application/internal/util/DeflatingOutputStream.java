@@ -0,0 +1,208 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses written bytes in gzip- or deflate-format using a pooled deflater.
+ * 
+ * <p>
+ *  Deflater is returned to the pool when stream is finished. The underlying stream
+ *  is not closed unless this stream is closed.
+ * </p>
+ * 
+ * <p>
+ *  Flushing writes all data compressed so far, so that the client can decompress it, 
+ *  and then flushes the underlying stream. This requires <code>Deflater.SYNC_FLUSH</code>, 
+ *  which is available since Java 7. On older runtimes flushing only flushes the 
+ *  underlying stream, and compressed data is held back until the stream is finished.
+ * </p>
+ */
+public class DeflatingOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final byte[] GZIP_HEADER = { 
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9c };
+
+    // Deflater.SYNC_FLUSH
+    private static final int SYNC_FLUSH = 2;
+
+    // Deflater.deflate(byte[], int, int, int), available since Java 7
+    private static final Method SYNC_DEFLATE = findSyncDeflate();
+
+    private final OutputStream out;
+
+    private final ContentEncoding encoding;
+
+    private final DeflaterPool pool;
+
+    private final Checksum checksum;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private Deflater deflater;
+
+    private int size = 0;
+
+    private int flushedSize = 0;
+
+    public DeflatingOutputStream(OutputStream out, ContentEncoding encoding, DeflaterPool pool) 
+            throws IOException {
+        this.out = out;
+        this.encoding = encoding;
+        this.pool = pool;
+        this.deflater = pool.acquire();
+        if (encoding == ContentEncoding.GZIP) {
+            checksum = new CRC32();
+            out.write(GZIP_HEADER);
+        } else {
+            checksum = new Adler32();
+            out.write(ZLIB_HEADER);
+        }
+    }
+
+    private static Method findSyncDeflate() {
+        try {
+            return Deflater.class.getMethod("deflate", 
+                    byte[].class, int.class, int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compresses data in memory.
+     */
+    public static byte[] compress(byte[] data, ContentEncoding encoding, DeflaterPool pool) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            DeflatingOutputStream stream = new DeflatingOutputStream(out, encoding, pool);
+            stream.write(data);
+            stream.finish();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (deflater == null) {
+            throw new IOException("Stream is finished");
+        }
+        if (len == 0) {
+            return;
+        }
+        checksum.update(b, off, len);
+        size += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    private void deflate() throws IOException {
+        int len = deflater.deflate(buffer, 0, buffer.length);
+        if (len > 0) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    /**
+     * Writes remaining compressed data and the trailer and returns the deflater to the pool.
+     */
+    public void finish() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+        } finally {
+            pool.release(deflater);
+            deflater = null;
+        }
+        long value = checksum.getValue();
+        if (encoding == ContentEncoding.GZIP) {
+            writeIntLE((int) value);
+            writeIntLE(size);
+        } else {
+            out.write((int) (value >>> 24) & 0xff);
+            out.write((int) (value >>> 16) & 0xff);
+            out.write((int) (value >>> 8) & 0xff);
+            out.write((int) value & 0xff);
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (deflater != null && SYNC_DEFLATE != null && size > flushedSize) {
+            flushedSize = size;
+            int len;
+            do {
+                len = syncDeflate();
+                if (len > 0) {
+                    out.write(buffer, 0, len);
+                }
+            } while (len == buffer.length);
+        }
+        out.flush();
+    }
+
+    private int syncDeflate() throws IOException {
+        try {
+            return (Integer) SYNC_DEFLATE.invoke(deflater, buffer, 0, buffer.length, SYNC_FLUSH);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e.getMessage(), e);
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+}
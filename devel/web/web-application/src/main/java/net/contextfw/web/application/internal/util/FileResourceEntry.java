@@ -41,4 +41,14 @@ public class FileResourceEntry extends ResourceEntry {
             throw new WebApplicationException(e);
         }
     }
+
+    @Override
+    public long getLastModified() {
+        return file.lastModified();
+    }
+
+    @Override
+    public String getLocation() {
+        return file.getAbsolutePath();
+    }
 }
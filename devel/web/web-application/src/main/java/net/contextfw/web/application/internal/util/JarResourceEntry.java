@@ -44,4 +44,13 @@ public class JarResourceEntry extends ResourceEntry {
         }
     }
 
+    @Override
+    public long getLastModified() {
+        return entry.getTime();
+    }
+
+    @Override
+    public String getLocation() {
+        return file.getName() + "!/" + entry.getName();
+    }
 }
@@ -0,0 +1,276 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.remote.ParamConverter;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+/**
+ * Resolves converters for path parameters, request parameters and remoted method arguments.
+ * 
+ * <p>
+ *  Converters are resolved once per type in following order: bound converters, strings, 
+ *  primitives and their wrappers, enums and classes having a String-parametrized constructor.
+ *  Remoted method arguments of other types are deserialized from Json.
+ * </p>
+ */
+@Singleton
+public class ParamConverters {
+
+    private static final Map<Class<?>, ParamConverter<?>> BUILT_INS = 
+        new HashMap<Class<?>, ParamConverter<?>>();
+
+    static {
+        ParamConverter<String> string = new ParamConverter<String>() {
+            @Override
+            public String convert(String value) {
+                return value;
+            }
+        };
+        ParamConverter<Boolean> bool = new ParamConverter<Boolean>() {
+            @Override
+            public Boolean convert(String value) {
+                return Boolean.valueOf(value);
+            }
+        };
+        ParamConverter<Byte> b = new ParamConverter<Byte>() {
+            @Override
+            public Byte convert(String value) {
+                return Byte.valueOf(value);
+            }
+        };
+        ParamConverter<Character> c = new ParamConverter<Character>() {
+            @Override
+            public Character convert(String value) {
+                if (value.length() != 1) {
+                    throw new IllegalArgumentException("Not a character: " + value);
+                }
+                return value.charAt(0);
+            }
+        };
+        ParamConverter<Short> s = new ParamConverter<Short>() {
+            @Override
+            public Short convert(String value) {
+                return Short.valueOf(value);
+            }
+        };
+        ParamConverter<Integer> i = new ParamConverter<Integer>() {
+            @Override
+            public Integer convert(String value) {
+                return Integer.valueOf(value);
+            }
+        };
+        ParamConverter<Long> l = new ParamConverter<Long>() {
+            @Override
+            public Long convert(String value) {
+                return Long.valueOf(value);
+            }
+        };
+        ParamConverter<Float> f = new ParamConverter<Float>() {
+            @Override
+            public Float convert(String value) {
+                return Float.valueOf(value);
+            }
+        };
+        ParamConverter<Double> d = new ParamConverter<Double>() {
+            @Override
+            public Double convert(String value) {
+                return Double.valueOf(value);
+            }
+        };
+        BUILT_INS.put(String.class, string);
+        BUILT_INS.put(boolean.class, bool);
+        BUILT_INS.put(Boolean.class, bool);
+        BUILT_INS.put(byte.class, b);
+        BUILT_INS.put(Byte.class, b);
+        BUILT_INS.put(char.class, c);
+        BUILT_INS.put(Character.class, c);
+        BUILT_INS.put(short.class, s);
+        BUILT_INS.put(Short.class, s);
+        BUILT_INS.put(int.class, i);
+        BUILT_INS.put(Integer.class, i);
+        BUILT_INS.put(long.class, l);
+        BUILT_INS.put(Long.class, l);
+        BUILT_INS.put(float.class, f);
+        BUILT_INS.put(Float.class, f);
+        BUILT_INS.put(double.class, d);
+        BUILT_INS.put(Double.class, d);
+    }
+
+    private static class EnumConverter implements ParamConverter<Object> {
+
+        private final Class<?> type;
+
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+
+        EnumConverter(Class<?> type) {
+            this.type = type;
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        @Override
+        public Object convert(String value) {
+            Object constant = constants.get(value);
+            if (constant == null) {
+                throw new IllegalArgumentException(
+                        "No enum constant " + type.getName() + "." + value);
+            }
+            return constant;
+        }
+    }
+
+    private static class ConstructorConverter implements ParamConverter<Object> {
+
+        private final Constructor<?> constructor;
+
+        ConstructorConverter(Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public Object convert(String value) {
+            try {
+                return constructor.newInstance(value);
+            } catch (InvocationTargetException e) {
+                throw new WebApplicationException(e);
+            } catch (InstantiationException e) {
+                throw new WebApplicationException(e);
+            } catch (IllegalAccessException e) {
+                throw new WebApplicationException(e);
+            }
+        }
+    }
+
+    private static class JsonConverter implements ParamConverter<Object> {
+
+        private final Gson gson;
+
+        private final Class<?> type;
+
+        JsonConverter(Gson gson, Class<?> type) {
+            this.gson = gson;
+            this.type = type;
+        }
+
+        @Override
+        public Object convert(String value) {
+            return gson.fromJson(value, type);
+        }
+    }
+
+    private final Map<Class<?>, ParamConverter<?>> bound = 
+        new HashMap<Class<?>, ParamConverter<?>>();
+
+    private final ConcurrentMap<Class<?>, ParamConverter<?>> converters = 
+        new ConcurrentHashMap<Class<?>, ParamConverter<?>>();
+
+    // Types that have been resolved to have no converter
+    private final Set<Class<?>> unconvertible = 
+        Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    private final ConcurrentMap<Class<?>, ParamConverter<?>> jsonConverters = 
+        new ConcurrentHashMap<Class<?>, ParamConverter<?>>();
+
+    private final Gson gson;
+
+    public ParamConverters(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Inject
+    public ParamConverters(Injector injector, Configuration conf, Gson gson) {
+        this(gson);
+        for (KeyValue<Class<?>, Class<? extends ParamConverter<?>>> entry : conf
+                .get(Configuration.PARAM_CONVERTER)) {
+            bound.put(entry.getKey(), injector.getInstance(entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns converter for the type or <code>null</code> if type cannot be converted 
+     * from string.
+     */
+    @SuppressWarnings("unchecked")
+    public ParamConverter<Object> getConverter(Class<?> type) {
+        ParamConverter<?> converter = converters.get(type);
+        if (converter == null && !unconvertible.contains(type)) {
+            converter = resolve(type);
+            if (converter == null) {
+                unconvertible.add(type);
+            } else {
+                converters.put(type, converter);
+            }
+        }
+        return (ParamConverter<Object>) converter;
+    }
+
+    /**
+     * Returns converter for the type. If type cannot be converted from string, the value
+     * is deserialized from Json.
+     */
+    @SuppressWarnings("unchecked")
+    public ParamConverter<Object> getJsonConverter(Class<?> type) {
+        ParamConverter<Object> converter = getConverter(type);
+        if (converter != null) {
+            return converter;
+        }
+        ParamConverter<?> jsonConverter = jsonConverters.get(type);
+        if (jsonConverter == null) {
+            jsonConverter = new JsonConverter(gson, type);
+            jsonConverters.put(type, jsonConverter);
+        }
+        return (ParamConverter<Object>) jsonConverter;
+    }
+
+    /**
+     * @return
+     *      The converter or <code>null</code> if type cannot be converted from string
+     */
+    private ParamConverter<?> resolve(Class<?> type) {
+        if (bound.containsKey(type)) {
+            return bound.get(type);
+        } else if (BUILT_INS.containsKey(type)) {
+            return BUILT_INS.get(type);
+        } else if (type.isEnum()) {
+            return new EnumConverter(type);
+        } else {
+            try {
+                return new ConstructorConverter(type.getConstructor(String.class));
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -32,7 +32,20 @@ public abstract class ResourceEntry {
     
     public abstract InputStream getInputStream();
     
+    /**
+     * Returns the last modification time of the resource or <code>-1</code> if it is unknown
+     */
+    public abstract long getLastModified();
+    
     public String getPath() {
         return path;
     }
+
+    /**
+     * Returns the absolute location of the resource. Unlike the path, it distinguishes 
+     * resources that have the same path in different jars or directories.
+     */
+    public String getLocation() {
+        return path;
+    }
 }
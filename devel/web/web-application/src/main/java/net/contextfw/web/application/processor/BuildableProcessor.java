@@ -0,0 +1,499 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.CacheKey;
+import net.contextfw.web.application.component.CustomBuild;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.ScriptElement;
+import net.contextfw.web.application.lifecycle.AfterBuild;
+import net.contextfw.web.application.lifecycle.BeforeBuild;
+import net.contextfw.web.application.remote.PathParam;
+import net.contextfw.web.application.remote.RequestParam;
+
+/**
+ * Annotation processor that generates builders for buildable components at compile time.
+ * 
+ * <p>
+ *  For each class that is buildable or declares annotated members, a class named
+ *  <code>&lt;Class&gt;$$Builder</code> is generated into the same package. It reads fields
+ *  and invokes methods directly, so also package private and protected members can be 
+ *  accessed without reflection. The generated builder provides
+ * </p>
+ * 
+ * <ul>
+ *  <li>the build order of the members of the class and its superclasses, which is the 
+ *      order they are declared in</li>
+ *  <li>the build of the members that are built on create, calling the builders in order
+ *      with values read directly</li>
+ *  <li>accessors of attributes, elements, script elements, cache keys and build 
+ *      lifecycle methods</li>
+ *  <li>binding of path and request parameters</li>
+ * </ul>
+ * 
+ * <p>
+ *  Private and static members, methods with checked exceptions and members that are not
+ *  visible in the package of the class are left to reflection.
+ * </p>
+ * 
+ * <p>
+ *  The processor is optional and is not registered as a service. To enable it, add it to
+ *  the compiler configuration:
+ * </p>
+ * 
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;org.apache.maven.plugins&lt;/groupId&gt;
+ *   &lt;artifactId&gt;maven-compiler-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;annotationProcessors&gt;
+ *       &lt;annotationProcessor&gt;
+ *         net.contextfw.web.application.processor.BuildableProcessor
+ *       &lt;/annotationProcessor&gt;
+ *     &lt;/annotationProcessors&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * 
+ * <p>
+ *  Generated builders are used automatically when component classes are inspected. If
+ *  a class has not been processed, accessors are generated at runtime or reflection is used.
+ * </p>
+ */
+@SupportedAnnotationTypes({
+    "net.contextfw.web.application.component.Buildable",
+    "net.contextfw.web.application.component.Attribute",
+    "net.contextfw.web.application.component.Element",
+    "net.contextfw.web.application.component.CustomBuild",
+    "net.contextfw.web.application.component.ScriptElement",
+    "net.contextfw.web.application.component.CacheKey",
+    "net.contextfw.web.application.lifecycle.BeforeBuild",
+    "net.contextfw.web.application.lifecycle.AfterBuild",
+    "net.contextfw.web.application.remote.PathParam",
+    "net.contextfw.web.application.remote.RequestParam" })
+public class BuildableProcessor extends AbstractProcessor {
+
+    public static final String SUFFIX = "$$Builder";
+
+    private static final String ACCESSOR = 
+        "net.contextfw.web.application.internal.component.Accessor";
+
+    private static final String GENERATED_BUILDER = 
+        "net.contextfw.web.application.internal.component.GeneratedBuilder";
+
+    /**
+     * A built member in the build order
+     */
+    private static class Built {
+
+        private final Element member;
+
+        private final boolean onCreate;
+
+        private final boolean custom;
+
+        Built(Element member, boolean onCreate, boolean custom) {
+            this.member = member;
+            this.onCreate = onCreate;
+            this.custom = custom;
+        }
+    }
+
+    private final Set<String> generated = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        List<TypeElement> types = new ArrayList<TypeElement>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectClasses(type, types);
+        }
+
+        for (TypeElement type : types) {
+            String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+            if (!generated.contains(binaryName) 
+                    && isAccessible(type, getPackage(type))
+                    && (isBuildable(type) || hasAnnotatedMembers(type))) {
+                generated.add(binaryName);
+                try {
+                    write(type, binaryName);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Kind.ERROR, 
+                            "Could not generate builder: " + e.getMessage(), type);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void collectClasses(TypeElement type, List<TypeElement> types) {
+        if (type.getKind() == ElementKind.CLASS) {
+            types.add(type);
+        }
+        for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectClasses(member, types);
+        }
+    }
+
+    private boolean isBuildable(TypeElement type) {
+        for (TypeElement current : getHierarchy(type)) {
+            if (current.getAnnotation(Buildable.class) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAnnotatedMembers(TypeElement type) {
+        for (Element member : type.getEnclosedElements()) {
+            if (isBuilt(member) || isAccessed(member) || isParam(member)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBuilt(Element member) {
+        return member.getAnnotation(net.contextfw.web.application.component.Element.class) != null
+                || member.getAnnotation(Attribute.class) != null
+                || member.getAnnotation(ScriptElement.class) != null
+                || (member.getKind() == ElementKind.METHOD 
+                        && member.getAnnotation(CustomBuild.class) != null);
+    }
+
+    private static boolean isAccessed(Element member) {
+        return member.getAnnotation(CacheKey.class) != null
+                || member.getAnnotation(BeforeBuild.class) != null
+                || member.getAnnotation(AfterBuild.class) != null;
+    }
+
+    private static boolean isParam(Element member) {
+        return member.getAnnotation(PathParam.class) != null
+                || member.getAnnotation(RequestParam.class) != null;
+    }
+
+    private List<TypeElement> getHierarchy(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+        TypeElement current = type;
+        while (current != null) {
+            hierarchy.add(current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED 
+                ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass) : null;
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Resolves the built members in the same way as the runtime introspection does. All 
+     * fields are handled before methods, subclasses before superclasses, and a name is 
+     * handled only once.
+     */
+    private List<Built> getBuildOrder(TypeElement type) {
+        List<Built> order = new ArrayList<Built>();
+        Set<String> names = new HashSet<String>();
+        List<TypeElement> hierarchy = getHierarchy(type);
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                String name = field.getSimpleName().toString();
+                if (!names.contains(name)) {
+                    if (isBuilt(field)) {
+                        order.add(new Built(field, isBuiltOnCreate(field), false));
+                    }
+                    if (isBuilt(field) || isParam(field)) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        for (TypeElement current : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                String name = method.getSimpleName().toString();
+                if (!names.contains(name)) {
+                    if (isBuilt(method)) {
+                        order.add(new Built(method, isBuiltOnCreate(method), 
+                                isCustomBuild(method)));
+                    }
+                    if (isBuilt(method) || isAccessed(method) || isParam(method)) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private static boolean isCustomBuild(Element member) {
+        return member.getAnnotation(net.contextfw.web.application.component.Element.class) == null
+                && member.getAnnotation(Attribute.class) == null
+                && member.getAnnotation(CustomBuild.class) != null;
+    }
+
+    private static boolean isBuiltOnCreate(Element member) {
+        net.contextfw.web.application.component.Element element = 
+            member.getAnnotation(net.contextfw.web.application.component.Element.class);
+        if (element != null) {
+            return element.onCreate();
+        } else if (member.getAnnotation(Attribute.class) != null) {
+            return member.getAnnotation(Attribute.class).onCreate();
+        } else if (isCustomBuild(member)) {
+            return member.getAnnotation(CustomBuild.class).onCreate();
+        } else {
+            return member.getAnnotation(ScriptElement.class).onCreate();
+        }
+    }
+
+    private PackageElement getPackage(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private boolean isVisible(Element element, PackageElement pkg) {
+        Set<Modifier> modifiers = element.getModifiers();
+        return !modifiers.contains(Modifier.PRIVATE) 
+                && (modifiers.contains(Modifier.PUBLIC) 
+                        || getPackage(element).getQualifiedName().equals(pkg.getQualifiedName()));
+    }
+
+    private boolean isAccessible(TypeElement type, PackageElement pkg) {
+        if (!isVisible(type, pkg)) {
+            return false;
+        } else if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+            return true;
+        } else if (type.getNestingKind() == NestingKind.MEMBER) {
+            return isAccessible((TypeElement) type.getEnclosingElement(), pkg);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if member can be accessed directly from given package.
+     * 
+     * @param parameters
+     *    The number of parameters the method must take
+     */
+    private boolean isAccessible(Element member, PackageElement pkg, int parameters) {
+        if (!isVisible(member, pkg) || member.getModifiers().contains(Modifier.STATIC)
+                || !isAccessible((TypeElement) member.getEnclosingElement(), pkg)) {
+            return false;
+        } else if (member.getKind() == ElementKind.METHOD) {
+            ExecutableElement method = (ExecutableElement) member;
+            return method.getParameters().size() == parameters 
+                    && !throwsCheckedExceptions(method);
+        } else {
+            return true;
+        }
+    }
+
+    private boolean throwsCheckedExceptions(ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror runtimeException = processingEnv.getElementUtils()
+            .getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = processingEnv.getElementUtils()
+            .getTypeElement(Error.class.getName()).asType();
+        for (TypeMirror thrown : method.getThrownTypes()) {
+            if (!types.isAssignable(thrown, runtimeException) 
+                    && !types.isAssignable(thrown, error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCustomBuildable(ExecutableElement method, PackageElement pkg) {
+        Types types = processingEnv.getTypeUtils();
+        return isAccessible(method, pkg, 1) && types.isSameType(
+                types.erasure(method.getParameters().get(0).asType()), 
+                processingEnv.getElementUtils().getTypeElement(
+                        DOMBuilder.class.getName()).asType());
+    }
+
+    private String getTypeName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+                .getQualifiedName().toString();
+        } else {
+            return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+    }
+
+    /**
+     * Returns the expression that accesses the member of the target
+     */
+    private String access(Element member, String argument) {
+        String target = "((" + getTypeName(member.getEnclosingElement().asType()) + ") target).";
+        if (member.getKind() == ElementKind.METHOD) {
+            return target + member.getSimpleName() + "(" + argument + ")";
+        } else {
+            return target + member.getSimpleName();
+        }
+    }
+
+    private static String getKey(Element member) {
+        return member.getSimpleName() + (member.getKind() == ElementKind.METHOD ? "()" : "");
+    }
+
+    private void write(TypeElement type, String binaryName) throws IOException {
+        PackageElement pkg = getPackage(type);
+        String simpleName = (pkg.isUnnamed() ? binaryName 
+                : binaryName.substring(pkg.getQualifiedName().length() + 1)) + SUFFIX;
+
+        PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(binaryName + SUFFIX, type).openWriter());
+        try {
+            if (!pkg.isUnnamed()) {
+                out.println("package " + pkg.getQualifiedName() + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by " + getClass().getName());
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements " 
+                    + GENERATED_BUILDER + " {");
+            out.println();
+            writeBuild(out, type, pkg);
+            out.println();
+            writeGetAccessor(out, type);
+            out.println();
+            writeSetParam(out, type);
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBuild(PrintWriter out, TypeElement type, PackageElement pkg) {
+        List<Built> order = isBuildable(type) ? getBuildOrder(type) : null;
+        out.println("    public String[] getBuildOrder() {");
+        if (order == null) {
+            out.println("        return null;");
+        } else {
+            out.print("        return new String[] {");
+            for (int i = 0; i < order.size(); i++) {
+                out.print((i == 0 ? " \"" : ", \"") + order.get(i).member.getSimpleName() + "\"");
+            }
+            out.println(" };");
+        }
+        out.println("    }");
+        out.println();
+        out.println("    public void build(Object target, " + DOMBuilder.class.getName() 
+                + " b, " + GENERATED_BUILDER + ".Calls calls) {");
+        for (int i = 0; order != null && i < order.size(); i++) {
+            Built built = order.get(i);
+            if (!built.onCreate) {
+                continue;
+            } else if (built.custom 
+                    && isCustomBuildable((ExecutableElement) built.member, pkg)) {
+                out.println("        " + access(built.member, "calls.custom(" + i + ", b)") + ";");
+            } else if (!built.custom && isAccessible(built.member, pkg, 0)) {
+                out.println("        calls.property(" + i + ", b, target, " 
+                        + access(built.member, "") + ");");
+            } else {
+                out.println("        calls.member(" + i + ", b, target);");
+            }
+        }
+        out.println("    }");
+    }
+
+    private void writeGetAccessor(PrintWriter out, TypeElement type) {
+        PackageElement pkg = getPackage(type);
+        out.println("    public " + ACCESSOR + " getAccessor(String member) {");
+        for (Element member : type.getEnclosedElements()) {
+            if (!(isBuilt(member) || isAccessed(member)) || isCustomBuild(member)
+                    || !isAccessible(member, pkg, 0)) {
+                continue;
+            }
+            boolean isVoid = member.getKind() == ElementKind.METHOD && ((ExecutableElement) member)
+                    .getReturnType().getKind() == TypeKind.VOID;
+            out.println("        if (\"" + getKey(member) + "\".equals(member)) {");
+            out.println("            return new " + ACCESSOR + "() {");
+            out.println("                public Object access(Object target) {");
+            if (isVoid) {
+                out.println("                    " + access(member, "") + ";");
+                out.println("                    return null;");
+            } else {
+                out.println("                    return " + access(member, "") + ";");
+            }
+            out.println("                }");
+            out.println("            };");
+            out.println("        }");
+        }
+        out.println("        return null;");
+        out.println("    }");
+    }
+
+    private void writeSetParam(PrintWriter out, TypeElement type) {
+        PackageElement pkg = getPackage(type);
+        out.println("    @SuppressWarnings(\"unchecked\")");
+        out.println("    public boolean setParam(Object target, String member, Object value) {");
+        for (Element member : type.getEnclosedElements()) {
+            if (!isParam(member) || !isAccessible(member, pkg, 1)) {
+                continue;
+            }
+            String assignment;
+            if (member.getKind() == ElementKind.METHOD) {
+                assignment = access(member, "(" + getTypeName(((ExecutableElement) member)
+                        .getParameters().get(0).asType()) + ") value");
+            } else if (member.getKind() == ElementKind.FIELD 
+                    && !member.getModifiers().contains(Modifier.FINAL)) {
+                assignment = access(member, "") + " = (" + getTypeName(member.asType()) + ") value";
+            } else {
+                continue;
+            }
+            out.println("        if (\"" + getKey(member) + "\".equals(member)) {");
+            out.println("            " + assignment + ";");
+            out.println("            return true;");
+            out.println("        }");
+        }
+        out.println("        return false;");
+        out.println("    }");
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.remote;
+
+/**
+ * Converts the string value of a path parameter, request parameter or remoted method 
+ * argument to the expected type.
+ * 
+ * <p>
+ *  Converters are bound with {@link net.contextfw.web.application.configuration.Configuration#PARAM_CONVERTER}
+ *  and are resolved once per parameter, when component classes are inspected. A bound
+ *  converter takes precedence over built-in conversions.
+ * </p>
+ * 
+ * <p>
+ *  Converters must be thread-safe. Exceptions thrown are handled as conversion errors.
+ * </p>
+ * 
+ * @param <T>
+ *  Type of the converted value
+ */
+public interface ParamConverter<T> {
+    
+    T convert(String value);
+}
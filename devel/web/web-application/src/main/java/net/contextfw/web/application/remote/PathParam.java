@@ -47,7 +47,8 @@ import java.lang.annotation.Target;
  * 
  * <p>
  *  At this points primitives and their wrappers are supported. Also any class having a 
- *  String-parametrized contructor is supported.
+ *  String-parametrized contructor is supported. Enums and types
+ *  having a {@link ParamConverter} are supported as well.
  * </p>
  * 
  * <h3>Mapping in path-style URLs</h3>
@@ -28,7 +28,8 @@ import java.lang.annotation.Target;
  *
  * <p>
  *  The method can take any combination of arguments as long as they
- *  are parseable from primitives or json.
+ *  are parseable from primitives or json. Enums and types having a 
+ *  {@link ParamConverter} are converted directly.
  * </p>
  */
 @Target( { METHOD })
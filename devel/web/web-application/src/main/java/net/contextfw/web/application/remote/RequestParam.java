@@ -40,7 +40,8 @@ import java.lang.annotation.Target;
  * </p>
  *  <p>
  *  At this points primitives and their wrappers are supported. Also any class having a 
- *  String-parametrized contructor is also supported.
+ *  String-parametrized contructor is also supported. Enums and types
+ *  having a {@link ParamConverter} are supported as well.
  * </p>
  * <h3>Important caveat on initialization</h3>
  * 
@@ -1,13 +1,11 @@
 package net.contextfw.web.application.scope;
 
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -24,17 +22,26 @@ import org.slf4j.LoggerFactory;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+/**
+ * Stores web applications in memory.
+ * 
+ * <p>
+ *  Pages are kept in a concurrent map and each page is locked separately, only while 
+ *  it is being executed. Lookups, large objects and removal of expired pages do not 
+ *  take any lock shared by all pages.
+ * </p>
+ */
 @Singleton
 public class DefaultWebApplicationStorage implements WebApplicationStorage {
 
     private static final int MAX_LENGTH = 16;
 
+    private static final int CONCURRENCY_LEVEL = 64;
+
     private Logger logger = LoggerFactory.getLogger(DefaultWebApplicationStorage.class);
 
-    private final Map<PageHandle, Holder> pages = 
-            new HashMap<PageHandle, Holder>();
-    
-    
+    private final ConcurrentMap<PageHandle, Holder> pages = 
+            new ConcurrentHashMap<PageHandle, Holder>(256, 0.75f, CONCURRENCY_LEVEL);
     
     public static final SettableProperty<Boolean> PROXIED = 
             Configuration.createProperty(Boolean.class, 
@@ -43,10 +50,11 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
     private final boolean proxied;
     
     private static final class Holder {
-        private long validThrough;
+        private volatile long validThrough;
         private final String remoteAddr;
         private final WebApplication application;
-        private final Map<String, Object> largeObjects = new HashMap<String, Object>();
+        private final ConcurrentMap<String, Object> largeObjects = 
+                new ConcurrentHashMap<String, Object>(4, 0.75f, 1);
         
         private Holder(WebApplication application, 
                              String remoteAddr, 
@@ -82,9 +90,7 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
         PageHandle handle = createHandle();
         application.setHandle(handle);
         Holder holder = new Holder(application, getRemoteAddr(request), validThrough);
-        synchronized(this) {
-            pages.put(handle, holder);
-        }
+        pages.put(handle, holder);
         synchronized (holder) {
             execution.execute(holder.application);
         }
@@ -120,10 +126,7 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
     }
     
     private Holder getHolder(PageHandle handle, HttpServletRequest request) {
-        Holder holder;
-        synchronized (this) {
-            holder = pages.get(handle);    
-        }
+        Holder holder = pages.get(handle);
         String remoteAddr = getRemoteAddr(request);
         long now = System.currentTimeMillis();
         if (holder != null && holder.remoteAddr.equals(remoteAddr) 
@@ -135,12 +138,11 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
     }
 
     @Override
-    public synchronized void remove(PageHandle handle,
+    public void remove(PageHandle handle,
                        HttpServletRequest request) {
         
         Holder holder = getHolder(handle, request);
-        if (holder != null) {
-            pages.remove(handle);
+        if (holder != null && pages.remove(handle, holder)) {
             pageRemoved(handle, pages.size(), getRemoteAddr(request));
         }
     }
@@ -171,24 +173,23 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
         
     }
     
-    private synchronized void removeExpiredPages() {
+    /**
+     * Removes expired pages without locking the storage or the pages. 
+     * 
+     * <p>
+     *  The iteration is weakly consistent, so pages added during the removal may 
+     *  or may not be seen. A page is removed only if it has not been replaced meanwhile.
+     * </p>
+     */
+    protected void removeExpiredPages() {
 
         long now = System.currentTimeMillis();
 
-        try {
-            Iterator<Entry<PageHandle, Holder>> iterator =
-                pages.entrySet().iterator();
-
-            while (iterator.hasNext()) {
-                Entry<PageHandle, Holder> entry = iterator.next();
-                if (entry.getValue().validThrough < now) {
-                    pageExpired(entry.getKey(), pages.size(), entry.getValue().remoteAddr);
-                    iterator.remove();
-                }
+        for (Entry<PageHandle, Holder> entry : pages.entrySet()) {
+            Holder holder = entry.getValue();
+            if (holder.validThrough < now && pages.remove(entry.getKey(), holder)) {
+                pageExpired(entry.getKey(), pages.size(), holder.remoteAddr);
             }
-        } catch (ConcurrentModificationException cme) {
-            // Swallowing this exception, because 
-            // it is not really a big deal.
         }
     }
     
@@ -203,10 +204,7 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
     @Override
     public void execute(PageHandle handle,
                         ScopedWebApplicationExecution execution) {
-        Holder holder;
-        synchronized (this) {
-            holder = pages.get(handle);
-        }
+        Holder holder = pages.get(handle);
         if (holder != null) {
             synchronized (holder) {
                 execution.execute(holder.application);    
@@ -223,16 +221,14 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
         } else if (StringUtils.isBlank(key)) {
             throw new IllegalArgumentException("Key cannot be null!");
         }
-        synchronized (this) {
-            Holder holder = pages.get(handle);
-            if (holder == null) {
-                throw new WebApplicationException("Page scope does not exist!");
-            }
-            if (obj == null) {
-                holder.largeObjects.remove(key);
-            } else {
-                holder.largeObjects.put(key, obj);
-            }
+        Holder holder = pages.get(handle);
+        if (holder == null) {
+            throw new WebApplicationException("Page scope does not exist!");
+        }
+        if (obj == null) {
+            holder.largeObjects.remove(key);
+        } else {
+            holder.largeObjects.put(key, obj);
         }
     }
 
@@ -244,12 +240,10 @@ public class DefaultWebApplicationStorage implements WebApplicationStorage {
         } else if (StringUtils.isBlank(key)) {
             throw new IllegalArgumentException("Key cannot be null!");
         }
-        synchronized (this) {
-            Holder holder = pages.get(handle);
-            if (holder == null) {
-                throw new WebApplicationException("Page scope does not exist!");
-            }
-            return (T) holder.largeObjects.get(key);
+        Holder holder = pages.get(handle);
+        if (holder == null) {
+            throw new WebApplicationException("Page scope does not exist!");
         }
+        return (T) holder.largeObjects.get(key);
     }
 }
\ No newline at end of file
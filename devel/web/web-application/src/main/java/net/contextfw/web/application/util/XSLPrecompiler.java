@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.util;
+
+import java.io.File;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.WebResponder;
+
+import com.google.inject.Guice;
+import com.google.inject.Module;
+import com.google.inject.Stage;
+
+/**
+ * Compiles the application stylesheet into translet classes during build.
+ *
+ * <p>
+ *  The stylesheet is merged exactly as it would be at runtime, so namespaces and
+ *  XSL post processor are applied. The configuration is read from the given module,
+ *  which must install <code>WebApplicationModule</code> and have a public no-argument
+ *  constructor. Property <code>Configuration.PRECOMPILED_XSL</code> defines the name
+ *  of the generated translet.
+ * </p>
+ *
+ * <p>
+ *  Usage: <code>XSLPrecompiler [module class] [output directory]</code>
+ * </p>
+ *
+ * <p>
+ *  With Maven the compiler can be run in <code>process-classes</code>-phase, so that
+ *  translets are packaged with the application classes:
+ * </p>
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *   &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;
+ *     &lt;execution&gt;
+ *       &lt;phase&gt;process-classes&lt;/phase&gt;
+ *       &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *       &lt;configuration&gt;
+ *         &lt;mainClass&gt;net.contextfw.web.application.util.XSLPrecompiler&lt;/mainClass&gt;
+ *         &lt;arguments&gt;
+ *           &lt;argument&gt;com.example.MyApplicationModule&lt;/argument&gt;
+ *           &lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *         &lt;/arguments&gt;
+ *       &lt;/configuration&gt;
+ *     &lt;/execution&gt;
+ *   &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ */
+public final class XSLPrecompiler {
+
+    private XSLPrecompiler() {}
+
+    public static void precompile(Module module, File directory) {
+        Guice.createInjector(Stage.DEVELOPMENT, module)
+            .getInstance(WebResponder.class)
+            .precompileXSL(directory);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new WebApplicationException(
+                    "Usage: XSLPrecompiler [module class] [output directory]");
+        }
+        Module module = (Module) Thread.currentThread().getContextClassLoader()
+                .loadClass(args[0]).newInstance();
+        precompile(module, new File(args[1]));
+    }
+}
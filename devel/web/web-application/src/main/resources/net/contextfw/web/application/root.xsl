@@ -48,6 +48,17 @@
 <xsl:template match="Script"><!-- LEAVE THIS EMPTY --></xsl:template>
 <xsl:template match="Script" mode="script"><xsl:apply-templates mode="script" /></xsl:template>
 
+<xsl:template match="KeyedUpdate">
+	<xsl:apply-templates mode="keyed" />
+</xsl:template>
+<xsl:template match="Remove" mode="keyed"><remove id="{@id}"></remove></xsl:template>
+<xsl:template match="Insert" mode="keyed"><insertAfter parent="{../@container}" id="{@after}"><xsl:apply-templates /></insertAfter></xsl:template>
+<xsl:template match="Move" mode="keyed"><insertAfter parent="{../@container}" id="{@after}" item="{@id}"></insertAfter></xsl:template>
+<xsl:template match="Change" mode="keyed"><replace id="{@id}"><xsl:apply-templates /></replace></xsl:template>
+
+<xsl:template match="Deferred"><div id="{@id}"></div></xsl:template>
+<xsl:template match="Deferred.update"><replace id="{@id}"><xsl:apply-templates /></replace></xsl:template>
+
 <xsl:template match="WebApplication" mode="context">
 	<xsl:apply-templates />
 </xsl:template>
@@ -24,6 +24,7 @@ import net.contextfw.web.application.WebApplicationException;
 import net.contextfw.web.application.internal.ToStringSerializer;
 import net.contextfw.web.application.internal.component.ComponentBuilder;
 import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
 import net.contextfw.web.application.internal.component.InternalComponentRegister;
 import net.contextfw.web.application.internal.component.WebApplicationComponent;
 import net.contextfw.web.application.internal.configuration.KeyValue;
@@ -63,7 +64,7 @@ public abstract class BaseComponentTest {
     public void before() {
         componentRegister = new InternalComponentRegister();
         Gson gson = new Gson();
-        componentBuilder = new ComponentBuilderImpl(null, gson);
+        componentBuilder = new ComponentBuilderImpl(null, gson, new FragmentCache(0), true);
         scriptContext = (ScriptContext) componentBuilder;
         domBuilder = new DOMBuilder("WebApplication", serializer, componentBuilder, 
                 new HashSet<KeyValue<String, String>>());
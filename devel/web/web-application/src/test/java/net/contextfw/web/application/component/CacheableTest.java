@@ -0,0 +1,200 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.component;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class CacheableTest extends BaseComponentTest {
+
+    @Buildable(cacheable = true)
+    public static class Menu {
+
+        private final String category;
+
+        private int builds = 0;
+
+        public Menu(String category) {
+            this.category = category;
+        }
+
+        @CacheKey
+        public String cacheKey() {
+            return category;
+        }
+
+        @Attribute
+        public String category() {
+            builds++;
+            return category;
+        }
+    }
+
+    @Buildable(cacheable = true)
+    public static class NoKey {
+    }
+
+    @Buildable(cacheable = true)
+    public static class CachedComponent extends Component {
+
+        @CacheKey
+        public String cacheKey() {
+            return "key";
+        }
+    }
+
+    @Buildable
+    public static class Label extends Component {
+    }
+
+    @Buildable(cacheable = true)
+    public static class Panel {
+
+        @Element
+        public final Label label;
+
+        public Panel(Label label) {
+            this.label = label;
+        }
+
+        @CacheKey
+        public String cacheKey() {
+            return "panel";
+        }
+    }
+
+    private FragmentCache cache;
+
+    private void setupCache(int size) {
+        cache = new FragmentCache(size);
+        componentBuilder = new ComponentBuilderImpl(null, new Gson(), cache, true);
+        domBuilder = new DOMBuilder("WebApplication", serializer, componentBuilder,
+                new HashSet<KeyValue<String, String>>());
+    }
+
+    @Test
+    public void Cached_Tree_Is_Reused() {
+        setupCache(10000);
+        Menu first = new Menu("a");
+        Menu second = new Menu("a");
+        domBuilder.child(first);
+        domBuilder.child(second);
+        domBuilder.child(new Menu("b"));
+
+        assertEquals(1, first.builds);
+        assertEquals(0, second.builds);
+        assertDom("//WebApplication/Menu[1]").hasAttribute("category", "a");
+        assertDom("//WebApplication/Menu[2]").hasAttribute("category", "a");
+        assertDom("//WebApplication/Menu[3]").hasAttribute("category", "b");
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void Statistics_Are_Exposed_Through_JMX() throws JMException {
+        cache = new FragmentCache(Configuration.getDefaults()
+                .set(Configuration.FRAGMENT_CACHE_SIZE, 10000)
+                .set(Configuration.RENDER_TIMING, true)
+                .set(Configuration.APPLICATION_NAME, "CacheableTest"));
+        componentBuilder = new ComponentBuilderImpl(null, new Gson(), cache, true);
+        domBuilder = new DOMBuilder("WebApplication", serializer, componentBuilder,
+                new HashSet<KeyValue<String, String>>());
+        domBuilder.child(new Menu("a"));
+        domBuilder.child(new Menu("a"));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+                "net.contextfw:type=FragmentCache,application=\"CacheableTest\"");
+        try {
+            assertEquals(1L, server.getAttribute(name, "Hits"));
+            assertEquals(1L, server.getAttribute(name, "Misses"));
+            assertEquals(1, server.getAttribute(name, "Size"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void Least_Recently_Used_Is_Evicted() {
+        setupCache(60);
+        domBuilder.child(new Menu("a"));
+        domBuilder.child(new Menu("b"));
+        domBuilder.child(new Menu("a"));
+        domBuilder.child(new Menu("c"));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+
+        Menu b = new Menu("b");
+        domBuilder.child(b);
+        assertEquals(1, b.builds);
+    }
+
+    @Test
+    public void Caching_Can_Be_Disabled() {
+        setupCache(0);
+        Menu first = new Menu("a");
+        Menu second = new Menu("a");
+        domBuilder.child(first);
+        domBuilder.child(second);
+        assertEquals(1, second.builds);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void Tree_Containing_Component_Is_Not_Cached() {
+        setupCache(10000);
+        Label first = webApplicationComponent.registerChild(new Label());
+        Label second = webApplicationComponent.registerChild(new Label());
+        domBuilder.child(new Panel(first));
+        domBuilder.child(new Panel(second));
+
+        assertEquals(0, cache.getSize());
+        assertDom("//WebApplication/Panel[1]/label/Label").hasAttribute("id", first.getId());
+        assertDom("//WebApplication/Panel[2]/label/Label").hasAttribute("id", second.getId());
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Component_Is_Not_Cacheable() {
+        setupCache(10000);
+        domBuilder.child(new CachedComponent());
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Cache_Key_Is_Required() {
+        setupCache(10000);
+        domBuilder.child(new NoKey());
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+
+import org.dom4j.Element;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeTrackingTest extends BaseComponentTest {
+
+    @Buildable
+    public static class Entry {
+
+        @Attribute
+        private final String name;
+
+        public Entry(String name) {
+            this.name = name;
+        }
+    }
+
+    @Buildable(trackChanges = "changes")
+    public static class Counter extends Component {
+
+        @Attribute
+        public int count = 0;
+
+        @Attribute
+        public String label = "a";
+
+        @Attribute(onUpdate = false)
+        public String title = "t";
+
+        @net.contextfw.web.application.component.Element
+        public List<Entry> entries = new ArrayList<Entry>();
+    }
+
+    @Buildable
+    public static class Untracked extends Component {
+
+        @Attribute
+        public int count = 0;
+    }
+
+    @Buildable(trackChanges = "changes", wrap = false)
+    public static class Unwrapped extends Component {
+    }
+
+    private Counter counter;
+
+    @Before
+    public void setup() {
+        counter = webApplicationComponent.registerChild(new Counter());
+        webApplicationComponent.buildChild(domBuilder);
+    }
+
+    @Test
+    public void Unchanged_Component_Is_Not_Updated() {
+        assertNull(update().element("Counter.changes"));
+    }
+
+    @Test
+    public void Changed_Properties_Are_Updated() {
+        counter.count = 1;
+        counter.title = "changed";
+        Element changes = update().element("Counter.changes");
+        assertEquals("1", changes.attributeValue("count"));
+        assertEquals(counter.getId(), changes.attributeValue("id"));
+        assertNull(changes.attributeValue("label"));
+        assertNull(changes.attributeValue("title"));
+        assertNull(changes.element("entries"));
+
+        assertNull(update().element("Counter.changes"));
+    }
+
+    @Test
+    public void Changes_In_Place_Are_Detected() {
+        counter.entries.add(new Entry("x"));
+        Element changes = update().element("Counter.changes");
+        assertEquals("x", changes.element("entries").element("Entry").attributeValue("name"));
+        assertNull(changes.attributeValue("count"));
+    }
+
+    @Test
+    public void Explicit_Refresh_Takes_Precedence() {
+        counter.count = 2;
+        counter.refresh();
+        Element update = update();
+        assertNull(update.element("Counter.changes"));
+        assertEquals("2", update.element("Counter.update").attributeValue("count"));
+
+        assertNull(update().element("Counter.changes"));
+    }
+
+    @Test
+    public void Untracked_Components_Are_Not_Updated() {
+        Untracked untracked = counter.registerChild(new Untracked());
+        componentBuilder.build(domBuilder, untracked);
+        untracked.count = 1;
+        Element update = update();
+        assertNull(update.element("Untracked.update"));
+        assertNull(update.element("Untracked.changes"));
+    }
+
+    @Test
+    public void Detached_Component_Is_Not_Tracked() {
+        counter.detach();
+        counter.count = 1;
+        assertNull(update().element("Counter.changes"));
+        webApplicationComponent.registerChild(counter);
+        assertEquals("1", update().element("Counter.changes").attributeValue("count"));
+    }
+
+    @Test
+    public void Descendant_Of_Detached_Component_Is_Not_Tracked() {
+        Counter child = counter.registerChild(new Counter());
+        componentBuilder.build(domBuilder, child);
+        counter.detach();
+        child.count = 1;
+        update();
+        assertFalse(child.isRefreshRequested());
+    }
+
+    @Test
+    public void Descendant_Of_Reattached_Component_Is_Tracked() {
+        Counter child = counter.registerChild(new Counter());
+        componentBuilder.build(domBuilder, child);
+        counter.detach();
+        update();
+        webApplicationComponent.registerChild(counter);
+        child.count = 1;
+        Element changes = update().element("Counter.changes");
+        assertEquals(child.getId(), changes.attributeValue("id"));
+        assertEquals("1", changes.attributeValue("count"));
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Tracking_Requires_Wrapping() {
+        componentBuilder.getMetaComponent(Unwrapped.class);
+    }
+
+    private Element update() {
+        webApplicationComponent.refreshChanges(componentBuilder);
+        DOMBuilder update = new DOMBuilder("WebApplication.update", serializer, 
+                componentBuilder, new HashSet<KeyValue<String, String>>());
+        webApplicationComponent.buildChildUpdate(update, componentBuilder);
+        return update.toDocument().getRootElement();
+    }
+}
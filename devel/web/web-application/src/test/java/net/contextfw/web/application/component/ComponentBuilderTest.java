@@ -22,8 +22,10 @@ import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
+import net.contextfw.web.application.internal.configuration.KeyValue;
 import net.contextfw.web.application.lifecycle.AfterBuild;
 import net.contextfw.web.application.lifecycle.BeforeBuild;
 
@@ -279,6 +281,63 @@ public class ComponentBuilderTest extends BaseComponentTest {
         assertDom("//WebApplication//Aa.update").exists();
     }
     
+    @Test
+    public void testBee_And_Aa_Update() {
+        Aa aa = new Aa();
+        Bee comp = new Bee(aa);
+        webApplicationComponent.registerChild(comp);
+        aa.refresh();
+        comp.refresh();
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        logXML(domBuilder);
+        assertDom("//WebApplication/Bee.update/comp1/Aa").exists();
+        assertDom("//WebApplication//Aa.update").notExists();
+    }
+    
+    @Test
+    public void testDetachedUpdate() {
+        Aa aa = new Aa();
+        Bee comp = new Bee(aa);
+        webApplicationComponent.registerChild(comp);
+        aa.refresh();
+        aa.detach();
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        logXML(domBuilder);
+        assertDom("//WebApplication//Aa.update").notExists();
+    }
+    
+    @Test
+    public void testRefreshWhileDetached() {
+        Aa aa = new Aa();
+        Bee comp = new Bee(aa);
+        webApplicationComponent.registerChild(comp);
+        aa.detach();
+        aa.refresh();
+        comp.registerChild(aa);
+        aa.refresh();
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        assertDom("//WebApplication//Aa.update").exists();
+        domBuilder = new DOMBuilder("WebApplication", serializer, componentBuilder, 
+                new HashSet<KeyValue<String, String>>());
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        assertDom("//WebApplication//Aa.update").notExists();
+    }
+    
+    @Test
+    public void testUpdateIsCleared() {
+        Aa aa = new Aa();
+        Bee comp = new Bee(aa);
+        webApplicationComponent.registerChild(comp);
+        aa.refresh();
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        assertDom("//WebApplication//Aa.update").exists();
+        domBuilder = new DOMBuilder("WebApplication", serializer, componentBuilder, 
+                new HashSet<KeyValue<String, String>>());
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        logXML(domBuilder);
+        assertDom("//WebApplication//Aa.update").notExists();
+    }
+    
     @Test 
     public void testCee() {
         Cee cee = new Cee();
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.component;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.ParallelBuilder;
+import net.contextfw.web.application.internal.component.WebApplicationComponent;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.internal.page.PageScope;
+import net.contextfw.web.application.internal.page.WebApplicationPageImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeferredTest extends BaseComponentTest {
+
+    @Buildable(wrap = true, deferred = true)
+    public static class Report extends Component {
+
+        @Attribute
+        public String name = "report";
+    }
+
+    @Buildable
+    public static class Page extends Component {
+
+        @Element
+        public Report report;
+    }
+
+    @Buildable(independent = true)
+    public static class Section extends Component {
+
+        @Element
+        public Report report;
+    }
+
+    @Buildable
+    public static class Sections extends Component {
+
+        @Element
+        public List<Section> sections = new ArrayList<Section>();
+    }
+
+    @Buildable(wrap = false, deferred = true)
+    public static class NotWrapped extends Component {
+    }
+
+    private Page page;
+
+    @Before
+    public void setup() {
+        page = webApplicationComponent.registerChild(new Page());
+        page.report = page.registerChild(new Report());
+        webApplicationComponent.buildChild(domBuilder, componentBuilder);
+        logXML(domBuilder);
+    }
+
+    @Test
+    public void Placeholder_Is_Built_On_Init() {
+        assertDom("//WebApplication/Page/report/Deferred").hasAttribute("id", "c2");
+        assertDom("//WebApplication/Page/report/Deferred/*").notExists();
+        assertDom("//WebApplication/Page/report/Report").notExists();
+        assertDom("//WebApplication/Script").exists();
+    }
+
+    @Test
+    public void Deferred_Is_Built_Once() {
+        update();
+        assertDom("//WebApplication/Deferred.update").hasAttribute("id", "c2");
+        assertDom("//WebApplication/Deferred.update/Report").hasAttribute("name", "report");
+        update();
+        assertDom("//WebApplication/Deferred.update").notExists();
+    }
+
+    @Test
+    public void Refreshed_Deferred_Is_Built_Once() {
+        page.report.refresh();
+        update();
+        assertDom("//WebApplication/Deferred.update/Report").exists();
+        assertDom("//WebApplication/Report.update").notExists();
+    }
+
+    @Test
+    public void Removed_Deferred_Is_Not_Built() {
+        page.unregisterChild(page.report);
+        update();
+        assertDom("//WebApplication/Deferred.update").notExists();
+    }
+
+    @Test
+    public void Deferred_In_Independent_Component_Is_Deferred() {
+        PageScope pageScope = new PageScope();
+        pageScope.attachPage(new WebApplicationPageImpl());
+        ComponentBuilderImpl builder = (ComponentBuilderImpl) componentBuilder;
+        builder.clean();
+        builder.setParallelBuilder(new ParallelBuilder(2, pageScope));
+        try {
+            webApplicationComponent = new WebApplicationComponent(componentRegister);
+            Sections sections = webApplicationComponent.registerChild(new Sections());
+            for (int i = 0; i < 4; i++) {
+                Section section = sections.registerChild(new Section());
+                section.report = section.registerChild(new Report());
+                sections.sections.add(section);
+            }
+            domBuilder = newDOMBuilder();
+            webApplicationComponent.buildChild(domBuilder, componentBuilder);
+            logXML(domBuilder);
+            assertEquals(4, domBuilder.toDocument()
+                    .selectNodes("//WebApplication/Sections/sections/Section/report/Deferred").size());
+            assertDom("//WebApplication//Report").notExists();
+
+            update();
+            assertEquals(4, domBuilder.toDocument()
+                    .selectNodes("//WebApplication/Deferred.update/Report").size());
+        } finally {
+            pageScope.detachPage();
+            builder.clean();
+        }
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Deferred_Must_Be_Wrapped() {
+        domBuilder.child(webApplicationComponent.registerChild(new NotWrapped()));
+    }
+
+    private void update() {
+        domBuilder = newDOMBuilder();
+        webApplicationComponent.buildDeferred(domBuilder, componentBuilder);
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        logXML(domBuilder);
+    }
+
+    private DOMBuilder newDOMBuilder() {
+        return new DOMBuilder("WebApplication", serializer, componentBuilder, 
+                new HashSet<KeyValue<String, String>>());
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import net.contextfw.web.application.internal.configuration.KeyValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedUpdateTest extends BaseComponentTest {
+
+    @Buildable
+    public static class Product implements Keyed {
+
+        @Attribute
+        private final String name;
+
+        private long version = 0;
+
+        public Product(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getKey() {
+            return name;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    @Buildable
+    public static class Listing extends Component {
+
+        @Element
+        public List<Product> products = new ArrayList<Product>();
+
+        @Element
+        public List<String> tags = new ArrayList<String>();
+    }
+
+    private Listing listing;
+
+    @Before
+    public void setup() {
+        listing = webApplicationComponent.registerChild(new Listing());
+        listing.products.add(new Product("a"));
+        listing.products.add(new Product("b"));
+        listing.products.add(new Product("c"));
+        webApplicationComponent.buildChild(domBuilder);
+    }
+
+    @Test
+    public void Items_Have_Ids() {
+        assertDom("//WebApplication/Listing/products/Product[1]").hasAttribute("itemId", "c1_a");
+        assertDom("//WebApplication/Listing/products/Product[3]").hasAttribute("itemId", "c1_c");
+    }
+
+    @Test
+    public void Only_Changes_Are_Updated() {
+        Product c = listing.products.remove(2);
+        listing.products.remove(1);
+        listing.products.add(0, c);
+        listing.products.add(new Product("d"));
+        listing.products.get(1).version++;
+        listing.refresh();
+        update();
+
+        String keyed = "//WebApplication/Listing.update/products/KeyedUpdate";
+        assertDom(keyed).hasAttribute("container", "c1_products");
+        assertDom(keyed + "/Remove").hasAttribute("id", "c1_b");
+        assertDom(keyed + "/Move").hasAttribute("id", "c1_c");
+        assertDom(keyed + "/Move").hasNoAttribute("after");
+        assertDom(keyed + "/Change").hasAttribute("id", "c1_a");
+        assertDom(keyed + "/Change/Product").hasAttribute("itemId", "c1_a");
+        assertDom(keyed + "/Insert").hasAttribute("after", "c1_a");
+        assertDom(keyed + "/Insert/Product").hasAttribute("itemId", "c1_d");
+        assertDom(keyed + "/*[5]").notExists();
+    }
+
+    @Test
+    public void Unchanged_Collection_Is_Empty() {
+        listing.refresh();
+        update();
+        assertDom("//WebApplication/Listing.update/products/KeyedUpdate").exists();
+        assertDom("//WebApplication/Listing.update/products/KeyedUpdate/*").notExists();
+    }
+
+    @Test
+    public void Empty_Plain_Collection_Is_Built_Empty() {
+        listing.refresh();
+        update();
+        assertDom("//WebApplication/Listing.update/tags").exists();
+        assertDom("//WebApplication/Listing.update/tags/*").notExists();
+    }
+
+    @Test
+    public void Emptied_Keyed_Collection_Removes_Items() {
+        listing.products.clear();
+        listing.refresh();
+        update();
+        String keyed = "//WebApplication/Listing.update/products/KeyedUpdate";
+        assertDom(keyed + "/Remove[1]").hasAttribute("id", "c1_a");
+        assertDom(keyed + "/Remove[3]").hasAttribute("id", "c1_c");
+    }
+
+    @Test
+    public void Full_Build_Resets_Snapshot() {
+        listing.products.remove(0);
+        domBuilder = newDOMBuilder();
+        webApplicationComponent.buildChild(domBuilder);
+        assertDom("//WebApplication/Listing/products/Product[1]").hasAttribute("itemId", "c1_b");
+        listing.refresh();
+        update();
+        assertDom("//WebApplication/Listing.update/products/KeyedUpdate/*").notExists();
+    }
+
+    private void update() {
+        domBuilder = newDOMBuilder();
+        webApplicationComponent.buildChildUpdate(domBuilder, componentBuilder);
+        logXML(domBuilder);
+    }
+
+    private DOMBuilder newDOMBuilder() {
+        return new DOMBuilder("WebApplication", serializer, componentBuilder, 
+                new HashSet<KeyValue<String, String>>());
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.contextfw.web.application.development.XMLResponseLogger;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.junit.Test;
+
+public class AsyncResponseLoggerTest {
+
+    private static class RecordingLogger implements XMLResponseLogger {
+
+        private final List<String> logged = new CopyOnWriteArrayList<String>();
+
+        private final CountDownLatch release;
+
+        private final CountDownLatch done;
+
+        RecordingLogger(CountDownLatch release, int expected) {
+            this.release = release;
+            this.done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void logXML(String xml) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logged.add(xml);
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void Every_Nth_Response_Is_Logged() throws Exception {
+        RecordingLogger delegate = new RecordingLogger(new CountDownLatch(0), 3);
+        AsyncResponseLogger logger = new AsyncResponseLogger(delegate, 3, 10);
+        for (int i = 0; i < 9; i++) {
+            logger.log(document(i));
+        }
+        delegate.await();
+        assertEquals(3, delegate.logged.size());
+        assertTrue(delegate.logged.get(0).contains("<Item id=\"0\"/>"));
+        assertTrue(delegate.logged.get(1).contains("<Item id=\"3\"/>"));
+        assertTrue(delegate.logged.get(2).contains("<Item id=\"6\"/>"));
+    }
+
+    @Test
+    public void Responses_Are_Dropped_When_Queue_Is_Full() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingLogger delegate = new RecordingLogger(release, 3);
+        AsyncResponseLogger logger = new AsyncResponseLogger(delegate, 1, 2);
+
+        // First one is taken by the logging thread, which is blocked
+        logger.log(document(0));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logger.getDroppedCount() == 0 && System.currentTimeMillis() < deadline) {
+            logger.log(document(1));
+        }
+        assertTrue(logger.getDroppedCount() > 0);
+
+        release.countDown();
+        delegate.await();
+        long start = System.currentTimeMillis();
+        while (logger.getLoggedCount() < 3 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, logger.getLoggedCount());
+        assertEquals(0, logger.getDroppedCount());
+    }
+
+    private Document document(int id) throws DocumentException {
+        return DocumentHelper.parseText("<WebApplication><Item id=\"" + id + "\" /></WebApplication>");
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+
+import net.contextfw.web.application.component.Component;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.util.ParamConverters;
+import net.contextfw.web.application.lifecycle.LifecycleListener;
+import net.contextfw.web.application.remote.Remoted;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class ComponentUpdateHandlerFactoryTest {
+
+    public static class Base<T> extends Component {
+
+        T value;
+
+        @Remoted
+        public void set(T value) {
+            this.value = value;
+        }
+
+        @Remoted
+        public String get() {
+            return String.valueOf(value);
+        }
+    }
+
+    public static class Counter extends Base<Integer> {
+
+        @Remoted
+        public void increment() {
+            value++;
+        }
+
+        public void reset() {
+            value = 0;
+        }
+    }
+
+    private LifecycleListener listener;
+
+    @Before
+    public void setup() {
+        listener = createNiceMock(LifecycleListener.class);
+        expect(listener.beforeUpdate((Component) anyObject(), (Method) anyObject(), 
+                (Object[]) anyObject())).andReturn(true).anyTimes();
+        replay(listener);
+    }
+
+    private ComponentUpdateHandlerFactory createFactory(boolean developmentMode) {
+        return new ComponentUpdateHandlerFactory(new ParamConverters(new Gson()), listener, 
+                Configuration.getDefaults().set(Configuration.DEVELOPMENT_MODE, developmentMode));
+    }
+
+    @Test
+    public void Handlers_Are_Created_Once() {
+        ComponentUpdateHandlerFactory factory = createFactory(false);
+        ComponentUpdateHandler handler = factory.getHandler(Counter.class, "increment");
+        assertEquals(ComponentUpdateHandler.getKey(Counter.class, "increment"), handler.getKey());
+        assertSame(handler, factory.getHandler(Counter.class, "increment"));
+        assertNull(factory.getHandler(Counter.class, "reset"));
+        assertNull(factory.getHandler(Counter.class, "missing"));
+    }
+
+    @Test
+    public void Handlers_Are_Preloaded() {
+        ComponentUpdateHandlerFactory factory = createFactory(false);
+        assertEquals(3, factory.preload(Arrays.<Class<?>>asList(Counter.class, String.class)));
+        assertEquals(0, factory.preload(Arrays.<Class<?>>asList(Counter.class)));
+    }
+
+    @Test
+    public void Development_Mode_Creates_Handlers_For_Each_Update() {
+        ComponentUpdateHandlerFactory factory = createFactory(true);
+        assertEquals(0, factory.preload(Arrays.<Class<?>>asList(Counter.class)));
+        assertNotSame(factory.getHandler(Counter.class, "increment"), 
+                factory.getHandler(Counter.class, "increment"));
+    }
+
+    @Test
+    public void Type_Arguments_Are_Resolved() {
+        ComponentUpdateHandlerFactory factory = createFactory(false);
+        Counter counter = new Counter();
+
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getParameter("p0")).andReturn("41").anyTimes();
+        replay(request);
+
+        factory.getHandler(Counter.class, "set").invoke(null, counter, request);
+        factory.getHandler(Counter.class, "increment").invoke(null, counter, request);
+        assertEquals("42", factory.getHandler(Counter.class, "get").invoke(null, counter, request));
+    }
+}
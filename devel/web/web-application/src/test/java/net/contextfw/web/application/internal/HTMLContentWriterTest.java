@@ -0,0 +1,134 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.io.HTMLWriter;
+import org.dom4j.io.OutputFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HTMLContentWriterTest {
+
+    private static final String XSL =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\""
+        + " xmlns:txt=\"http://contextfw.net/ns/txt\" exclude-result-prefixes=\"txt\">"
+        + "<xsl:template match=\"/\">"
+        + "<html><head><meta name=\"a\" content=\"b\" /><script src=\"x.js\"></script></head>"
+        + "<body><xsl:apply-templates /></body></html>"
+        + "</xsl:template>"
+        + "<xsl:template match=\"Item\">"
+        + "<div class=\"{@class}\" title=\"{@title}\"><xsl:value-of select=\".\" />"
+        + "<br /><p /><span /><xsl:comment>c</xsl:comment><p>t</p></div>"
+        + "</xsl:template>"
+        + "<xsl:template match=\"Named\">"
+        + "<foo:bar xmlns:foo=\"http://foo\"><foo:baz>x</foo:baz></foo:bar>"
+        + "<svg xmlns=\"http://www.w3.org/2000/svg\"><g /></svg>"
+        + "</xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private static final String XML =
+        "<WebApplication xml:lang=\"fi\">"
+        + "<Item class=\"a&amp;b\" title=\"&quot;q&quot; &lt;x&gt;\">text &amp; &lt;more&gt; </Item>"
+        + "<Item class=\"\" title=\"\">no padding</Item>"
+        + "<Named />"
+        + "</WebApplication>";
+
+    private Transformers transformers;
+
+    @Before
+    public void setup() throws DocumentException {
+        transformers = new Transformers();
+        transformers.initialize(DocumentHelper.parseText(XSL));
+    }
+
+    @Test
+    public void Streamed_Output_Equals_HTMLWriter() throws Exception {
+        Document document = DocumentHelper.parseText(XML);
+        assertEquals(writeWithHTMLWriter(document), writeStreamed(document));
+    }
+
+    @Test
+    public void Streamed_Output_Equals_HTMLWriter_With_DocType() throws Exception {
+        Document document = DocumentHelper.parseText(XML);
+        Document rDocument = transformers.transform(document);
+        rDocument.addDocType("html", "-//W3C//DTD XHTML 1.0 Transitional//EN",
+                "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd");
+        StringWriter expected = new StringWriter();
+        new HTMLWriter(expected, createFormat()).write(rDocument);
+
+        StringWriter actual = new StringWriter();
+        HTMLContentWriter writer = new HTMLContentWriter(actual);
+        writer.writeDocType("html", "-//W3C//DTD XHTML 1.0 Transitional//EN",
+                "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd");
+        transformers.transform(document, writer.toResult());
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void Replayed_Output_Equals_HTMLWriter() throws Exception {
+        Document document = DocumentHelper.parseText(XML);
+        Document rDocument = transformers.transform(document);
+        StringWriter actual = new StringWriter();
+        HTMLContentWriter writer = new HTMLContentWriter(actual);
+        writer.write(rDocument);
+        assertEquals(writeWithHTMLWriter(document), actual.toString());
+    }
+
+    @Test
+    public void UTF8_Output_Equals_HTMLWriter() throws Exception {
+        Document document = DocumentHelper.parseText(
+                XML.replace("no padding", "\u00e4\u20ac\ud83d\ude00"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UTF8Writer utf8 = new UTF8Writer(out);
+        transformers.transform(document, new HTMLContentWriter(utf8).toResult());
+        utf8.flush();
+        assertEquals(writeWithHTMLWriter(document), out.toString("UTF-8"));
+    }
+
+    private String writeWithHTMLWriter(Document document) throws IOException {
+        StringWriter out = new StringWriter();
+        new HTMLWriter(out, createFormat()).write(transformers.transform(document));
+        return out.toString();
+    }
+
+    private String writeStreamed(Document document) {
+        StringWriter out = new StringWriter();
+        transformers.transform(document, new HTMLContentWriter(out).toResult());
+        return out.toString();
+    }
+
+    private OutputFormat createFormat() {
+        OutputFormat format = OutputFormat.createCompactFormat();
+        format.setXHTML(true);
+        format.setTrimText(false);
+        format.setPadText(true);
+        format.setNewlines(false);
+        format.setExpandEmptyElements(true);
+        return format;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import net.contextfw.web.application.internal.timing.MBeans;
+
+import org.dom4j.DocumentHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransformerPoolTest {
+
+    private static final String XSL =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\"><div><xsl:value-of select=\"/*/@id\" /></div></xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private Templates templates;
+
+    @Before
+    public void setup() throws Exception {
+        templates = TransformerFactory.newInstance()
+                .newTemplates(new StreamSource(new StringReader(XSL)));
+    }
+
+    @Test
+    public void Transformers_Are_Reused_And_Reset() {
+        TransformerPool pool = new TransformerPool(templates, 2, 0);
+        Transformer first = pool.acquire();
+        first.setParameter("a", "b");
+        pool.release(first);
+        Transformer second = pool.acquire();
+        assertSame(first, second);
+        assertNull(second.getParameter("a"));
+        assertEquals(1, pool.getCreated());
+        assertEquals(1, pool.getActive());
+    }
+
+    @Test
+    public void Exhausted_Pool_Overflows() {
+        TransformerPool pool = new TransformerPool(templates, 1, 0);
+        Transformer pooled = pool.acquire();
+        Transformer overflow = pool.acquire();
+        assertNotSame(pooled, overflow);
+        assertEquals(1, pool.getOverflows());
+        pool.release(overflow);
+        pool.release(pooled);
+        assertEquals(0, pool.getActive());
+        assertSame(pooled, pool.acquire());
+    }
+
+    @Test
+    public void Exhausted_Pool_Waits() throws Exception {
+        final TransformerPool pool = new TransformerPool(templates, 1, 5000);
+        final Transformer pooled = pool.acquire();
+        Thread releaser = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+                pool.release(pooled);
+            }
+        };
+        releaser.start();
+        assertSame(pooled, pool.acquire());
+        assertEquals(1, pool.getWaits());
+        assertEquals(0, pool.getOverflows());
+        releaser.join();
+    }
+
+    @Test
+    public void Transformers_Are_Shared_Between_Threads() throws Exception {
+        final Transformers transformers = new Transformers(2, 1000);
+        transformers.initialize(DocumentHelper.parseText(XSL));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 200; i++) {
+            final int id = i;
+            results.add(executor.submit(new Callable<String>() {
+                public String call() throws Exception {
+                    return transformers.transform(
+                            DocumentHelper.parseText("<WebApplication id=\"" + id + "\" />"))
+                            .getRootElement().getText();
+                }
+            }));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals(String.valueOf(i), results.get(i).get());
+        }
+        executor.shutdown();
+        TransformerPoolStatistics pool = transformers.getPools().get(0);
+        assertEquals(0, pool.getActive());
+        assertEquals(2, pool.getCreated());
+    }
+
+    @Test
+    public void Pools_Are_Exposed_Through_JMX() throws Exception {
+        Transformers transformers = new Transformers(2, 0);
+        transformers.initialize(DocumentHelper.parseText(XSL));
+        transformers.transform(DocumentHelper.parseText("<WebApplication id=\"1\" />"));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = MBeans.register(transformers, "TransformerPoolTest", null);
+        try {
+            CompositeData[] pools = (CompositeData[]) server.getAttribute(name, "Pools");
+            assertEquals(1, pools.length);
+            assertNull(pools[0].get("language"));
+            assertEquals(2, pools[0].get("size"));
+            assertEquals(1, pools[0].get("created"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransformersTest {
+
+    private static final String TRANSLET = "net.contextfw.test.translet.Stylesheet";
+
+    private static final String XSL =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\"><div><xsl:apply-templates /></div></xsl:template>"
+        + "<xsl:template match=\"Item\"><span>%s<xsl:value-of select=\"@name\" /></span></xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private static final String XML =
+        "<WebApplication><Item name=\"a\" /><Item name=\"b\" /></WebApplication>";
+
+    private File directory;
+
+    private ClassLoader original;
+
+    private final List<String> loadedClasses = new ArrayList<String>();
+
+    @Before
+    public void setup() throws Exception {
+        directory = File.createTempFile("translets", "");
+        directory.delete();
+        directory.mkdirs();
+        original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(
+                new URLClassLoader(new URL[] { directory.toURI().toURL() }, original) {
+                    @Override
+                    protected Class<?> findClass(String name) throws ClassNotFoundException {
+                        Class<?> cl = super.findClass(name);
+                        loadedClasses.add(name);
+                        return cl;
+                    }
+                });
+    }
+
+    @After
+    public void cleanup() {
+        Thread.currentThread().setContextClassLoader(original);
+    }
+
+    @Test
+    public void Precompiled_Translet_Is_Used() throws DocumentException {
+        new Transformers().precompile(stylesheet("x"), TRANSLET, directory);
+
+        assertTrue(new File(directory, "net/contextfw/test/translet/Stylesheet.class").exists());
+        assertTrue(new File(directory, "net/contextfw/test/translet/Stylesheet.digest").exists());
+
+        Transformers transformers = new Transformers();
+        transformers.initialize(stylesheet("x"), TRANSLET);
+        assertTrue(loadedClasses.contains(TRANSLET));
+        assertEquals("<div><span>xa</span><span>xb</span></div>", transform(transformers));
+    }
+
+    @Test
+    public void Stale_Translet_Is_Ignored() throws DocumentException {
+        new Transformers().precompile(stylesheet("x"), TRANSLET, directory);
+
+        Transformers transformers = new Transformers();
+        transformers.initialize(stylesheet("y"), TRANSLET);
+        assertFalse(loadedClasses.contains(TRANSLET));
+        assertEquals("<div><span>ya</span><span>yb</span></div>", transform(transformers));
+    }
+
+    @Test
+    public void Missing_Translet_Falls_Back_To_Runtime_Compilation() throws DocumentException {
+        Transformers transformers = new Transformers();
+        transformers.initialize(stylesheet("z"), TRANSLET);
+        assertEquals("<div><span>za</span><span>zb</span></div>", transform(transformers));
+    }
+
+    @Test
+    public void Localized_Stylesheet_Is_Chosen_By_Language() throws DocumentException {
+        Map<String, Document> localized = new HashMap<String, Document>();
+        localized.put("fi", stylesheet("fi"));
+        localized.put("en", stylesheet("en"));
+
+        new Transformers().precompile(stylesheet("x"), localized, TRANSLET, directory);
+        assertTrue(new File(directory, "net/contextfw/test/translet/Stylesheet_fi.class").exists());
+        assertTrue(new File(directory, "net/contextfw/test/translet/Stylesheet_en.digest").exists());
+
+        Transformers transformers = new Transformers();
+        transformers.initialize(stylesheet("x"), localized, TRANSLET);
+        assertTrue(loadedClasses.contains(TRANSLET));
+        assertTrue(loadedClasses.contains(TRANSLET + "_fi"));
+        assertTrue(loadedClasses.contains(TRANSLET + "_en"));
+
+        assertEquals("<div><span>fia</span><span>fib</span></div>", transform(transformers, "fi"));
+        assertEquals("<div><span>ena</span><span>enb</span></div>", transform(transformers, "en_GB"));
+        assertEquals("<div><span>xa</span><span>xb</span></div>", transform(transformers, "sv"));
+        assertEquals("<div><span>xa</span><span>xb</span></div>", transform(transformers));
+    }
+
+    private Document stylesheet(String prefix) throws DocumentException {
+        return DocumentHelper.parseText(String.format(XSL, prefix));
+    }
+
+    private String transform(Transformers transformers) throws DocumentException {
+        return transformers.transform(DocumentHelper.parseText(XML)).getRootElement().asXML();
+    }
+
+    private String transform(Transformers transformers, String lang) throws DocumentException {
+        Document document = DocumentHelper.parseText(XML);
+        document.getRootElement().addAttribute("xml:lang", lang);
+        return transformers.transform(document).getRootElement().asXML();
+    }
+}
@@ -17,12 +17,22 @@
 
 package net.contextfw.web.application.internal;
 
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertTrue;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.regex.Pattern;
 
+import javax.servlet.http.HttpServletResponse;
+
 import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.WebResponder.Mode;
 
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
 import org.junit.Test;
 
 public class WebResponderTest {
@@ -40,4 +50,51 @@ public class WebResponderTest {
         Pattern pattern = Pattern.compile(".+\\.(xsl|css|js)", Pattern.CASE_INSENSITIVE);
         assertTrue(pattern.matcher("dfd/test.js").matches());
     }
+    
+    @Test
+    public void Client_Side_Rendering() throws Exception {
+        Configuration configuration = Configuration.getDefaults()
+            .set(Configuration.LOG_XML, false)
+            .set(Configuration.CLIENT_SIDE_RENDERING, true);
+        WebResponder responder = new WebResponder(configuration, null);
+        String version = responder.getStylesheetVersion();
+        
+        String init = send(responder, "<WebApplication contextPath=\"/ctx\"><a>b</a></WebApplication>", 
+                Mode.INIT);
+        assertTrue(init, init.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<?xml-stylesheet type=\"text/xsl\" href=\"/ctx/resources.xsl?v=" + version + "\"?>"
+                + "<WebApplication contextPath=\"/ctx\"><a>b</a></WebApplication>"));
+        
+        String update = send(responder, "<WebApplication.update contextPath=\"/ctx\" />", Mode.UPDATE);
+        assertTrue(update, update.contains("stylesheet=\"/ctx/resources.xsl?v=" + version + "\""));
+    }
+    
+    @Test
+    public void HTML_Is_Written_To_Writer_If_Already_Used() throws Exception {
+        Configuration configuration = Configuration.getDefaults()
+            .set(Configuration.LOG_XML, false)
+            .add(Configuration.RESOURCE_PATH, "net.contextfw.web.application.internal");
+        WebResponder responder = new WebResponder(configuration, null);
+        String html = send(responder, "<WebApplication />", Mode.INIT, 
+                new IllegalStateException("getWriter() has already been called"));
+        assertTrue(html, html.startsWith("<!DOCTYPE html"));
+    }
+    
+    private String send(WebResponder responder, String xml, Mode mode) throws Exception {
+        return send(responder, xml, mode, null);
+    }
+    
+    private String send(WebResponder responder, String xml, Mode mode, 
+            IllegalStateException streamFailure) throws Exception {
+        Document document = DocumentHelper.parseText(xml);
+        StringWriter out = new StringWriter();
+        HttpServletResponse resp = createNiceMock(HttpServletResponse.class);
+        expect(resp.getWriter()).andReturn(new PrintWriter(out)).anyTimes();
+        if (streamFailure != null) {
+            expect(resp.getOutputStream()).andThrow(streamFailure).anyTimes();
+        }
+        replay(resp);
+        responder.sendResponse(document, resp, mode);
+        return out.toString();
+    }
 }
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.internal.util.FileResourceEntry;
+import net.contextfw.web.application.internal.util.ResourceEntry;
+
+import org.dom4j.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XSLFragmentCacheTest {
+
+    private File directory;
+
+    private XSLFragmentCache cache;
+
+    @Before
+    public void setup() throws IOException {
+        directory = File.createTempFile("xsl", "");
+        directory.delete();
+        directory.mkdirs();
+        cache = new XSLFragmentCache();
+    }
+
+    @Test
+    public void Files_Are_Parsed_In_Order() throws IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        for (int i = 0; i < 20; i++) {
+            entries.add(write("t" + i + ".xsl", "t" + i, 1000));
+        }
+        List<Document> documents = cache.getDocuments(entries);
+        assertEquals(20, documents.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("t" + i, documents.get(i).getRootElement().getName());
+        }
+        assertEquals(20, cache.getParseCount());
+    }
+
+    @Test
+    public void Only_Changed_File_Is_Parsed() throws IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        entries.add(write("a.xsl", "a", 1000));
+        entries.add(write("b.xsl", "b", 1000));
+        List<Document> first = cache.getDocuments(entries);
+
+        entries.set(1, write("b.xsl", "c", 2000));
+        List<Document> second = cache.getDocuments(entries);
+
+        assertSame(first.get(0), second.get(0));
+        assertNotSame(first.get(1), second.get(1));
+        assertEquals("c", second.get(1).getRootElement().getName());
+        assertEquals(3, cache.getParseCount());
+    }
+
+    @Test
+    public void Removed_File_Is_Evicted() throws IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        entries.add(write("a.xsl", "a", 1000));
+        entries.add(write("b.xsl", "b", 1000));
+        cache.getDocuments(entries);
+
+        cache.getDocuments(entries.subList(0, 1));
+        cache.getDocuments(entries);
+        assertEquals(3, cache.getParseCount());
+    }
+
+    @Test
+    public void Same_Path_In_Different_Roots_Is_Cached_Separately() throws IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        entries.add(write("a.xsl", "a", 1000));
+        File other = new File(directory, "other");
+        other.mkdirs();
+        File file = new File(other, "a.xsl");
+        FileWriter writer = new FileWriter(file);
+        writer.write("<b />");
+        writer.close();
+        file.setLastModified(2000);
+        entries.add(new FileResourceEntry("a.xsl", file));
+
+        List<Document> first = cache.getDocuments(entries);
+        assertEquals("a", first.get(0).getRootElement().getName());
+        assertEquals("b", first.get(1).getRootElement().getName());
+
+        List<Document> second = cache.getDocuments(entries);
+        assertSame(first.get(0), second.get(0));
+        assertSame(first.get(1), second.get(1));
+        assertEquals(2, cache.getParseCount());
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Invalid_File_Throws_Exception() throws IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        entries.add(write("a.xsl", "a", 1000));
+        entries.add(write("b.xsl", "b", 1000));
+        FileWriter writer = new FileWriter(new File(directory, "b.xsl"));
+        writer.write("<b>");
+        writer.close();
+        cache.getDocuments(entries);
+    }
+
+    private ResourceEntry write(String name, String root, long lastModified) throws IOException {
+        File file = new File(directory, name);
+        FileWriter writer = new FileWriter(file);
+        writer.write("<" + root + " />");
+        writer.close();
+        file.setLastModified(lastModified);
+        return new FileResourceEntry(name, file);
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.Element;
+import net.contextfw.web.application.internal.InternalWebApplicationException;
+import net.contextfw.web.application.internal.ToStringSerializer;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.lifecycle.AfterBuild;
+import net.contextfw.web.application.lifecycle.BeforeBuild;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class AccessorGeneratorTest {
+
+    public static class Base {
+
+        @Attribute
+        public int inherited = 7;
+    }
+
+    @Buildable
+    public static class Item extends Base {
+
+        @Attribute
+        public String name = "item";
+
+        @Attribute
+        public long count = 1234567890123L;
+
+        @Attribute
+        public char initial = 'i';
+
+        @Attribute
+        private boolean hidden = true;
+
+        public int builds = 0;
+
+        @Attribute
+        public double price() {
+            return 9.5;
+        }
+
+        @Element
+        public String description() {
+            return "desc";
+        }
+
+        @Attribute
+        protected String status() {
+            return "ok";
+        }
+
+        @BeforeBuild
+        public void beforeBuild() {
+            builds++;
+        }
+
+        @AfterBuild
+        public void afterBuild() {
+            builds++;
+        }
+
+        public boolean isHidden() {
+            return hidden;
+        }
+    }
+
+    @Buildable
+    public static class Failing {
+
+        private final RuntimeException exception;
+
+        public Failing(RuntimeException exception) {
+            this.exception = exception;
+        }
+
+        @Attribute
+        public String value() {
+            throw exception;
+        }
+    }
+
+    @Test
+    public void Public_Members_Are_Generated() throws Exception {
+        AccessorGenerator generator = new AccessorGenerator(Item.class);
+        Item item = new Item();
+
+        assertEquals("item", generator.generate(Item.class.getField("name")).access(item));
+        assertEquals(1234567890123L, 
+                generator.generate(Item.class.getField("count")).access(item));
+        assertEquals('i', generator.generate(Item.class.getField("initial")).access(item));
+        assertEquals(7, generator.generate(Item.class.getField("inherited")).access(item));
+        assertEquals(9.5, generator.generate(Item.class.getMethod("price")).access(item));
+        assertEquals(true, generator.generate(Item.class.getMethod("isHidden")).access(item));
+
+        assertNull(generator.generate(Item.class.getMethod("beforeBuild")).access(item));
+        assertEquals(1, item.builds);
+    }
+
+    @Test
+    public void Non_Public_Members_Are_Not_Generated() throws Exception {
+        AccessorGenerator generator = new AccessorGenerator(Item.class);
+        assertNull(generator.generate(Item.class.getDeclaredField("hidden")));
+        assertNull(generator.generate(Item.class.getDeclaredMethod("status")));
+        assertNull(generator.generate(Object.class.getMethod("equals", Object.class)));
+    }
+
+    @Test
+    public void Generated_Output_Equals_Reflective_Output() {
+        Item generated = new Item();
+        Item reflective = new Item();
+        assertEquals(build(reflective, false), build(generated, true));
+        assertEquals(2, generated.builds);
+        assertEquals(2, reflective.builds);
+    }
+
+    @Test
+    public void Exceptions_Are_Wrapped_As_In_Reflection() {
+        try {
+            build(new Failing(new IllegalStateException()), true);
+            fail();
+        } catch (InternalWebApplicationException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        WebApplicationException exception = new WebApplicationException("failed");
+        try {
+            build(new Failing(exception), true);
+            fail();
+        } catch (WebApplicationException e) {
+            assertEquals(exception, e);
+        }
+    }
+
+    private String build(Object component, boolean generateAccessors) {
+        ComponentBuilderImpl builder = new ComponentBuilderImpl(null, new Gson(), 
+                new FragmentCache(0), generateAccessors);
+        builder.clean();
+        assertNotNull(builder.getMetaComponent(component.getClass()));
+        DOMBuilder domBuilder = new DOMBuilder("WebApplication", new ToStringSerializer(), 
+                builder, new HashSet<KeyValue<String, String>>());
+        domBuilder.child(component);
+        builder.clean();
+        return domBuilder.toDocument().asXML();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.Component;
+import net.contextfw.web.application.lifecycle.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class ComponentBuilderImplTest {
+
+    @Buildable
+    public static class Item {
+        @Attribute
+        public String name = "item";
+    }
+
+    public static class SubItem extends Item {
+    }
+
+    @View(url = "/view")
+    public static class ViewComponent extends Component {
+    }
+
+    public static class Plain {
+    }
+
+    private ComponentBuilderImpl builder;
+
+    @Before
+    public void setup() {
+        builder = new ComponentBuilderImpl(null, new Gson(), new FragmentCache(0), true);
+        builder.clean();
+    }
+
+    @After
+    public void cleanup() {
+        builder.clean();
+    }
+
+    @Test
+    public void Concurrent_Lookups_Share_Meta_Model() throws Exception {
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<MetaComponent>> results = new ArrayList<Future<MetaComponent>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<MetaComponent>() {
+                    @Override
+                    public MetaComponent call() throws Exception {
+                        start.await();
+                        return builder.getMetaComponent(Item.class);
+                    }
+                }));
+            }
+            start.countDown();
+            MetaComponent first = results.get(0).get();
+            for (Future<MetaComponent> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void Buildables_Components_And_Views_Are_Preloaded() {
+        List<Class<?>> classes = Arrays.<Class<?>>asList(
+                Item.class, SubItem.class, ViewComponent.class, Plain.class, 
+                Runnable.class, Buildable.class);
+        assertEquals(3, builder.preload(classes));
+        MetaComponent item = builder.getMetaComponent(Item.class);
+        builder.preload(classes);
+        assertSame(item, builder.getMetaComponent(Item.class));
+    }
+}
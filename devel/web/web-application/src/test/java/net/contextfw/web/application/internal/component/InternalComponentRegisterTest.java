@@ -0,0 +1,166 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.contextfw.web.application.component.Component;
+
+import org.junit.Test;
+
+public class InternalComponentRegisterTest {
+
+    private static class Aa extends Component {
+    }
+
+    private final InternalComponentRegister register = new InternalComponentRegister();
+
+    @Test
+    public void Ids_Are_Generated() {
+        Aa a = new Aa();
+        Aa b = new Aa();
+        register.register(a);
+        register.register(b);
+        assertEquals("c0", a.getId());
+        assertEquals("c1", b.getId());
+        assertSame(b, register.findComponent("c1"));
+        assertNull(register.findComponent("c2"));
+        assertNull(register.findComponent("c01"));
+        assertNull(register.findComponent("x1"));
+    }
+
+    @Test
+    public void Unregistered_Ids_Are_Not_Reused() {
+        Aa a = new Aa();
+        register.register(a);
+        register.register(new Aa());
+        register.unregister(a);
+        assertNull(register.findComponent("c0"));
+        Aa c = new Aa();
+        register.register(c);
+        assertEquals("c2", c.getId());
+        assertNull(register.findComponent("c0"));
+        assertSame(c, register.findComponent("c2"));
+    }
+
+    @Test
+    public void Reregistered_Component_Keeps_Its_Id() {
+        Aa a = new Aa();
+        register.register(a);
+        register.unregister(a);
+        register.register(a);
+        assertEquals("c0", a.getId());
+        assertSame(a, register.findComponent("c0"));
+        assertEquals(1, register.getComponents().size());
+        register.unregister(a);
+        assertNull(register.findComponent("c0"));
+        assertEquals(0, register.getComponents().size());
+    }
+
+    @Test
+    public void Array_Stays_Bounded_When_Components_Are_Detached() {
+        Aa root = new Aa();
+        register.register(root);
+        List<Aa> live = new ArrayList<Aa>();
+        for (int i = 0; i < 100000; i++) {
+            Aa a = new Aa();
+            register.register(a);
+            live.add(a);
+            if (live.size() > 10) {
+                register.unregister(live.remove(0));
+            }
+        }
+        assertTrue(register.getCapacity() <= 128);
+        assertSame(root, register.findComponent("c0"));
+        assertNull(register.findComponent("c1"));
+        for (Aa a : live) {
+            assertSame(a, register.findComponent(a.getId()));
+        }
+        assertEquals(11, register.getComponents().size());
+        List<Component> listed = new ArrayList<Component>(register.getComponents());
+        assertTrue(listed.contains(root));
+        assertTrue(listed.containsAll(live));
+
+        register.unregister(root);
+        assertNull(register.findComponent("c0"));
+        register.register(root);
+        assertSame(root, register.findComponent("c0"));
+    }
+
+    @Test
+    public void Generated_Ids_Skip_Custom_Ids() {
+        Aa a = new Aa();
+        a.setId("c0");
+        register.register(a);
+        Aa b = new Aa();
+        register.register(b);
+        assertEquals("c1", b.getId());
+        assertSame(a, register.findComponent("c0"));
+    }
+
+    @Test
+    public void Custom_Ids_Are_Supported() {
+        Aa a = new Aa();
+        a.setId("custom");
+        register.register(a);
+        Aa b = new Aa();
+        b.setId("c7");
+        register.register(b);
+        assertSame(a, register.findComponent("custom"));
+        assertSame(b, register.findComponent("c7"));
+        register.unregister(a);
+        assertNull(register.findComponent("custom"));
+    }
+
+    @Test
+    public void Registering_Twice_Has_No_Effect() {
+        Aa a = new Aa();
+        register.register(a);
+        register.register(a);
+        assertEquals(1, register.getComponents().size());
+    }
+
+    @Test
+    public void All_Components_Are_Listed() {
+        List<Component> expected = new ArrayList<Component>();
+        for (int i = 0; i < 2000; i++) {
+            Aa a = new Aa();
+            register.register(a);
+            expected.add(a);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            register.unregister(expected.get(i));
+        }
+        Aa custom = new Aa();
+        custom.setId("custom");
+        register.register(custom);
+
+        List<Component> listed = new ArrayList<Component>(register.getComponents());
+        assertEquals(2000 - 667 + 1, listed.size());
+        assertEquals(listed.size(), register.getComponents().size());
+        assertTrue(listed.contains(custom));
+        assertTrue(listed.contains(expected.get(1)));
+        assertTrue(!listed.contains(expected.get(3)));
+        assertEquals("c1500", expected.get(1500).getId());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.Keyed;
+import net.contextfw.web.application.internal.component.KeyedSnapshot.Operation;
+import net.contextfw.web.application.internal.component.KeyedSnapshot.Type;
+
+import org.junit.Test;
+
+public class KeyedSnapshotTest {
+
+    private static class Item implements Keyed {
+
+        private final String key;
+
+        private final long version;
+
+        Item(String key, long version) {
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    @Test
+    public void Unchanged_Collection_Has_No_Operations() {
+        assertEquals(0, snapshot("a", "b", "c").diff(snapshot("a", "b", "c")).size());
+    }
+
+    @Test
+    public void Changed_Versions_Are_Detected() {
+        KeyedSnapshot next = new KeyedSnapshot(Arrays.asList(new Item("a", 0), new Item("b", 1)));
+        List<Operation> operations = snapshot("a", "b").diff(next);
+        assertEquals(1, operations.size());
+        assertEquals(Type.CHANGE, operations.get(0).type);
+        assertEquals(1, operations.get(0).index);
+    }
+
+    @Test
+    public void Single_Move_Is_Minimal() {
+        List<Operation> operations = snapshot("a", "b", "c", "d").diff(snapshot("d", "a", "b", "c"));
+        assertEquals(1, operations.size());
+        assertEquals(Type.MOVE, operations.get(0).type);
+        assertEquals(0, operations.get(0).index);
+    }
+
+    @Test
+    public void Removals_And_Insertions() {
+        List<Operation> operations = snapshot("a", "b", "c").diff(snapshot("a", "x", "c"));
+        assertEquals(2, operations.size());
+        assertEquals(Type.REMOVE, operations.get(0).type);
+        assertEquals(1, operations.get(0).index);
+        assertEquals(Type.INSERT, operations.get(1).type);
+        assertEquals(1, operations.get(1).index);
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Duplicate_Keys_Are_Rejected() {
+        snapshot("a").diff(snapshot("a", "a"));
+    }
+
+    @Test
+    public void Operations_Transform_Previous_To_Next() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            List<String> previous = randomKeys(random);
+            List<String> next = randomKeys(random);
+            List<Operation> operations = snapshot(previous).diff(snapshot(next));
+            assertEquals(next, apply(previous, next, operations));
+        }
+    }
+
+    private static List<String> apply(List<String> previous, List<String> next, 
+            List<Operation> operations) {
+        List<String> keys = new ArrayList<String>(previous);
+        for (Operation operation : operations) {
+            String key = operation.type == Type.REMOVE 
+                    ? previous.get(operation.index) : next.get(operation.index);
+            if (operation.type == Type.REMOVE) {
+                keys.remove(key);
+            } else if (operation.type != Type.CHANGE) {
+                keys.remove(key);
+                keys.add(operation.index == 0 ? 0 
+                        : keys.indexOf(next.get(operation.index - 1)) + 1, key);
+            }
+        }
+        return keys;
+    }
+
+    private static List<String> randomKeys(Random random) {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            if (random.nextBoolean()) {
+                keys.add("k" + i);
+            }
+        }
+        Collections.shuffle(keys.subList(0, keys.size() / 2), random);
+        return keys;
+    }
+
+    private static KeyedSnapshot snapshot(String... keys) {
+        return snapshot(Arrays.asList(keys));
+    }
+
+    private static KeyedSnapshot snapshot(List<String> keys) {
+        List<Item> items = new ArrayList<Item>();
+        for (String key : keys) {
+            items.add(new Item(key, 0));
+        }
+        return new KeyedSnapshot(items);
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.contextfw.web.application.WebApplicationException;
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.component.Element;
+import net.contextfw.web.application.internal.InternalWebApplicationException;
+import net.contextfw.web.application.internal.ToStringSerializer;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.internal.page.PageScope;
+import net.contextfw.web.application.internal.page.WebApplicationPage;
+import net.contextfw.web.application.internal.page.WebApplicationPageImpl;
+
+import org.dom4j.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+public class ParallelBuilderTest {
+
+    private static final int SECTIONS = 4;
+
+    private static CountDownLatch latch;
+
+    private static final Set<Object> pages = new HashSet<Object>();
+
+    private static PageScope pageScope;
+
+    private static Provider<StringBuilder> pageBean;
+
+    private static final AtomicInteger beansCreated = new AtomicInteger();
+
+    @Buildable
+    public static class View {
+
+        @Attribute
+        public String title = "view";
+
+        @Element
+        public List<Section> sections = new ArrayList<Section>();
+    }
+
+    @Buildable(independent = true)
+    public static class Section {
+
+        @Attribute
+        public final int index;
+
+        @Element
+        public Row row = new Row();
+
+        public Section(int index) {
+            this.index = index;
+        }
+
+        @Attribute
+        public boolean concurrent() throws InterruptedException {
+            synchronized (pages) {
+                pages.add(pageScope.getCurrentPage());
+            }
+            if (index < 0) {
+                throw new IllegalStateException("Broken");
+            }
+            latch.countDown();
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Buildable
+    public static class Row {
+
+        @Attribute
+        public String name = "row";
+    }
+
+    @Buildable
+    public static class Consumers {
+
+        @Element
+        public List<Consumer> consumers = new ArrayList<Consumer>();
+    }
+
+    @Buildable(independent = true)
+    public static class Consumer {
+
+        @Attribute
+        public int bean() throws InterruptedException {
+            latch.countDown();
+            latch.await(5, TimeUnit.SECONDS);
+            return System.identityHashCode(pageBean.get());
+        }
+    }
+
+    @Buildable(independent = true, wrap = false)
+    public static class Unwrapped {
+    }
+
+    private ComponentBuilderImpl builder;
+
+    private WebApplicationPage page;
+
+    @Before
+    public void setup() {
+        latch = new CountDownLatch(SECTIONS);
+        pages.clear();
+        pageScope = new PageScope();
+        page = new WebApplicationPageImpl();
+        pageScope.attachPage(page);
+        builder = new ComponentBuilderImpl(null, new Gson(), new FragmentCache(0), true);
+        builder.clean();
+        builder.setParallelBuilder(new ParallelBuilder(SECTIONS, pageScope));
+        beansCreated.set(0);
+        pageBean = pageScope.scope(Key.get(StringBuilder.class), new Provider<StringBuilder>() {
+            public StringBuilder get() {
+                beansCreated.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new StringBuilder();
+            }
+        });
+    }
+
+    @After
+    public void cleanup() {
+        pageScope.detachPage();
+        builder.clean();
+    }
+
+    @Test
+    public void Independent_Siblings_Are_Built_Concurrently_In_Order() {
+        View view = createView();
+        DOMBuilder parallel = createDOMBuilder();
+        builder.buildTree(parallel, view, null);
+
+        String xml = parallel.toDocument().asXML();
+        assertFalse(xml.contains("concurrent=\"false\""));
+        assertEquals(SECTIONS, parallel.toDocument().selectNodes("//Section[@concurrent='true']").size());
+        assertEquals(1, pages.size());
+        assertSame(page, pages.iterator().next());
+
+        latch = new CountDownLatch(0);
+        DOMBuilder sequential = createDOMBuilder();
+        new ComponentBuilderImpl(null, new Gson(), new FragmentCache(0), true)
+                .build(sequential, view);
+        assertEquals(sequential.toDocument().asXML(), xml);
+    }
+
+    @Test
+    public void Sequential_Build_Outside_Tree() {
+        latch = new CountDownLatch(0);
+        DOMBuilder b = createDOMBuilder();
+        builder.build(b, createView());
+        assertEquals(SECTIONS, b.toDocument().selectNodes("//Section/row/Row").size());
+    }
+
+    @Test(expected = InternalWebApplicationException.class)
+    public void Exceptions_Are_Rethrown() {
+        latch = new CountDownLatch(0);
+        View view = createView();
+        view.sections.add(new Section(-1));
+        builder.buildTree(createDOMBuilder(), view, null);
+    }
+
+    @Test
+    public void Independent_Siblings_Share_Page_Scoped_Bean() {
+        Consumers consumers = new Consumers();
+        for (int i = 0; i < SECTIONS; i++) {
+            consumers.consumers.add(new Consumer());
+        }
+        DOMBuilder b = createDOMBuilder();
+        builder.buildTree(b, consumers, null);
+
+        assertEquals(1, beansCreated.get());
+        String expected = String.valueOf(System.identityHashCode(pageBean.get()));
+        List<?> beans = b.toDocument().selectNodes("//Consumer/@bean");
+        assertEquals(SECTIONS, beans.size());
+        for (Object bean : beans) {
+            assertEquals(expected, ((Node) bean).getText());
+        }
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void Independent_Must_Be_Wrapped() {
+        builder.getMetaComponent(Unwrapped.class);
+    }
+
+    private View createView() {
+        View view = new View();
+        for (int i = 0; i < SECTIONS; i++) {
+            view.sections.add(new Section(i));
+        }
+        return view;
+    }
+
+    private DOMBuilder createDOMBuilder() {
+        return new DOMBuilder("WebApplication", new ToStringSerializer(), builder, 
+                new HashSet<KeyValue<String, String>>());
+    }
+}
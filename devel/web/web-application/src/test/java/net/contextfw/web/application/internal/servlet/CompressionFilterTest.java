@@ -0,0 +1,216 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.servlet;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.util.ContentEncoding;
+import net.contextfw.web.application.internal.util.DeflaterPool;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressionFilterTest {
+
+    private static final String CONTENT;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("<div class=\"product\">Product ä ").append(i).append("</div>");
+        }
+        CONTENT = sb.toString();
+    }
+
+    private DeflaterPool pool;
+
+    private CompressionFilter filter;
+
+    private ByteArrayOutputStream out;
+
+    private HttpServletResponse resp;
+
+    @Before
+    public void setup() {
+        pool = new DeflaterPool();
+        filter = new CompressionFilter(Configuration.getDefaults()
+                .set(Configuration.COMPRESSION_MIN_SIZE, 100), pool);
+        out = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void Encoding_Is_Negotiated() {
+        assertNull(ContentEncoding.negotiate(null));
+        assertNull(ContentEncoding.negotiate("identity"));
+        assertNull(ContentEncoding.negotiate("gzip;q=0, deflate;q=0"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, GZIP;q=0.5"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, deflate"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("*, gzip;q=0, deflate"));
+    }
+
+    @Test
+    public void Gzip_Response() throws Exception {
+        mockResponse("text/html; charset=UTF-8");
+        resp.setHeader("Content-Encoding", "gzip");
+        expectLastCall().once();
+        replay(resp);
+
+        filter.doFilter(mockRequest("gzip, deflate"), resp, writer(CONTENT));
+
+        verify(resp);
+        assertEquals(CONTENT, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void Deflate_Response() throws Exception {
+        mockResponse("text/xml; charset=UTF-8");
+        resp.setHeader("Content-Encoding", "deflate");
+        expectLastCall().once();
+        replay(resp);
+
+        filter.doFilter(mockRequest("deflate"), resp, writer(CONTENT));
+
+        verify(resp);
+        assertEquals(CONTENT, read(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void Deflaters_Are_Reused() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            out = new ByteArrayOutputStream();
+            mockResponse("text/html; charset=UTF-8");
+            replay(resp);
+            filter.doFilter(mockRequest("gzip"), resp, writer(CONTENT));
+            assertEquals(CONTENT, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        }
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void Small_Response_Is_Not_Compressed() throws Exception {
+        mockResponse("text/html; charset=UTF-8");
+        resp.setContentLength(5);
+        expectLastCall().once();
+        replay(resp);
+
+        filter.doFilter(mockRequest("gzip"), resp, new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException, ServletException {
+                response.setContentLength(5);
+                response.getOutputStream().write("small".getBytes("UTF-8"));
+            }
+        });
+
+        verify(resp);
+        assertEquals("small", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void Incompressible_Response_Is_Not_Compressed() throws Exception {
+        mockResponse("image/png");
+        replay(resp);
+        filter.doFilter(mockRequest("gzip"), resp, writer(CONTENT));
+        assertEquals(CONTENT, out.toString("UTF-8"));
+    }
+
+    @Test
+    public void Encoded_Response_Is_Passed_Through() throws Exception {
+        mockResponse("text/html; charset=UTF-8");
+        replay(resp);
+        filter.doFilter(mockRequest("gzip"), resp, new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException, ServletException {
+                ((HttpServletResponse) response).setHeader("Content-Encoding", "gzip");
+                response.getOutputStream().write(CONTENT.getBytes("UTF-8"));
+            }
+        });
+        assertEquals(CONTENT, out.toString("UTF-8"));
+    }
+
+    @Test
+    public void Not_Accepted_Response_Is_Not_Compressed() throws Exception {
+        mockResponse("text/html; charset=UTF-8");
+        replay(resp);
+        filter.doFilter(mockRequest(null), resp, new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException, ServletException {
+                response.getOutputStream().write(CONTENT.getBytes("UTF-8"));
+            }
+        });
+        assertEquals(CONTENT, out.toString("UTF-8"));
+    }
+
+    private FilterChain writer(final String content) {
+        return new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException, ServletException {
+                response.getWriter().print(content);
+                response.getWriter().close();
+            }
+        };
+    }
+
+    private HttpServletRequest mockRequest(String acceptEncoding) {
+        HttpServletRequest req = createNiceMock(HttpServletRequest.class);
+        expect(req.getHeader("Accept-Encoding")).andReturn(acceptEncoding).anyTimes();
+        replay(req);
+        return req;
+    }
+
+    private void mockResponse(String contentType) throws IOException {
+        resp = createNiceMock(HttpServletResponse.class);
+        expect(resp.getContentType()).andReturn(contentType).anyTimes();
+        expect(resp.getCharacterEncoding()).andReturn("UTF-8").anyTimes();
+        expect(resp.getOutputStream()).andReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        }).anyTimes();
+    }
+
+    private String read(InputStream in) throws IOException {
+        return IOUtils.toString(in, "UTF-8");
+    }
+}
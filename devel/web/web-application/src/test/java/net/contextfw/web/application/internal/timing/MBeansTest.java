@@ -0,0 +1,91 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.timing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.contextfw.web.application.configuration.Configuration;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MBeansTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    @After
+    public void cleanup() throws JMException {
+        for (ObjectName name : registered) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+    }
+
+    @Test
+    public void Unnamed_Applications_Do_Not_Replace_Each_Other() throws JMException {
+        RenderStatistics first = createStatistics(1);
+        RenderStatistics second = createStatistics(2);
+
+        ObjectName firstName = register(first, null);
+        ObjectName secondName = register(second, null);
+
+        assertFalse(firstName.equals(secondName));
+        assertEquals(1L, server.getAttribute(firstName, "RequestCount"));
+        assertEquals(2L, server.getAttribute(secondName, "RequestCount"));
+    }
+
+    @Test
+    public void Named_Application_Replaces_Its_Previous_Bean() throws JMException {
+        ObjectName firstName = register(createStatistics(1), "app");
+        ObjectName secondName = register(createStatistics(2), "app");
+        ObjectName otherName = register(createStatistics(3), "other");
+
+        assertEquals(MBeans.getName("MBeansTest", "app"), firstName);
+        assertEquals(firstName, secondName);
+        assertEquals(2L, server.getAttribute(secondName, "RequestCount"));
+        assertEquals(3L, server.getAttribute(otherName, "RequestCount"));
+    }
+
+    private ObjectName register(Object bean, String application) {
+        ObjectName name = MBeans.register(bean, "MBeansTest", application);
+        assertTrue(server.isRegistered(name));
+        registered.add(name);
+        return name;
+    }
+
+    private static RenderStatistics createStatistics(int requests) {
+        RenderStatistics statistics = new RenderStatistics(Configuration.getDefaults());
+        for (int i = 0; i < requests; i++) {
+            RenderTimer.begin("view");
+            statistics.record(RenderTimer.end());
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import net.contextfw.web.application.configuration.Configuration;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RenderStatisticsTest {
+
+    private static final long MILLIS = 1000000;
+
+    @After
+    public void cleanup() {
+        RenderTimer.end();
+    }
+
+    @Test
+    public void Timer_Is_Inactive_When_Timing_Is_Disabled() {
+        RenderStatistics statistics = new RenderStatistics(Configuration.getDefaults());
+        statistics.begin("view");
+        assertNull(RenderTimer.current());
+        assertEquals(0, RenderTimer.start());
+        RenderTimer.stop(RenderPhase.BUILD, System.nanoTime());
+        statistics.end();
+        assertEquals(0, statistics.getRequestCount());
+    }
+
+    @Test
+    public void Phases_Are_Recorded_By_Key() {
+        RenderStatistics statistics = createStatistics();
+
+        statistics.begin("update");
+        RenderTimer.key("Component.method");
+        RenderTimer.stop(RenderPhase.INVOKE, System.nanoTime() - 3 * MILLIS);
+        RenderTimer.stop(RenderPhase.BUILD, System.nanoTime() - 5 * MILLIS);
+        statistics.end();
+
+        statistics.begin("View");
+        RenderTimer.stop(RenderPhase.BUILD, System.nanoTime() - 5 * MILLIS);
+        statistics.end();
+
+        assertNull(RenderTimer.current());
+        assertEquals(2, statistics.getRequestCount());
+
+        List<PhaseTiming> timings = statistics.getTimings();
+        assertEquals(5, timings.size());
+        assertTiming(timings.get(0), "Component.method", "invoke", 3);
+        assertTiming(timings.get(1), "Component.method", "build", 5);
+        assertEquals("total", timings.get(2).getPhase());
+        assertTiming(timings.get(3), "View", "build", 5);
+
+        statistics.reset();
+        assertEquals(0, statistics.getRequestCount());
+        assertEquals(0, statistics.getTimings().size());
+    }
+
+    @Test
+    public void Percentiles_Are_Bucketed() {
+        RenderStatistics statistics = createStatistics();
+        for (int i = 1; i <= 100; i++) {
+            statistics.begin("View");
+            RenderTimer.stop(RenderPhase.TRANSFORM, System.nanoTime() - i * MILLIS);
+            statistics.end();
+        }
+        PhaseTiming timing = statistics.getTimings().get(0);
+        assertEquals("transform", timing.getPhase());
+        assertEquals(100, timing.getCount());
+        assertTrue(timing.getMeanMillis() >= 50.5);
+        // Buckets are powers of two microseconds
+        assertTrue(timing.getP50Millis() >= 50 && timing.getP50Millis() <= 100);
+        assertTrue(timing.getP99Millis() >= 99);
+        assertTrue(timing.getP99Millis() <= timing.getMaxMillis());
+    }
+
+    @Test
+    public void Server_Timing_Contains_Measured_Phases() {
+        RenderTimer timer = RenderTimer.begin("View");
+        RenderTimer.stop(RenderPhase.LOCK, System.nanoTime() - 1 * MILLIS);
+        RenderTimer.stop(RenderPhase.BUILD, System.nanoTime() - 12 * MILLIS);
+        assertTrue(Pattern.matches("lock;dur=1\\.\\d{3}, build;dur=12\\.\\d{3}",
+                timer.toServerTiming()));
+    }
+
+    private RenderStatistics createStatistics() {
+        return new RenderStatistics(Configuration.getDefaults()
+                .set(Configuration.RENDER_TIMING, true));
+    }
+
+    private void assertTiming(PhaseTiming timing, String key, String phase, long millis) {
+        assertEquals(key, timing.getKey());
+        assertEquals(phase, timing.getPhase());
+        assertEquals(1, timing.getCount());
+        assertTrue(timing.getMaxMillis() >= millis);
+    }
+}
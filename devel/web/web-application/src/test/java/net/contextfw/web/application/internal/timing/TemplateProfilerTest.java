@@ -0,0 +1,130 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.contextfw.web.application.internal.timing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.contextfw.web.application.internal.Transformers;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.junit.Test;
+
+public class TemplateProfilerTest {
+
+    private static final String XSL =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\">"
+        + "<html><body><xsl:apply-templates select=\"WebApplication/*\" /></body></html>"
+        + "</xsl:template>"
+        + "<xsl:template match=\"Item\">"
+        + "<div><xsl:call-template name=\"label\" /></div>"
+        + "</xsl:template>"
+        + "<xsl:template name=\"label\">"
+        + "<span><xsl:value-of select=\".\" /></span>"
+        + "</xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private static final String XML =
+        "<WebApplication><Item>a</Item><Item>b</Item><Item>c</Item></WebApplication>";
+
+    @Test
+    public void Templates_Are_Timed() throws DocumentException {
+        TemplateProfiler profiler = new TemplateProfiler(1);
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put(TemplateProfiler.getLabel("Item", null, null), "Item.xsl");
+        profiler.setSources(sources);
+
+        Transformers transformers = createTransformers(profiler);
+        Document result = transformers.transform(DocumentHelper.parseText(XML));
+        assertEquals(3, result.selectNodes("//span").size());
+
+        assertEquals(1, profiler.getProfiledCount());
+        List<TemplateTiming> timings = profiler.getTemplates();
+        TemplateTiming root = find(timings, "match=\"/\"");
+        TemplateTiming item = find(timings, "match=\"Item\"");
+        TemplateTiming label = find(timings, "name=\"label\"");
+
+        assertEquals(1, root.getCount());
+        assertEquals(3, item.getCount());
+        assertEquals(3, label.getCount());
+        assertEquals("Item.xsl", item.getSource());
+        assertNull(label.getSource());
+
+        assertTrue(root.getTotalMillis() >= item.getTotalMillis());
+        assertTrue(item.getTotalMillis() >= label.getTotalMillis());
+        assertTrue(item.getSelfMillis() <= item.getTotalMillis() - label.getTotalMillis() + 0.001);
+        for (int i = 1; i < timings.size(); i++) {
+            assertTrue(timings.get(i - 1).getSelfMillis() >= timings.get(i).getSelfMillis());
+        }
+        assertTrue(profiler.getReport().contains("match=\"Item\" (Item.xsl)"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getProfiledCount());
+        assertEquals(0, profiler.getTemplates().size());
+    }
+
+    @Test
+    public void Transformations_Are_Sampled() throws DocumentException {
+        TemplateProfiler profiler = new TemplateProfiler(3);
+        Transformers transformers = createTransformers(profiler);
+        Document document = DocumentHelper.parseText(XML);
+        String expected = null;
+        for (int i = 0; i < 9; i++) {
+            String html = transformers.transform(document).asXML();
+            if (expected == null) {
+                expected = html;
+            }
+            assertEquals(expected, html);
+        }
+        assertEquals(3, profiler.getProfiledCount());
+        assertEquals(3, find(profiler.getTemplates(), "match=\"/\"").getCount());
+    }
+
+    @Test
+    public void Labels_Use_Local_Names() {
+        assertEquals("name=\"label\" mode=\"list\"", 
+                TemplateProfiler.getLabel(null, "txt:label", "txt:list"));
+        assertEquals("match=\"a|b\"", TemplateProfiler.getLabel("a|b", null, null));
+    }
+
+    private Transformers createTransformers(TemplateProfiler profiler) 
+            throws DocumentException {
+        Transformers transformers = new Transformers(2, 100, profiler);
+        transformers.initialize(DocumentHelper.parseText(XSL), 
+                Collections.<String, Document>emptyMap(), null);
+        return transformers;
+    }
+
+    private TemplateTiming find(List<TemplateTiming> timings, String template) {
+        for (TemplateTiming timing : timings) {
+            if (timing.getTemplate().equals(template)) {
+                return timing;
+            }
+        }
+        throw new AssertionError("Template not found: " + template);
+    }
+}
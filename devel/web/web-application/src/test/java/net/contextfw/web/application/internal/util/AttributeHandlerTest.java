@@ -0,0 +1,146 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Date;
+import java.util.HashSet;
+
+import net.contextfw.web.application.component.Attribute;
+import net.contextfw.web.application.component.Buildable;
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+import net.contextfw.web.application.serialize.AttributeSerializer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+public class AttributeHandlerTest {
+
+    public interface Named {
+        String getName();
+    }
+
+    public static class Person implements Named {
+        @Override
+        public String getName() {
+            return "person";
+        }
+    }
+
+    public static class Employee extends Person {
+    }
+
+    public static class NamedSerializer implements AttributeSerializer<Named> {
+        @Override
+        public String serialize(Named source) {
+            return "named:" + source.getName();
+        }
+    }
+
+    public static class DateSerializer implements AttributeSerializer<Date> {
+        @Override
+        public String serialize(Date source) {
+            return String.valueOf(source.getTime() / 1000);
+        }
+    }
+
+    @Buildable
+    public static class Card {
+
+        @Attribute
+        public int count = 12;
+
+        @Attribute
+        public Person person = new Employee();
+
+        @Attribute
+        public Object date = new java.sql.Date(3000);
+
+        @Attribute
+        public char letter = 'x';
+    }
+
+    private AttributeHandler handler;
+
+    @Before
+    public void setup() {
+        final Configuration conf = Configuration.getDefaults()
+            .add(Configuration.ATTRIBUTE_SERIALIZER.as(Named.class, NamedSerializer.class))
+            .add(Configuration.ATTRIBUTE_SERIALIZER.as(Date.class, DateSerializer.class));
+        handler = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Configuration.class).toInstance(conf);
+            }
+        }).getInstance(AttributeHandler.class);
+    }
+
+    @Test
+    public void Nearest_Bound_Serializer_Is_Used() {
+        assertEquals("named:person", handler.serialize(new Person()));
+        assertEquals("named:person", handler.serialize(new Employee()));
+        assertEquals("3", handler.serialize(new java.sql.Timestamp(3000)));
+        assertEquals("Thu Jan 01", handler.serialize(new StringBuilder("Thu Jan 01")));
+        assertNull(handler.serialize(null));
+    }
+
+    @Test
+    public void Built_In_Types_Are_Serialized() {
+        assertEquals("42", handler.serialize(42));
+        assertEquals("-128", handler.serialize((byte) -128));
+        assertEquals("1024", handler.serialize(1024));
+        assertEquals("-9223372036854775808", handler.serialize(Long.MIN_VALUE));
+        assertEquals("1.5", handler.serialize(1.5));
+        assertEquals("true", handler.serialize(Boolean.TRUE));
+        assertEquals("\u00e4", handler.serialize('\u00e4'));
+        assertSame(handler.serialize(7), handler.serialize(7));
+        assertSame(handler.serialize('a'), handler.serialize('a'));
+    }
+
+    @Test
+    public void Serializers_Are_Resolved_Once() {
+        assertSame(handler.getSerializer(int.class), handler.getSerializer(Integer.class));
+        assertSame(handler.getSerializer(Employee.class), handler.getSerializer(Employee.class));
+    }
+
+    @Test
+    public void Component_Attributes_Use_Resolved_Serializers() {
+        ComponentBuilderImpl builder = new ComponentBuilderImpl(handler, new Gson(), 
+                new FragmentCache(0), true);
+        builder.clean();
+        DOMBuilder domBuilder = new DOMBuilder("WebApplication", handler, builder, 
+                new HashSet<KeyValue<String, String>>());
+        domBuilder.child(new Card());
+        builder.clean();
+        org.dom4j.Element card = domBuilder.toDocument().getRootElement().element("Card");
+        assertEquals("12", card.attributeValue("count"));
+        assertEquals("named:person", card.attributeValue("person"));
+        assertEquals("3", card.attributeValue("date"));
+        assertEquals("x", card.attributeValue("letter"));
+    }
+}
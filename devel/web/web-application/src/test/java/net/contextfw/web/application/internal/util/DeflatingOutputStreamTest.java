@@ -0,0 +1,50 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+public class DeflatingOutputStreamTest {
+
+    @Test
+    public void Flushed_Data_Can_Be_Decompressed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflatingOutputStream stream = new DeflatingOutputStream(out, 
+                ContentEncoding.DEFLATE, new DeflaterPool());
+        byte[] data = "<div>Flushed before finishing</div>".getBytes("UTF-8");
+        stream.write(data);
+        stream.flush();
+
+        byte[] compressed = out.toByteArray();
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] result = new byte[data.length * 2];
+        int len = inflater.inflate(result);
+        inflater.end();
+        assertEquals(new String(data, "UTF-8"), new String(Arrays.copyOf(result, len), "UTF-8"));
+
+        stream.flush();
+        assertEquals(compressed.length, out.size());
+        stream.finish();
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.internal.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.remote.ParamConverter;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class ParamConvertersTest {
+
+    public enum Color { RED, GREEN }
+
+    public static class Money {
+
+        private final long cents;
+
+        public Money(String value) {
+            cents = Math.round(Double.parseDouble(value) * 100);
+        }
+
+        public Money(long cents) {
+            this.cents = cents;
+        }
+    }
+
+    public static class MoneyConverter implements ParamConverter<Money> {
+        @Override
+        public Money convert(String value) {
+            return new Money(Long.parseLong(value));
+        }
+    }
+
+    public static class Point {
+        int x;
+        int y;
+    }
+
+    private final ParamConverters converters = new ParamConverters(new Gson());
+
+    @Test
+    public void Built_In_Types_Are_Converted() {
+        assertEquals("a", converters.getConverter(String.class).convert("a"));
+        assertEquals(true, converters.getConverter(boolean.class).convert("true"));
+        assertEquals((byte) 1, converters.getConverter(Byte.class).convert("1"));
+        assertEquals('c', converters.getConverter(char.class).convert("c"));
+        assertEquals((short) 2, converters.getConverter(short.class).convert("2"));
+        assertEquals(3, converters.getConverter(int.class).convert("3"));
+        assertEquals(4L, converters.getConverter(Long.class).convert("4"));
+        assertEquals(5.5f, converters.getConverter(float.class).convert("5.5"));
+        assertEquals(6.5, converters.getConverter(Double.class).convert("6.5"));
+        assertEquals(Color.GREEN, converters.getConverter(Color.class).convert("GREEN"));
+        assertEquals(150L, ((Money) converters.getConverter(Money.class).convert("1.5")).cents);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void Unknown_Enum_Constant_Is_Rejected() {
+        converters.getConverter(Color.class).convert("BLUE");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void Invalid_Number_Is_Rejected() {
+        converters.getConverter(int.class).convert("x");
+    }
+
+    @Test
+    public void Converters_Are_Resolved_Once() {
+        assertSame(converters.getConverter(Color.class), converters.getConverter(Color.class));
+        assertSame(converters.getJsonConverter(Point.class), 
+                converters.getJsonConverter(Point.class));
+    }
+
+    @Test
+    public void Other_Types_Are_Converted_From_Json() {
+        assertNull(converters.getConverter(Point.class));
+        assertNull(converters.getConverter(List.class));
+        Point point = (Point) converters.getJsonConverter(Point.class).convert("{x:1,y:2}");
+        assertEquals(1, point.x);
+        assertEquals(2, point.y);
+    }
+
+    @Test
+    public void Bound_Converters_Take_Precedence() {
+        final Configuration conf = Configuration.getDefaults()
+            .add(Configuration.PARAM_CONVERTER.as(Money.class, MoneyConverter.class));
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Configuration.class).toInstance(conf);
+            }
+        });
+        ParamConverters bound = injector.getInstance(ParamConverters.class);
+        assertEquals(150L, ((Money) bound.getConverter(Money.class).convert("150")).cents);
+        assertEquals(3, bound.getConverter(int.class).convert("3"));
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2010 Marko Lavikainen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.contextfw.web.application.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import net.contextfw.web.application.component.DOMBuilder;
+import net.contextfw.web.application.internal.ToStringSerializer;
+import net.contextfw.web.application.internal.component.ComponentBuilderImpl;
+import net.contextfw.web.application.internal.component.FragmentCache;
+import net.contextfw.web.application.internal.component.GeneratedBuilder;
+import net.contextfw.web.application.internal.configuration.KeyValue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class BuildableProcessorTest {
+
+    private static final String SOURCE =
+        "package test.processed;\n"
+        + "import net.contextfw.web.application.component.*;\n"
+        + "import net.contextfw.web.application.lifecycle.*;\n"
+        + "import net.contextfw.web.application.remote.*;\n"
+        + "@Buildable\n"
+        + "public class Item<T> extends Base {\n"
+        + "    @Attribute String name = \"item\";\n"
+        + "    @Attribute private boolean hidden = true;\n"
+        + "    @Element(onCreate = false) String updated = \"updated\";\n"
+        + "    @Attribute protected int count() { return 3; }\n"
+        + "    @Element public String text() throws java.io.IOException { return \"text\"; }\n"
+        + "    @CustomBuild void custom(DOMBuilder b) { b.attr(\"custom\", \"yes\"); }\n"
+        + "    public int builds = 0;\n"
+        + "    @BeforeBuild void beforeBuild() { builds++; }\n"
+        + "    @PathParam public String id;\n"
+        + "    @PathParam final String constant = null;\n"
+        + "    public long number;\n"
+        + "    @RequestParam void number(long number) { this.number = number; }\n"
+        + "    public static class Nested {\n"
+        + "        @Element String text = \"nested\";\n"
+        + "    }\n"
+        + "    private static class Hidden {\n"
+        + "        @Element String text = \"hidden\";\n"
+        + "    }\n"
+        + "}\n"
+        + "class Base {\n"
+        + "    @Element String base = \"base\";\n"
+        + "    @Element String name() { return \"hidden by field\"; }\n"
+        + "}\n";
+
+    private File directory;
+
+    private ClassLoader loader;
+
+    @Before
+    public void setup() throws IOException {
+        directory = File.createTempFile("processor", "");
+        directory.delete();
+        File sourceDir = new File(directory, "test/processed");
+        sourceDir.mkdirs();
+        File source = new File(sourceDir, "Item.java");
+        Writer writer = new FileWriter(source);
+        writer.write(SOURCE);
+        writer.close();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", BuildableProcessor.class.getName(),
+                "-d", directory.getPath(),
+                source.getPath()));
+
+        loader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, 
+                getClass().getClassLoader());
+    }
+
+    @After
+    public void cleanup() {
+        delete(directory);
+    }
+
+    @Test
+    public void Non_Private_Members_Are_Generated() throws Exception {
+        Object item = loader.loadClass("test.processed.Item").newInstance();
+        GeneratedBuilder accessors = (GeneratedBuilder) 
+            loader.loadClass("test.processed.Item$$Builder").newInstance();
+
+        assertEquals("item", accessors.getAccessor("name").access(item));
+        assertEquals(3, accessors.getAccessor("count()").access(item));
+        assertNull(accessors.getAccessor("beforeBuild()").access(item));
+        assertEquals(1, item.getClass().getField("builds").get(item));
+
+        assertNull(accessors.getAccessor("hidden"));
+        assertNull(accessors.getAccessor("text()"));
+        assertNull(accessors.getAccessor("builds"));
+    }
+
+    @Test
+    public void Member_Classes_Are_Generated() throws Exception {
+        Object nested = loader.loadClass("test.processed.Item$Nested").newInstance();
+        GeneratedBuilder accessors = (GeneratedBuilder) 
+            loader.loadClass("test.processed.Item$Nested$$Builder").newInstance();
+        assertEquals("nested", accessors.getAccessor("text").access(nested));
+        assertTrue(new File(directory, "test/processed/Item$Nested$$Builder.java").exists());
+        assertTrue(!new File(directory, "test/processed/Item$Hidden$$Builder.java").exists());
+    }
+
+    @Test
+    public void Build_Order_Follows_Declarations() throws Exception {
+        GeneratedBuilder item = (GeneratedBuilder) 
+            loader.loadClass("test.processed.Item$$Builder").newInstance();
+        assertEquals(Arrays.asList("name", "hidden", "updated", "base", "count", "text", "custom"),
+                Arrays.asList(item.getBuildOrder()));
+
+        GeneratedBuilder base = (GeneratedBuilder) 
+            loader.loadClass("test.processed.Base$$Builder").newInstance();
+        assertNull(base.getBuildOrder());
+    }
+
+    @Test
+    public void Params_Are_Set_Directly() throws Exception {
+        Class<?> cl = loader.loadClass("test.processed.Item");
+        Object item = cl.newInstance();
+        GeneratedBuilder builder = (GeneratedBuilder) 
+            loader.loadClass("test.processed.Item$$Builder").newInstance();
+
+        assertTrue(builder.setParam(item, "id", "foo"));
+        assertTrue(builder.setParam(item, "number()", 5L));
+        assertEquals("foo", cl.getField("id").get(item));
+        assertEquals(5L, cl.getField("number").get(item));
+
+        assertFalse(builder.setParam(item, "constant", "bar"));
+        assertFalse(builder.setParam(item, "name", "bar"));
+    }
+
+    @Test
+    public void Generated_Output_Equals_Reflective_Output() throws Exception {
+        Class<?> cl = loader.loadClass("test.processed.Item");
+        Object generated = cl.newInstance();
+        Object reflective = cl.newInstance();
+        String xml = build(reflective, false);
+        assertEquals(xml, build(generated, true));
+        assertTrue(xml.contains("name=\"item\""));
+        assertTrue(xml.contains("hidden=\"true\""));
+        assertTrue(xml.contains("custom=\"yes\""));
+        assertTrue(xml.contains("<base>base</base>"));
+        assertFalse(xml.contains("updated"));
+        assertEquals(1, cl.getField("builds").get(generated));
+    }
+
+    private String build(Object component, boolean generateAccessors) {
+        ComponentBuilderImpl builder = new ComponentBuilderImpl(null, new Gson(), 
+                new FragmentCache(0), generateAccessors);
+        builder.clean();
+        assertNotNull(builder.getMetaComponent(component.getClass()));
+        DOMBuilder domBuilder = new DOMBuilder("WebApplication", new ToStringSerializer(), 
+                builder, new HashSet<KeyValue<String, String>>());
+        domBuilder.child(component);
+        builder.clean();
+        return domBuilder.toDocument().asXML();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
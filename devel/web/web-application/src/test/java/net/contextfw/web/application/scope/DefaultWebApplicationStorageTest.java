@@ -4,9 +4,13 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import javax.servlet.http.HttpServletRequest;
 
 import net.contextfw.application.AbstractTest;
@@ -248,4 +252,68 @@ public class DefaultWebApplicationStorageTest extends AbstractTest {
     public void Load_Large_Non_Existent_Scope() {
         storage.loadLarge(new PageHandle("foo"), "test", Long.class);
     }
+    
+    @Test(expected=WebApplicationException.class)
+    public void Expired_Pages_Are_Removed() {
+        sleep(250);
+        ((DefaultWebApplicationStorage) storage).removeExpiredPages();
+        storage.loadLarge(application.handle, "test", Long.class);
+    }
+    
+    @Test
+    public void Expiry_Does_Not_Block_Other_Pages() throws InterruptedException {
+        
+        final CountDownLatch expiring = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final boolean[] timedOut = new boolean[1];
+        
+        final DefaultWebApplicationStorage storage = 
+                new DefaultWebApplicationStorage(Configuration.getDefaults()) {
+            @Override
+            protected void pageExpired(PageHandle handle, int pageCount, String remoteAddr) {
+                expiring.countDown();
+                try {
+                    timedOut[0] = !released.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    timedOut[0] = true;
+                }
+            }
+        };
+        
+        ScopedWebApplicationExecution noop = new ScopedWebApplicationExecution() {
+            @Override
+            public void execute(WebApplication application) {
+            }
+        };
+        
+        SimpleWebApplication expired = new SimpleWebApplication();
+        SimpleWebApplication active = new SimpleWebApplication();
+        storage.initialize(expired, getRequest(LOCALHOST), System.currentTimeMillis() + 50, noop);
+        storage.initialize(active, getRequest(LOCALHOST), System.currentTimeMillis() + 60000, noop);
+        sleep(100);
+        
+        Thread removal = new Thread() {
+            public void run() {
+                storage.removeExpiredPages();
+            }
+        };
+        removal.start();
+        expiring.await();
+        
+        storage.storeLarge(active.handle, "test", "value");
+        assertEquals("value", storage.loadLarge(active.handle, "test", String.class));
+        
+        ScopedWebApplicationExecution execution = createStrictMock(ScopedWebApplicationExecution.class);
+        execution.execute(active);
+        replay(execution);
+        storage.update(active.handle, 
+                getRequest(LOCALHOST), 
+                System.currentTimeMillis() + 1000, 
+                execution);
+        verify(execution);
+        
+        released.countDown();
+        removal.join();
+        assertFalse(timedOut[0]);
+    }
 }
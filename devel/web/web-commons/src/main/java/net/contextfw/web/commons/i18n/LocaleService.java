@@ -2,11 +2,11 @@ package net.contextfw.web.commons.i18n;
 
 import java.util.Locale;
 
-import net.contextfw.web.application.DocumentProcessor;
+import net.contextfw.web.application.LocalizedDocumentProcessor;
 
 import org.dom4j.Document;
 
-public interface LocaleService extends DocumentProcessor {
+public interface LocaleService extends LocalizedDocumentProcessor {
 
     void setCurrentLocale(Locale current);
     
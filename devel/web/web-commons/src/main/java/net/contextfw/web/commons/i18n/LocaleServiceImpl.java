@@ -1,5 +1,6 @@
 package net.contextfw.web.commons.i18n;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -10,6 +11,8 @@ import java.util.Map.Entry;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.contextfw.web.application.configuration.Configuration;
 import static net.contextfw.web.commons.i18n.LocaleConf.*;
@@ -17,6 +20,7 @@ import static net.contextfw.web.commons.i18n.LocaleConf.*;
 import org.dom4j.Attribute;
 import org.dom4j.Document;
 import org.dom4j.Element;
+import org.dom4j.Node;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -24,11 +28,12 @@ import com.google.inject.Singleton;
 @Singleton
 public class LocaleServiceImpl implements LocaleService {
 
-    private Map<String, LocaleMessage> messages = new HashMap<String, LocaleMessage>();
+    private volatile ConcurrentMap<String, LocaleMessage> messages = 
+            new ConcurrentHashMap<String, LocaleMessage>();
 
     private final Locale defaultLocale;
 
-    private Map<Locale, ResourceBundle> bundles;
+    private volatile Map<Locale, ResourceBundle> bundles;
     
     private final Set<Locale> supportedLocales;
     
@@ -57,17 +62,22 @@ public class LocaleServiceImpl implements LocaleService {
         this.current.set(current);
     }
 
+    /**
+     * Reloads the resource bundles. New bundles are loaded before they replace the old ones,
+     * so concurrent lookups see either of them.
+     */
     @Override
-    public final void reset() {
-        bundles = new HashMap<Locale, ResourceBundle>();
-        messages = new HashMap<String, LocaleMessage>();
+    public final synchronized void reset() {
+        Map<Locale, ResourceBundle> loaded = new HashMap<Locale, ResourceBundle>();
         ResourceBundle.clearCache(Thread.currentThread().getContextClassLoader());
         for (Locale locale : supportedLocales) {
-            bundles.put(locale, ResourceBundle.getBundle(
+            loaded.put(locale, ResourceBundle.getBundle(
                         baseName,
                         locale,
                         Thread.currentThread().getContextClassLoader()));
         }
+        bundles = loaded;
+        messages = new ConcurrentHashMap<String, LocaleMessage>();
     }
 
     @Override
@@ -81,6 +91,71 @@ public class LocaleServiceImpl implements LocaleService {
         addConversions(texts);
     }
 
+    @Override
+    public Set<String> getLanguages() {
+        Set<String> languages = new HashSet<String>();
+        for (Locale locale : supportedLocales) {
+            languages.add(locale.getLanguage());
+        }
+        return languages;
+    }
+
+    /**
+     * Replaces localized elements and attributes with literal texts of given language.
+     * 
+     * <p>
+     *  Bundles are not reloaded, because this is called after {@link #process(Document)} 
+     *  has reloaded them for the same compilation.
+     * </p>
+     */
+    @Override
+    public void process(Document document, String language) {
+        Locale locale = getLocale(language);
+        for (Element element : getI18nElements(document)) {
+            if (LocaleConf.NS.equals(element.getNamespaceURI())) {
+                toText(element, getText(element.getName(), locale));
+            } else {
+                toLiteralAttributes(element, locale);
+            }
+        }
+    }
+
+    private Locale getLocale(String language) {
+        for (Locale locale : supportedLocales) {
+            if (locale.getLanguage().equals(language)) {
+                return locale;
+            }
+        }
+        throw new IllegalArgumentException("Language is not supported: " + language);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void toText(Element element, String text) {
+        Element parent = element.getParent();
+        Element literal = parent.addElement("xsl:text");
+        literal.setText(text);
+        literal.detach();
+        List<Node> content = parent.content();
+        content.set(content.indexOf(element), literal);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void toLiteralAttributes(Element element, Locale locale) {
+        List<Attribute> localized = new ArrayList<Attribute>();
+        for (Attribute attr : (List<Attribute>) element.attributes()) {
+            if (LocaleConf.NS.equals(attr.getNamespaceURI())) {
+                localized.add(attr);
+            }
+        }
+        for (Attribute attr : localized) {
+            element.remove(attr);
+            // Braces would be interpreted as attribute value templates
+            element.addAttribute(attr.getName(), getText(attr.getValue(), locale)
+                    .replace("{", "{{")
+                    .replace("}", "}}"));
+        }
+    }
+
     private void addConversions(List<Element> texts) {
         for (Element element : texts) {
             if (LocaleConf.NS.equals(element.getNamespaceURI())) {
@@ -186,10 +261,14 @@ public class LocaleServiceImpl implements LocaleService {
     }
     
     public LocaleMessage getMessage(String name) {
-        LocaleMessage msg = messages.get(name);
+        ConcurrentMap<String, LocaleMessage> current = messages;
+        LocaleMessage msg = current.get(name);
         if (msg == null) {
             msg = new LocaleMessageImpl(this, name);
-            messages.put(name, msg);
+            LocaleMessage existing = current.putIfAbsent(name, msg);
+            if (existing != null) {
+                msg = existing;
+            }
         }
         return msg;
     }
@@ -200,12 +279,13 @@ public class LocaleServiceImpl implements LocaleService {
 
     public String getText(String name, Locale locale) {
         String text = null;
+        Map<Locale, ResourceBundle> current = bundles;
         try {
-            text = bundles.get(locale).getString(name);
+            text = current.get(locale).getString(name);
         } catch (MissingResourceException e) {
             if (defaultLocale != null) {
                 try {
-                    text = bundles.get(defaultLocale).getString(name);
+                    text = current.get(defaultLocale).getString(name);
                 } catch (MissingResourceException e1) {
                     // Just ignore
                 }
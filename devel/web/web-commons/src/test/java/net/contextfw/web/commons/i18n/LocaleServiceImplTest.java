@@ -0,0 +1,71 @@
+package net.contextfw.web.commons.i18n;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import net.contextfw.web.application.configuration.Configuration;
+import net.contextfw.web.application.internal.Transformers;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocaleServiceImplTest {
+
+    private static final String XSL =
+        "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\""
+        + " xmlns:i18n=\"" + LocaleConf.NS + "\" exclude-result-prefixes=\"i18n\">"
+        + "<xsl:variable name=\"lang\" select=\"/WebApplication/@lang\" />"
+        + "<xsl:template match=\"/\"><div i18n:title=\"title\"><i18n:hello /></div></xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private LocaleServiceImpl service;
+
+    @Before
+    public void setup() {
+        service = new LocaleServiceImpl(Configuration.getDefaults()
+                .set(LocaleConf.DEFAULT_LOCALE, Locale.ENGLISH)
+                .add(LocaleConf.SUPPORTED_LOCALE, Locale.ENGLISH)
+                .add(LocaleConf.SUPPORTED_LOCALE, new Locale("fi"))
+                .set(LocaleConf.BASE_NAME, Texts.class.getName())
+                .set(LocaleConf.STRICT_VALIDATION, true));
+    }
+
+    @Test
+    public void Languages_Are_Supported() {
+        assertEquals(2, service.getLanguages().size());
+    }
+
+    @Test
+    public void Texts_Are_Inlined() throws DocumentException {
+        assertEquals("<div title=\"Otsikko {x}\">Hei</div>", transform("fi"));
+        assertEquals("<div title=\"Title {x}\">Hello</div>", transform("en"));
+    }
+
+    @Test
+    public void Bundles_Are_Not_Reloaded_For_Each_Language() throws DocumentException {
+        transform("fi");
+        ResourceBundle bundle = getBundle();
+        transform("en");
+        assertSame(bundle, getBundle());
+    }
+
+    private ResourceBundle getBundle() {
+        return ResourceBundle.getBundle(Texts.class.getName(), new Locale("fi"), 
+                Thread.currentThread().getContextClassLoader());
+    }
+
+    private String transform(String language) throws DocumentException {
+        Document xsl = DocumentHelper.parseText(XSL);
+        service.process(xsl, language);
+        Transformers transformers = new Transformers();
+        transformers.initialize(xsl);
+        return transformers.transform(DocumentHelper.parseText("<WebApplication />"))
+                .getRootElement().asXML();
+    }
+}
@@ -0,0 +1,14 @@
+package net.contextfw.web.commons.i18n;
+
+import java.util.ListResourceBundle;
+
+public class Texts extends ListResourceBundle {
+
+    @Override
+    protected Object[][] getContents() {
+        return new Object[][] {
+            { "hello", "Hello" },
+            { "title", "Title {x}" }
+        };
+    }
+}
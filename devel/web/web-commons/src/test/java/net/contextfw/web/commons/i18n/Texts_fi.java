@@ -0,0 +1,14 @@
+package net.contextfw.web.commons.i18n;
+
+import java.util.ListResourceBundle;
+
+public class Texts_fi extends ListResourceBundle {
+
+    @Override
+    protected Object[][] getContents() {
+        return new Object[][] {
+            { "hello", "Hei" },
+            { "title", "Otsikko {x}" }
+        };
+    }
+}
@@ -41,11 +41,17 @@ contextfw = {
 		}
 
 		jQuery.post(this.updateUrl+"/"+elId+"/"+method, params, function(data, textStatus) {
-			contextfw._handleResponse(data);
-			if (jQuery.isFunction(afterCall)) afterCall();
+			contextfw._transform(data, function(transformed) {
+				contextfw._handleResponse(transformed);
+				if (jQuery.isFunction(afterCall)) afterCall();
+			});
 	    }, "text");
 	},
 	
+	loadDeferred: function(elId) {
+		this._call(elId, "contextfw-deferred", []);
+	},
+	
 	call: function(elId, method) {
 		var args = []
 		for(var i=2; i< arguments.length; i++) {
@@ -77,6 +83,34 @@ contextfw = {
 	},
 	
 
+	stylesheets: {},
+
+	/*
+	 * Transforms the update with the stylesheet if update is rendered on client side
+	 */
+	_transform: function(data, callback) {
+		var match = /<WebApplication\.update[^>]*\sstylesheet="([^"]*)"/.exec(data);
+		if (match == null) {
+			callback(data);
+			return;
+		}
+		var url = match[1].replace(/&amp;/g, "&");
+		var process = function(xsl) {
+			var processor = new XSLTProcessor();
+			processor.importStylesheet(xsl);
+			var xml = new DOMParser().parseFromString(data, "text/xml");
+			callback(new XMLSerializer().serializeToString(processor.transformToDocument(xml)));
+		};
+		if (this.stylesheets[url]) {
+			process(this.stylesheets[url]);
+		} else {
+			jQuery.get(url, null, function(xsl) {
+				contextfw.stylesheets[url] = xsl;
+				process(xsl);
+			}, "xml");
+		}
+	},
+
 	_parseUpdate: function(data, tagName, callback) {
 		  var current = data;
 		  var pattern = new RegExp("<"+tagName+"(\\s+?.*?)?>");
@@ -136,6 +170,35 @@ contextfw = {
 			}
 		});
 
+		/*
+		 * Changes of keyed collections. Each operation type is applied in its own pass:
+		 * changed items were already replaced in place above, then items are removed,
+		 * and finally inserts and moves are applied in document order. Items are
+		 * addressed by id, so replacing them first does not affect the other operations.
+		 */
+		this._parseUpdate(domDocument, "remove", function(attr, data) {
+			try {
+			  jQuery("#"+ attr.id).remove();
+			}
+			catch(err) {
+				// Just ignore
+			}
+		});
+
+		this._parseUpdate(domDocument, "insertAfter", function(attr, data) {
+			try {
+			  var item = attr.item ? jQuery("#"+ attr.item) : jQuery(data);
+			  if (attr.id) {
+				  item.insertAfter("#"+ attr.id);
+			  } else {
+				  item.prependTo("#"+ attr.parent);
+			  }
+			}
+			catch(err) {
+				// Just ignore
+			}
+		});
+
 		this._parseUpdate(domDocument, "script", function(attr, script) {
 			script = script.replace(/&gt;/g, '>');
 			script = script.replace(/&lt;/g, '<');